@@ -0,0 +1,78 @@
+package com.springboot.benchmark;
+
+import com.springboot.metrics.HotKeys;
+import com.springboot.property.HotKeyProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of HotKeys.record, the per-cart cost of hot key tracking, with every thread recording at once.
+// stripes=1 is a single shared sketch per dimension. Compare -t 1 with -t <cores> on the target hardware:
+// ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="HotKeysBenchmark -t 16"
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class HotKeysBenchmark {
+
+    private static final String[] SEGMENTS = {"p1", "p2", "p3", "gold"};
+    private static final int KEY_MASK = (1 << 16) - 1;
+
+    @Param({"1", "8"})
+    public int stripes;
+
+    private HotKeys hotKeys;
+
+    // Restaurants and users skewed like real traffic: a few take most carts, the rest are spread thin
+    @State(Scope.Thread)
+    public static class Carts {
+        final int[] restaurantIds = new int[KEY_MASK + 1];
+        final int[] userIds = new int[KEY_MASK + 1];
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            SplittableRandom random = new SplittableRandom(42);
+            for (int i = 0; i <= KEY_MASK; i++) {
+                restaurantIds[i] = random.nextInt(10) < 8 ? 1 + random.nextInt(10) : 1 + random.nextInt(100_000);
+                userIds[i] = random.nextInt(10) < 2 ? 1 + random.nextInt(10) : 1 + random.nextInt(1_000_000);
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HotKeyProperty property = new HotKeyProperty();
+        property.setEnabled(true);
+        property.setStripes(stripes);
+        hotKeys = new HotKeys(property);
+    }
+
+    @Benchmark
+    public void recordSameCart() {
+        // The worst case: every thread counts the same restaurant, user and segment
+        hotKeys.record(1, 1, "gold");
+    }
+
+    @Benchmark
+    public void recordSkewedCarts(Carts carts) {
+        int i = carts.cursor++ & KEY_MASK;
+        hotKeys.record(carts.restaurantIds[i], carts.userIds[i], SEGMENTS[i & 3]);
+    }
+}
@@ -0,0 +1,86 @@
+package com.springboot.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springboot.controller.ApplyOfferRequest;
+import com.springboot.controller.ApplyOfferResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Request/response (de)serialization as done by the apply_offer endpoint, in each encoding it accepts
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonCodecBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    private String encoding;
+
+    private ObjectWriter requestWriter;
+    private ObjectReader requestReader;
+    private ObjectWriter responseWriter;
+    private ObjectReader responseReader;
+
+    private ApplyOfferRequest request;
+    private ApplyOfferResponse response;
+    private byte[] requestBytes;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = "smile".equals(encoding) ? new ObjectMapper(new SmileFactory())
+                : "cbor".equals(encoding) ? new ObjectMapper(new CBORFactory())
+                : new ObjectMapper();
+        requestWriter = objectMapper.writerFor(ApplyOfferRequest.class);
+        requestReader = objectMapper.readerFor(ApplyOfferRequest.class);
+        responseWriter = objectMapper.writerFor(ApplyOfferResponse.class);
+        responseReader = objectMapper.readerFor(ApplyOfferResponse.class);
+
+        request = new ApplyOfferRequest();
+        request.setUser_id(1);
+        request.setRestaurant_id(101);
+        request.setCart_value(200);
+        response = new ApplyOfferResponse(190);
+
+        requestBytes = requestWriter.writeValueAsBytes(request);
+        responseBytes = responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() throws IOException {
+        return requestWriter.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public ApplyOfferRequest deserializeRequest() throws IOException {
+        return requestReader.readValue(requestBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ApplyOfferResponse deserializeResponse() throws IOException {
+        return responseReader.readValue(responseBytes);
+    }
+}
@@ -0,0 +1,116 @@
+package com.springboot.benchmark;
+
+import com.springboot.controller.OfferRequest;
+import com.springboot.repository.OfferRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Catalogs hold one offer per restaurant, spread across four segments.
+// Writes always insert a new restaurant, so the catalog grows slightly during a run.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class OfferRepositoryBenchmark {
+
+    private static final String[] SEGMENTS = {"p1", "p2", "p3", "p4"};
+    private static final int LOOKUP_MASK = (1 << 16) - 1;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int catalogSize;
+
+    private OfferRepository offerRepository;
+    private List<List<String>> segmentLists;
+    private final AtomicInteger nextRestaurantId = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Lookups {
+        final int[] restaurantIds = new int[LOOKUP_MASK + 1];
+        final String[] segments = new String[LOOKUP_MASK + 1];
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp(OfferRepositoryBenchmark benchmark) {
+            SplittableRandom random = new SplittableRandom(42);
+            for (int i = 0; i <= LOOKUP_MASK; i++) {
+                int restaurantId = 1 + random.nextInt(benchmark.catalogSize);
+                restaurantIds[i] = restaurantId;
+                segments[i] = SEGMENTS[restaurantId % SEGMENTS.length];
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        segmentLists = new ArrayList<>();
+        for (String segment : SEGMENTS) {
+            segmentLists.add(Collections.singletonList(segment));
+        }
+
+        offerRepository = new OfferRepository();
+        for (int restaurantId = 1; restaurantId <= catalogSize; restaurantId++) {
+            offerRepository.addOffer(offerFor(restaurantId));
+        }
+        nextRestaurantId.set(catalogSize + 1);
+    }
+
+    @Benchmark
+    public Object getOfferHit(Lookups lookups) {
+        int i = lookups.cursor++ & LOOKUP_MASK;
+        return offerRepository.findOffer(lookups.restaurantIds[i], lookups.segments[i]);
+    }
+
+    @Benchmark
+    public Object getOfferMiss(Lookups lookups) {
+        int i = lookups.cursor++ & LOOKUP_MASK;
+        // Right restaurant, wrong segment
+        return offerRepository.findOffer(lookups.restaurantIds[i], "gold");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = 10_000)
+    @Measurement(iterations = 5, batchSize = 10_000)
+    public boolean addOffer() {
+        return offerRepository.addOffer(offerFor(nextRestaurantId.getAndIncrement()));
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public Object contendedGetOffer(Lookups lookups) {
+        return getOfferHit(lookups);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public boolean contendedAddOffer() {
+        return offerRepository.addOffer(offerFor(nextRestaurantId.getAndIncrement()));
+    }
+
+    private OfferRequest offerFor(int restaurantId) {
+        return new OfferRequest(restaurantId, "FLATX", 10, segmentLists.get(restaurantId % SEGMENTS.length));
+    }
+}
@@ -0,0 +1,103 @@
+package com.springboot.service;
+
+import com.springboot.controller.OfferRequest;
+import com.springboot.offer.CompiledOffer;
+import com.springboot.offer.OfferSelection;
+import com.springboot.offer.OfferTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscountBenchmark {
+
+    // Not final, so the JIT cannot constant-fold the inputs
+    private int cartValue = 1_337;
+    private int itemCount = 7;
+    private CompiledOffer flatX;
+    private CompiledOffer flatPercent;
+    private CompiledOffer flatP;
+    private CompiledOffer flatPercentMax;
+    private CompiledOffer buyXPayY;
+    // All types behind one call site, as on the apply_offer path
+    private CompiledOffer[] mixed;
+    private int next;
+    // A restaurant running dozens of overlapping offers for one segment
+    private OfferSelection crowded;
+
+    @Setup
+    public void setUp() {
+        OfferTypes offerTypes = new OfferTypes();
+        flatX = offerTypes.compile(offer("FLATX", 10, 0, 0, 0));
+        flatPercent = offerTypes.compile(offer("FLAT%", 15, 0, 0, 0));
+        flatP = offerTypes.compile(offer("FLATP", 15, 0, 0, 0));
+        flatPercentMax = offerTypes.compile(offer("FLATP_MAX", 15, 100, 0, 0));
+        buyXPayY = offerTypes.compile(offer("BUYX_PAYY", 0, 0, 3, 2));
+        mixed = new CompiledOffer[]{flatX, flatPercent, offerTypes.compile(offer("FLATX_FLOOR", 10, 0, 0, 0)),
+                flatPercentMax, buyXPayY};
+
+        crowded = OfferSelection.of(flatX, 0);
+        for (int i = 1; i < 48; i++) {
+            OfferRequest offer = offer(i % 2 == 0 ? "FLATX" : "FLAT%", i % 20, 0, 0, 0);
+            offer.setPriority(i % 5);
+            offer.setStacking(i % 8 == 0 ? OfferTypes.STACKABLE : OfferTypes.EXCLUSIVE);
+            crowded = crowded.with(offerTypes.compile(offer), i);
+        }
+    }
+
+    private static OfferRequest offer(String type, int value, int maxDiscount, int buy, int pay) {
+        return new OfferRequest(1, type, value, Collections.singletonList("p1"), maxDiscount, buy, pay);
+    }
+
+    @Benchmark
+    public int flatX() {
+        return flatX.apply(cartValue, itemCount);
+    }
+
+    @Benchmark
+    public int flatPercent() {
+        return flatPercent.apply(cartValue, itemCount);
+    }
+
+    @Benchmark
+    public int flatP() {
+        return flatP.apply(cartValue, itemCount);
+    }
+
+    @Benchmark
+    public int flatPercentMax() {
+        return flatPercentMax.apply(cartValue, itemCount);
+    }
+
+    @Benchmark
+    public int buyXPayY() {
+        return buyXPayY.apply(cartValue, itemCount);
+    }
+
+    @Benchmark
+    public int megamorphic() {
+        CompiledOffer offer = mixed[next];
+        next = next == mixed.length - 1 ? 0 : next + 1;
+        return offer.apply(cartValue, itemCount);
+    }
+
+    @Benchmark
+    public int crowdedSelection() {
+        return crowded.apply(cartValue, itemCount);
+    }
+}
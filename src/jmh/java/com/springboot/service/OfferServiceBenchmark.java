@@ -0,0 +1,92 @@
+package com.springboot.service;
+
+import com.springboot.client.SegmentClient;
+import com.springboot.controller.ApplyOfferRequest;
+import com.springboot.controller.ApplyOfferResponse;
+import com.springboot.controller.OfferRequest;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.property.SegmentCacheProperty;
+import com.springboot.repository.OfferRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Offer pricing without the network: the segment service is replaced by an in-memory stub
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OfferServiceBenchmark {
+
+    private static final int RESTAURANTS = 10_000;
+
+    @Param({"true", "false"})
+    public boolean segmentCache;
+
+    private OfferService offerService;
+    private SegmentCache cache;
+    private ApplyOfferRequest matchingCart;
+    private ApplyOfferRequest unmatchedCart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SegmentResponse p1 = new SegmentResponse();
+        p1.setSegment("p1");
+        SegmentClient stubClient = userId -> p1;
+
+        SegmentCacheProperty cacheProperty = new SegmentCacheProperty();
+        cacheProperty.setEnabled(segmentCache);
+        cache = new SegmentCache(cacheProperty);
+
+        OfferRepository offerRepository = new OfferRepository();
+        for (int restaurantId = 1; restaurantId <= RESTAURANTS; restaurantId++) {
+            offerRepository.addOffer(new OfferRequest(restaurantId, restaurantId % 2 == 0 ? "FLATX" : "FLAT%",
+                    10, Arrays.asList("p1", "p2")));
+        }
+
+        offerService = new OfferService(offerRepository, stubClient, cache,
+                new OfferMetrics(new SimpleMeterRegistry(), offerRepository, cache));
+        matchingCart = cart(7, RESTAURANTS / 2, 1_000);
+        unmatchedCart = cart(7, RESTAURANTS + 1, 1_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    @Benchmark
+    public ApplyOfferResponse applyOfferMatching() throws Exception {
+        return offerService.applyOffer(matchingCart);
+    }
+
+    @Benchmark
+    public ApplyOfferResponse applyOfferNoOffer() throws Exception {
+        return offerService.applyOffer(unmatchedCart);
+    }
+
+    private static ApplyOfferRequest cart(int userId, int restaurantId, int cartValue) {
+        ApplyOfferRequest request = new ApplyOfferRequest();
+        request.setUser_id(userId);
+        request.setRestaurant_id(restaurantId);
+        request.setCart_value(cartValue);
+        return request;
+    }
+}
@@ -0,0 +1,71 @@
+package com.springboot.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Binary search over a memory-mapped user_id -> segment snapshot, for users spread over the whole file
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SegmentSnapshotBenchmark {
+
+    private static final String[] SEGMENTS = {"p1", "p2", "p3", "p4", "gold", "silver", "premium", "basic"};
+
+    @Param({"100000", "10000000"})
+    public int users;
+
+    private Path file;
+    private SegmentSnapshotFiles.MappedSegments mapped;
+    private int[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Every other id is listed, so half the probes miss
+        Map<Integer, String> assignments = new HashMap<>(users * 2);
+        for (int i = 0; i < users; i++) {
+            assignments.put(i * 2, SEGMENTS[i % SEGMENTS.length]);
+        }
+        file = Files.createTempFile("segments", ".snap");
+        SegmentSnapshotFiles.writeSnapshot(file, 1, assignments);
+        mapped = SegmentSnapshotFiles.map(file);
+
+        SplittableRandom random = new SplittableRandom(1);
+        probes = new int[1 << 16];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = random.nextInt(users * 2);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int find() {
+        return mapped.find(probes[next++ & (probes.length - 1)]);
+    }
+}
@@ -0,0 +1,114 @@
+package com.springboot.loadtest;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// How long the segment-service stub takes to answer. Written as
+//   none | fixed:5ms | uniform:2ms-10ms | lognormal:5ms,50ms (median, p99)
+// Log-normal is the usual shape of a remote call: most answers are quick, a few are very slow.
+public abstract class LatencyDistribution {
+
+    // z-score of the 99th percentile of a standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    public abstract long sampleNanos(Random random);
+
+    public static LatencyDistribution parse(String spec) {
+        String[] kindAndArgs = spec.trim().split(":", 2);
+        String kind = kindAndArgs[0].toLowerCase();
+        String args = kindAndArgs.length > 1 ? kindAndArgs[1] : "";
+
+        switch (kind) {
+            case "none":
+                return fixed(0, spec);
+            case "fixed":
+                return fixed(toNanos(args), spec);
+            case "uniform": {
+                String[] bounds = args.split("-", 2);
+                if (bounds.length != 2) {
+                    throw new IllegalArgumentException("Expected uniform:<min>-<max>, got " + spec);
+                }
+                return uniform(toNanos(bounds[0]), toNanos(bounds[1]), spec);
+            }
+            case "lognormal": {
+                String[] points = args.split(",", 2);
+                if (points.length != 2) {
+                    throw new IllegalArgumentException("Expected lognormal:<median>,<p99>, got " + spec);
+                }
+                return logNormal(toNanos(points[0]), toNanos(points[1]), spec);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + spec
+                        + ". Supported: none, fixed, uniform, lognormal");
+        }
+    }
+
+    private static LatencyDistribution fixed(long nanos, String spec) {
+        return new LatencyDistribution() {
+            @Override
+            public long sampleNanos(Random random) {
+                return nanos;
+            }
+
+            @Override
+            public String toString() {
+                return spec;
+            }
+        };
+    }
+
+    private static LatencyDistribution uniform(long minNanos, long maxNanos, String spec) {
+        if (maxNanos < minNanos) {
+            throw new IllegalArgumentException("Uniform latency max is below min: " + spec);
+        }
+        return new LatencyDistribution() {
+            @Override
+            public long sampleNanos(Random random) {
+                return minNanos + (long) (random.nextDouble() * (maxNanos - minNanos));
+            }
+
+            @Override
+            public String toString() {
+                return spec;
+            }
+        };
+    }
+
+    private static LatencyDistribution logNormal(long medianNanos, long p99Nanos, String spec) {
+        if (medianNanos <= 0 || p99Nanos < medianNanos) {
+            throw new IllegalArgumentException("Log-normal latency needs 0 < median <= p99: " + spec);
+        }
+        double mu = Math.log(medianNanos);
+        double sigma = (Math.log(p99Nanos) - mu) / Z_99;
+        return new LatencyDistribution() {
+            @Override
+            public long sampleNanos(Random random) {
+                return (long) Math.exp(mu + sigma * random.nextGaussian());
+            }
+
+            @Override
+            public String toString() {
+                return spec;
+            }
+        };
+    }
+
+    // Accepts the same units as Spring's duration properties: ns, us, ms, s
+    static long toNanos(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("ns")) {
+            return Long.parseLong(trimmed.substring(0, trimmed.length() - 2));
+        }
+        if (trimmed.endsWith("us")) {
+            return TimeUnit.MICROSECONDS.toNanos(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        }
+        if (trimmed.endsWith("ms")) {
+            return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        }
+        if (trimmed.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(trimmed.substring(0, trimmed.length() - 1))).toNanos();
+        }
+        throw new IllegalArgumentException("Expected a duration such as 5ms, got " + value);
+    }
+}
@@ -0,0 +1,68 @@
+package com.springboot.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Thread-safe log-linear histogram of nanosecond latencies: exact below 128ns, then 64 buckets per power of two,
+// so any percentile is within 1.6% of the true value whatever the range. Fixed size, no allocation per record.
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 128;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int HALF_BITS = 6;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - HALF_BITS) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    // The smallest recorded value that at least the given fraction of records are at or below
+    public long percentileNanos(double fraction) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            seen += counts.get(index);
+            if (seen >= rank) {
+                return Math.min(highestValueIn(index), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - HALF_BITS;
+        long top = value >>> shift;
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (top - HALF);
+    }
+
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long top = HALF + (index - SUB_BUCKETS) % HALF;
+        return ((top + 1) << shift) - 1;
+    }
+}
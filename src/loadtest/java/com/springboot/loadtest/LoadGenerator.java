@@ -0,0 +1,168 @@
+package com.springboot.loadtest;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-model load: requests are started on a fixed schedule at the target rate, whether or not earlier ones
+// have finished, the way independent users arrive in production. Latency is measured from when a request
+// was due to start, so time spent waiting behind a saturated server counts (no coordinated omission).
+// A closed loop of N threads would instead slow down with the server and hide exactly that queueing.
+public class LoadGenerator implements AutoCloseable {
+
+    // One kind of request in the mix; called from many threads
+    public interface Operation {
+        String getName();
+
+        String getPath();
+
+        byte[] nextBody(Random random);
+    }
+
+    private final String baseUrl;
+    private final int maxOutstanding;
+    private final CloseableHttpClient httpClient;
+    private final ThreadPoolExecutor workers;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    public LoadGenerator(String baseUrl, int connections, int maxOutstanding) {
+        this.baseUrl = baseUrl;
+        this.maxOutstanding = maxOutstanding;
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(1_000)
+                .setSocketTimeout(30_000)
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setDefaultRequestConfig(requestConfig)
+                .setMaxConnTotal(connections)
+                .setMaxConnPerRoute(connections)
+                .build();
+        // Requests that find every connection busy queue here; their wait is part of the measured latency
+        this.workers = new ThreadPoolExecutor(connections, connections, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), SegmentServiceStub.daemon("load-generator"));
+        workers.prestartAllCoreThreads();
+    }
+
+    // Drives the weighted mix at ratePerSecond for durationMillis. Poisson arrivals model many independent
+    // clients; otherwise requests are evenly spaced.
+    public LoadReport run(List<Operation> operations, double[] weights, double ratePerSecond, long durationMillis,
+                          boolean poisson) throws InterruptedException {
+        LoadReport report = new LoadReport(operations, ratePerSecond);
+        double[] cumulative = cumulative(weights);
+        SplittableRandom schedule = new SplittableRandom(42);
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        double due = start;
+
+        while (due < end) {
+            long intended = (long) due;
+            waitUntil(intended);
+
+            int index = pick(cumulative, schedule.nextDouble());
+            if (outstanding.incrementAndGet() > maxOutstanding) {
+                // The generator itself is the bottleneck; counted rather than silently delayed
+                outstanding.decrementAndGet();
+                report.dropped(index);
+            } else {
+                workers.execute(() -> send(operations.get(index), index, intended, report));
+            }
+
+            due += poisson ? -Math.log(1 - schedule.nextDouble()) * meanIntervalNanos : meanIntervalNanos;
+        }
+
+        // Let requests already started finish, so the slowest ones are not left out of the percentiles
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(1);
+        }
+        report.finish(System.nanoTime() - start);
+        return report;
+    }
+
+    private void send(Operation operation, int index, long intended, LoadReport report) {
+        boolean ok = false;
+        boolean shed = false;
+        try {
+            HttpPost post = new HttpPost(baseUrl + operation.getPath());
+            post.setEntity(new ByteArrayEntity(operation.nextBody(ThreadLocalRandom.current()),
+                    ContentType.APPLICATION_JSON));
+            try (CloseableHttpResponse response = httpClient.execute(post)) {
+                HttpEntity entity = response.getEntity();
+                EntityUtils.consume(entity);
+                int status = response.getStatusLine().getStatusCode();
+                ok = status / 100 == 2;
+                shed = status == 429;
+            }
+        } catch (IOException e) {
+            // Counted as an error below
+        } finally {
+            if (shed) {
+                report.shed(index);
+            } else {
+                report.completed(index, System.nanoTime() - intended, ok);
+            }
+            outstanding.decrementAndGet();
+        }
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            // Parking is coarse; spin for the last stretch so high rates stay evenly spaced
+            if (remaining > 100_000) {
+                LockSupport.parkNanos(remaining - 50_000);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i] / total;
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, double point) {
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (point < cumulative[i]) {
+                return i;
+            }
+        }
+        return cumulative.length - 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        workers.shutdownNow();
+        httpClient.close();
+    }
+}
@@ -0,0 +1,113 @@
+package com.springboot.loadtest;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Throughput and latency percentiles per operation for one run of the load generator. Requests the service
+// turned away with 429 are counted as shed and kept out of the percentiles, which describe the requests served.
+public class LoadReport {
+
+    private final List<LoadGenerator.Operation> operations;
+    private final double targetRate;
+    private final LatencyHistogram[] latencies;
+    private final LatencyHistogram overall = new LatencyHistogram();
+    private final AtomicLongArray errors;
+    private final AtomicLongArray dropped;
+    private final AtomicLongArray shed;
+    private long elapsedNanos;
+
+    LoadReport(List<LoadGenerator.Operation> operations, double targetRate) {
+        this.operations = operations;
+        this.targetRate = targetRate;
+        this.latencies = new LatencyHistogram[operations.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        this.errors = new AtomicLongArray(operations.size());
+        this.dropped = new AtomicLongArray(operations.size());
+        this.shed = new AtomicLongArray(operations.size());
+    }
+
+    void completed(int operation, long latencyNanos, boolean ok) {
+        latencies[operation].record(latencyNanos);
+        overall.record(latencyNanos);
+        if (!ok) {
+            errors.incrementAndGet(operation);
+        }
+    }
+
+    void dropped(int operation) {
+        dropped.incrementAndGet(operation);
+    }
+
+    void shed(int operation) {
+        shed.incrementAndGet(operation);
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getCompleted() {
+        return overall.getCount();
+    }
+
+    public long getErrors() {
+        long total = 0;
+        for (int i = 0; i < errors.length(); i++) {
+            total += errors.get(i);
+        }
+        return total;
+    }
+
+    public long getDropped() {
+        long total = 0;
+        for (int i = 0; i < dropped.length(); i++) {
+            total += dropped.get(i);
+        }
+        return total;
+    }
+
+    public long getShed() {
+        long total = 0;
+        for (int i = 0; i < shed.length(); i++) {
+            total += shed.get(i);
+        }
+        return total;
+    }
+
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : overall.getCount() * 1e9 / elapsedNanos;
+    }
+
+    public LatencyHistogram getOverall() {
+        return overall;
+    }
+
+    public void print(PrintStream out) {
+        out.println(String.format(Locale.ROOT,
+                "Target %.0f req/s, achieved %.1f req/s over %.1f s (%d errors, %d dropped, %d shed)",
+                targetRate, getThroughput(), elapsedNanos / 1e9, getErrors(), getDropped(), getShed()));
+        out.println(String.format(Locale.ROOT, "%-12s %10s %8s %8s %8s %10s %10s %10s %10s",
+                "operation", "requests", "errors", "dropped", "shed", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (int i = 0; i < latencies.length; i++) {
+            printRow(out, operations.get(i).getName(), latencies[i], errors.get(i), dropped.get(i), shed.get(i));
+        }
+        printRow(out, "all", overall, getErrors(), getDropped(), getShed());
+    }
+
+    private static void printRow(PrintStream out, String name, LatencyHistogram histogram, long errors, long dropped,
+                                 long shed) {
+        out.println(String.format(Locale.ROOT, "%-12s %10d %8d %8d %8d %10.3f %10.3f %10.3f %10.3f",
+                name, histogram.getCount(), errors, dropped, shed,
+                millis(histogram.percentileNanos(0.50)), millis(histogram.percentileNanos(0.99)),
+                millis(histogram.percentileNanos(0.999)), millis(histogram.getMaxNanos())));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
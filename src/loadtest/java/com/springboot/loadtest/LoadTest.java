@@ -0,0 +1,239 @@
+package com.springboot.loadtest;
+
+import com.springboot.CartOfferApplication;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Self-contained load test: starts the segment-service stub and the application in this JVM, seeds offers,
+// then drives offer writes and apply_offer at a fixed rate and prints throughput and latency percentiles.
+// Needs no Docker or network beyond loopback:
+//   ./mvnw -Ploadtest test-compile exec:exec -Dloadtest.args="--rate=5000 --duration=60s --stub-latency=lognormal:2ms,40ms"
+// Options not listed in DEFAULTS are passed on to the application, e.g. --segment.cache.enabled=false.
+// With --target-url the load goes to an already running instance instead and no stub is started.
+// --thread-models=platform,virtual runs the same load once per request threading model (virtual needs Java 21)
+// and ends with a side-by-side summary.
+public class LoadTest {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("expectations", "mockserver/initializerJson.json");
+        DEFAULTS.put("stub-latency", "lognormal:2ms,20ms");
+        DEFAULTS.put("stub-error-rate", "0.0");
+        DEFAULTS.put("target-url", "");
+        DEFAULTS.put("restaurants", "10000");
+        DEFAULTS.put("users", "200000");
+        DEFAULTS.put("rate", "2000");
+        DEFAULTS.put("warmup", "10s");
+        DEFAULTS.put("duration", "30s");
+        DEFAULTS.put("write-ratio", "0.01");
+        DEFAULTS.put("arrivals", "poisson");
+        DEFAULTS.put("connections", "256");
+        DEFAULTS.put("max-outstanding", "20000");
+        DEFAULTS.put("thread-models", "");
+    }
+
+    private static final List<String> SEGMENTS = Arrays.asList("p1", "p2", "p3", "p4", "gold", "silver", "premium", "basic");
+    private static final List<String> OFFER_TYPES = Arrays.asList("FLATX", "FLAT%");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            if (DEFAULTS.containsKey(name)) {
+                options.put(name, arg.substring(arg.indexOf('=') + 1));
+            } else {
+                applicationArgs.add(arg);
+            }
+        }
+
+        String threadModels = options.get("thread-models");
+        if (threadModels.isEmpty()) {
+            LoadReport report = run(options, applicationArgs);
+            System.exit(report.getCompleted() > 0 ? 0 : 1);
+        }
+
+        Map<String, LoadReport> reports = new LinkedHashMap<>();
+        for (String model : threadModels.split(",")) {
+            if (!"platform".equals(model) && !"virtual".equals(model)) {
+                throw new IllegalArgumentException("Unknown thread model " + model + "; expected platform or virtual");
+            }
+            System.out.println("=== " + model + " threads ===");
+            List<String> modelArgs = new ArrayList<>(applicationArgs);
+            modelArgs.add("--offer.virtual-threads.enabled=" + "virtual".equals(model));
+            reports.put(model, run(options, modelArgs));
+            System.out.println();
+        }
+        printComparison(reports);
+        System.exit(0);
+    }
+
+    private static void printComparison(Map<String, LoadReport> reports) {
+        System.out.println(String.format(Locale.ROOT, "%-10s %12s %8s %8s %8s %10s %10s %10s",
+                "threads", "achieved/s", "errors", "dropped", "shed", "p50 ms", "p99 ms", "p999 ms"));
+        for (Map.Entry<String, LoadReport> entry : reports.entrySet()) {
+            LoadReport report = entry.getValue();
+            LatencyHistogram overall = report.getOverall();
+            System.out.println(String.format(Locale.ROOT, "%-10s %12.1f %8d %8d %8d %10.3f %10.3f %10.3f",
+                    entry.getKey(), report.getThroughput(), report.getErrors(), report.getDropped(), report.getShed(),
+                    overall.percentileNanos(0.50) / 1e6, overall.percentileNanos(0.99) / 1e6,
+                    overall.percentileNanos(0.999) / 1e6));
+        }
+    }
+
+    private static LoadReport run(Map<String, String> options, List<String> applicationArgs) throws Exception {
+        int restaurants = Integer.parseInt(options.get("restaurants"));
+        int users = Integer.parseInt(options.get("users"));
+
+        SegmentServiceStub stub = null;
+        ConfigurableApplicationContext application = null;
+        String baseUrl = options.get("target-url");
+
+        try {
+            if (baseUrl.isEmpty()) {
+                stub = new SegmentServiceStub(new File(options.get("expectations")),
+                        LatencyDistribution.parse(options.get("stub-latency")),
+                        Double.parseDouble(options.get("stub-error-rate")));
+                stub.start();
+
+                List<String> args = new ArrayList<>();
+                args.add("--server.port=0");
+                args.add("--segment.client.base-url=" + stub.getBaseUrl());
+                args.addAll(applicationArgs);
+                application = new SpringApplicationBuilder(CartOfferApplication.class).run(args.toArray(new String[0]));
+                baseUrl = "http://127.0.0.1:" + application.getEnvironment().getProperty("local.server.port");
+            }
+
+            seedOffers(baseUrl, restaurants);
+
+            List<LoadGenerator.Operation> operations = Arrays.asList(
+                    applyOffer(restaurants, users), addOffer(restaurants));
+            double writeRatio = Double.parseDouble(options.get("write-ratio"));
+            double[] weights = {1 - writeRatio, writeRatio};
+            double rate = Double.parseDouble(options.get("rate"));
+            boolean poisson = "poisson".equalsIgnoreCase(options.get("arrivals"));
+
+            try (LoadGenerator generator = new LoadGenerator(baseUrl,
+                    Integer.parseInt(options.get("connections")), Integer.parseInt(options.get("max-outstanding")))) {
+                long warmup = TimeUnit.NANOSECONDS.toMillis(LatencyDistribution.toNanos(options.get("warmup")));
+                if (warmup > 0) {
+                    System.out.println("Warming up for " + options.get("warmup") + " ...");
+                    generator.run(operations, weights, rate, warmup, poisson);
+                }
+
+                System.out.println("Measuring for " + options.get("duration") + " at " + options.get("rate")
+                        + " req/s (" + options.get("arrivals") + " arrivals) ...");
+                LoadReport report = generator.run(operations, weights, rate,
+                        TimeUnit.NANOSECONDS.toMillis(LatencyDistribution.toNanos(options.get("duration"))), poisson);
+                System.out.println();
+                report.print(System.out);
+                if (stub != null) {
+                    System.out.println(String.format("Segment stub: %d requests, %d injected errors, latency %s",
+                            stub.getRequests(), stub.getInjectedErrors(), options.get("stub-latency")));
+                }
+                return report;
+            }
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    // Every restaurant gets an offer for a few segments, loaded in one bulk request
+    private static void seedOffers(String baseUrl, int restaurants) throws IOException {
+        Random random = new Random(7);
+        StringBuilder ndjson = new StringBuilder(restaurants * 100);
+        for (int restaurantId = 1; restaurantId <= restaurants; restaurantId++) {
+            ndjson.append(offerJson(random, restaurantId)).append('\n');
+        }
+
+        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+            HttpPost post = new HttpPost(baseUrl + "/api/v1/offer/bulk?mode=replace");
+            post.setEntity(new ByteArrayEntity(ndjson.toString().getBytes(StandardCharsets.UTF_8),
+                    ContentType.create("application/x-ndjson")));
+            try (CloseableHttpResponse response = httpClient.execute(post)) {
+                String body = EntityUtils.toString(response.getEntity());
+                if (response.getStatusLine().getStatusCode() != 200) {
+                    throw new IOException("Seeding offers failed: " + body);
+                }
+            }
+        }
+        System.out.println("Seeded offers for " + restaurants + " restaurants");
+    }
+
+    private static String offerJson(Random random, int restaurantId) {
+        String first = SEGMENTS.get(random.nextInt(SEGMENTS.size()));
+        String second = SEGMENTS.get(random.nextInt(SEGMENTS.size()));
+        return "{\"restaurant_id\":" + restaurantId
+                + ",\"offer_type\":\"" + OFFER_TYPES.get(random.nextInt(OFFER_TYPES.size()))
+                + "\",\"offer_value\":" + (5 + random.nextInt(20))
+                + ",\"customer_segment\":[\"" + first + "\",\"" + second + "\"]}";
+    }
+
+    private static LoadGenerator.Operation applyOffer(int restaurants, int users) {
+        return new LoadGenerator.Operation() {
+            @Override
+            public String getName() {
+                return "apply_offer";
+            }
+
+            @Override
+            public String getPath() {
+                return "/api/v1/cart/apply_offer";
+            }
+
+            @Override
+            public byte[] nextBody(Random random) {
+                return ("{\"user_id\":" + (1 + random.nextInt(users))
+                        + ",\"restaurant_id\":" + (1 + random.nextInt(restaurants))
+                        + ",\"cart_value\":" + (100 + random.nextInt(900)) + "}").getBytes(StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    private static LoadGenerator.Operation addOffer(int restaurants) {
+        return new LoadGenerator.Operation() {
+            @Override
+            public String getName() {
+                return "offer";
+            }
+
+            @Override
+            public String getPath() {
+                return "/api/v1/offer";
+            }
+
+            @Override
+            public byte[] nextBody(Random random) {
+                return offerJson(random, 1 + random.nextInt(restaurants)).getBytes(StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
@@ -0,0 +1,193 @@
+package com.springboot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process stand-in for the segment service, answering GET /api/v1/user_segment on loopback.
+// Seeded from the MockServer expectations (mockserver/initializerJson.json). Users beyond the seeded ones are
+// assigned the seeded segments in turn, so a run can spread over more users than the segment cache holds.
+// Answers are delayed by a sampled latency without holding a thread, and a share of them fail with a 503.
+public class SegmentServiceStub implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentServiceStub.class);
+
+    private static final String SEGMENT_PATH = "/api/v1/user_segment";
+    private static final byte[] UNAVAILABLE = "{\"error\": \"injected failure\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static final class Answer {
+        private final int status;
+        private final byte[] body;
+
+        private Answer(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private final Map<Integer, Answer> seeded;
+    private final List<Answer> seededInOrder;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final HttpServer server;
+    private final ExecutorService acceptors;
+    private final ScheduledExecutorService responders;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    public SegmentServiceStub(File expectations, LatencyDistribution latency, double errorRate) throws IOException {
+        this.seeded = loadExpectations(expectations);
+        this.seededInOrder = new ArrayList<>(seeded.values());
+        this.latency = latency;
+        this.errorRate = errorRate;
+
+        // Headers and body are separate writes; without this, Nagle and delayed ACKs add ~40ms to every answer
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.acceptors = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                daemon("segment-stub"));
+        this.responders = Executors.newScheduledThreadPool(2, daemon("segment-stub-delay"));
+        server.setExecutor(acceptors);
+        server.createContext(SEGMENT_PATH, this::handle);
+    }
+
+    private static Map<Integer, Answer> loadExpectations(File expectations) throws IOException {
+        Map<Integer, Answer> answers = new LinkedHashMap<>();
+        for (JsonNode expectation : new ObjectMapper().readTree(expectations)) {
+            JsonNode request = expectation.path("httpRequest");
+            JsonNode userIds = request.path("queryStringParameters").path("user_id");
+            if (!SEGMENT_PATH.equals(request.path("path").asText()) || userIds.size() == 0) {
+                continue;
+            }
+            JsonNode response = expectation.path("httpResponse");
+            Answer answer = new Answer(response.path("statusCode").asInt(200),
+                    response.path("body").asText("").getBytes(StandardCharsets.UTF_8));
+            for (JsonNode userId : userIds) {
+                answers.put(userId.asInt(), answer);
+            }
+        }
+        if (answers.isEmpty()) {
+            throw new IOException("No " + SEGMENT_PATH + " expectations found in " + expectations);
+        }
+        return answers;
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Segment service stub listening on {} with {} seeded users, latency {}, error rate {}",
+                getBaseUrl(), seeded.size(), latency, errorRate);
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    private void handle(HttpExchange exchange) {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        Answer answer;
+        if (random.nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            answer = new Answer(503, UNAVAILABLE);
+        } else {
+            answer = answerFor(userId(exchange.getRequestURI().getRawQuery()));
+        }
+
+        long delay = latency.sampleNanos(random);
+        if (delay <= 0) {
+            respond(exchange, answer);
+        } else {
+            responders.schedule(() -> respond(exchange, answer), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Answer answerFor(int userId) {
+        Answer answer = seeded.get(userId);
+        if (answer == null && userId > 0) {
+            answer = seededInOrder.get(userId % seededInOrder.size());
+        }
+        return answer != null ? answer : new Answer(404, new byte[0]);
+    }
+
+    private static int userId(String query) {
+        if (query == null) {
+            return -1;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("user_id=")) {
+                try {
+                    return Integer.parseInt(URLDecoder.decode(parameter.substring(8), "UTF-8"));
+                } catch (NumberFormatException | IOException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static void respond(HttpExchange exchange, Answer answer) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(answer.status, answer.body.length == 0 ? -1 : answer.body.length);
+            if (answer.body.length > 0) {
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(answer.body);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Segment stub could not answer: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static ThreadFactory daemon(String name) {
+        AtomicLong threads = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        responders.shutdownNow();
+        acceptors.shutdownNow();
+    }
+}
@@ -0,0 +1,81 @@
+package com.springboot.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Caps the calls in flight at a limit that follows observed latency. Completions are judged in windows: when
+// more than the allowed share of a window took longer than the latency target, the limit is cut by the backoff
+// ratio; when the window was fast and calls were refused, or the limit was at least half used, it grows by 5%.
+// Calls over the limit are refused at once rather than queued, so the calls let in keep their latency.
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final double allowedSlowRatio;
+    private final int windowSize;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger slow = new AtomicInteger();
+    private final AtomicInteger refused = new AtomicInteger();
+    // Read without locking on every call; changed only when a window closes
+    private volatile int limit;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyTargetNanos,
+                                    double allowedSlowRatio, int windowSize, double backoffRatio) {
+        if (minLimit <= 0 || maxLimit < minLimit || windowSize <= 0 || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Invalid concurrency limit: min=" + minLimit + ", max=" + maxLimit
+                    + ", window=" + windowSize + ", backoff=" + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTargetNanos;
+        this.allowedSlowRatio = allowedSlowRatio;
+        this.windowSize = windowSize;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // A permitted call must be reported through release
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > limit) {
+            inFlight.decrementAndGet();
+            refused.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(long latencyNanos) {
+        int stillInFlight = inFlight.decrementAndGet();
+        if (latencyNanos > latencyTargetNanos) {
+            slow.incrementAndGet();
+        }
+        // Exactly one caller closes each window
+        if (completed.incrementAndGet() == windowSize) {
+            adjust(stillInFlight + 1);
+        }
+    }
+
+    private synchronized void adjust(int inFlightAtClose) {
+        int slowCalls = slow.getAndSet(0);
+        int refusedCalls = refused.getAndSet(0);
+        // Completions racing with the reset land in the next window
+        completed.set(0);
+
+        if (slowCalls > allowedSlowRatio * windowSize) {
+            limit = Math.max(minLimit, (int) (limit * backoffRatio));
+        } else if (refusedCalls > 0 || inFlightAtClose * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + Math.max(1, limit / 20));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.springboot.admission;
+
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.property.AdmissionProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+
+// Decides up front whether apply_offer takes on a request, so overload is answered with a quick 429 instead of
+// requests queueing in Tomcat until everyone's latency collapses. A request must fit its client's and its
+// restaurant's rate, then a free slot under the adaptive concurrency limit.
+@Component
+public class AdmissionControl {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControl.class);
+
+    public enum Decision {
+        ADMITTED, CLIENT_RATE, RESTAURANT_RATE, OVERLOADED
+    }
+
+    private final boolean enabled;
+    private final String clientHeader;
+    private final OfferMetrics offerMetrics;
+    // Null when the corresponding rate is not limited
+    private final StripedTokenBuckets clientBuckets;
+    private final StripedTokenBuckets restaurantBuckets;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    @Autowired
+    public AdmissionControl(AdmissionProperty property, OfferMetrics offerMetrics) {
+        this.enabled = property.isEnabled();
+        this.clientHeader = property.getClientHeader();
+        this.offerMetrics = offerMetrics;
+        this.clientBuckets = buckets(property, property.getClientRate(), property.getClientBurst());
+        this.restaurantBuckets = buckets(property, property.getRestaurantRate(), property.getRestaurantBurst());
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(property.getInitialLimit(), property.getMinLimit(),
+                property.getMaxLimit(), property.getLatencyTarget().toNanos(), property.getAllowedSlowRatio(),
+                property.getWindowSize(), property.getBackoffRatio());
+
+        if (enabled) {
+            offerMetrics.registerConcurrencyLimit(concurrencyLimit);
+            logger.info("Admission control on: client_rate={}/s, restaurant_rate={}/s, concurrency_limit={}",
+                    property.getClientRate(), property.getRestaurantRate(), concurrencyLimit.getLimit());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Identified by the client header, or by remote address without one; null when admission control is off
+    public String clientOf(HttpServletRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        String client = request.getHeader(clientHeader);
+        return client != null ? client : request.getRemoteAddr();
+    }
+
+    // An admitted request must be reported through complete
+    public Decision admit(String client, int restaurantId) {
+        if (!enabled) {
+            return Decision.ADMITTED;
+        }
+
+        Decision decision = Decision.ADMITTED;
+        if (clientBuckets != null && !clientBuckets.tryAcquire(clientKey(client))) {
+            decision = Decision.CLIENT_RATE;
+        } else if (restaurantBuckets != null && !restaurantBuckets.tryAcquire(restaurantId)) {
+            decision = Decision.RESTAURANT_RATE;
+        } else if (!concurrencyLimit.tryAcquire()) {
+            decision = Decision.OVERLOADED;
+        }
+        return counted(decision);
+    }
+
+    // A batch of carts takes one place under the concurrency limit, as its lookups run side by side, but is
+    // charged to its client and restaurants per cart. Tokens taken before a rejection are not handed back, as
+    // for a single cart turned away by its restaurant.
+    public Decision admit(String client, int[] restaurantIds) {
+        if (!enabled) {
+            return Decision.ADMITTED;
+        }
+
+        Decision decision = Decision.ADMITTED;
+        if (clientBuckets != null
+                && !clientBuckets.tryAcquire(clientKey(client), Math.max(1, restaurantIds.length))) {
+            decision = Decision.CLIENT_RATE;
+        } else if (restaurantBuckets != null && !acquireRestaurants(restaurantIds)) {
+            decision = Decision.RESTAURANT_RATE;
+        } else if (!concurrencyLimit.tryAcquire()) {
+            decision = Decision.OVERLOADED;
+        }
+        return counted(decision);
+    }
+
+    public void complete(long latencyNanos) {
+        if (enabled) {
+            concurrencyLimit.release(latencyNanos);
+        }
+    }
+
+    // Each restaurant is charged once for all of its carts
+    private boolean acquireRestaurants(int[] restaurantIds) {
+        int[] sorted = restaurantIds.clone();
+        Arrays.sort(sorted);
+        int i = 0;
+        while (i < sorted.length) {
+            int carts = 1;
+            while (i + carts < sorted.length && sorted[i + carts] == sorted[i]) {
+                carts++;
+            }
+            if (!restaurantBuckets.tryAcquire(sorted[i], carts)) {
+                return false;
+            }
+            i += carts;
+        }
+        return true;
+    }
+
+    private Decision counted(Decision decision) {
+        if (decision != Decision.ADMITTED) {
+            offerMetrics.admissionRejected(decision);
+        }
+        return decision;
+    }
+
+    private static int clientKey(String client) {
+        return client == null ? 0 : client.hashCode();
+    }
+
+    private static StripedTokenBuckets buckets(AdmissionProperty property, double rate, double burst) {
+        if (rate <= 0) {
+            return null;
+        }
+        return new StripedTokenBuckets(property.getStripes(), rate, Math.max(1, burst), System::nanoTime);
+    }
+}
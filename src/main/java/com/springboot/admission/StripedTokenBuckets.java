@@ -0,0 +1,71 @@
+package com.springboot.admission;
+
+import java.util.function.LongSupplier;
+
+// Token buckets for an unbounded key space in fixed memory. Keys are hashed onto a fixed number of stripes and
+// keys on the same stripe share its bucket, so a cold key only suffers from a hot one in the rare case that
+// both land on one stripe. Each bucket refills continuously at the rate and holds at most the burst.
+public class StripedTokenBuckets {
+
+    private static final class Bucket {
+        // Guarded by the bucket
+        private double tokens;
+        private long refilledAtNanos;
+    }
+
+    private final Bucket[] buckets;
+    private final int mask;
+    private final double tokensPerNano;
+    private final double burst;
+    private final LongSupplier clock;
+
+    public StripedTokenBuckets(int stripes, double ratePerSecond, double burst, LongSupplier clock) {
+        if (stripes <= 0 || ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid token buckets: stripes=" + stripes + ", rate="
+                    + ratePerSecond + ", burst=" + burst);
+        }
+        int size = Integer.highestOneBit(stripes) == stripes ? stripes : Integer.highestOneBit(stripes) << 1;
+        this.buckets = new Bucket[size];
+        this.mask = size - 1;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+        this.burst = burst;
+        this.clock = clock;
+
+        long now = clock.getAsLong();
+        for (int i = 0; i < size; i++) {
+            Bucket bucket = new Bucket();
+            bucket.tokens = burst;
+            bucket.refilledAtNanos = now;
+            buckets[i] = bucket;
+        }
+    }
+
+    public boolean tryAcquire(int key) {
+        return tryAcquire(key, 1);
+    }
+
+    // Takes permits tokens once at least one is left. A request weighing more than what is left still goes and
+    // leaves the bucket in debt, so heavy requests pay the full rate without needing a burst of their size.
+    public boolean tryAcquire(int key, int permits) {
+        Bucket bucket = buckets[spread(key) & mask];
+        long now = clock.getAsLong();
+        synchronized (bucket) {
+            // Another thread may have refilled with a later reading of the clock
+            if (now > bucket.refilledAtNanos) {
+                bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.refilledAtNanos) * tokensPerNano);
+                bucket.refilledAtNanos = now;
+            }
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= permits;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // Sequential ids would otherwise sit on neighbouring stripes and share nothing but cache lines
+    private static int spread(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,13 @@
+package com.springboot.client;
+
+import com.springboot.controller.SegmentResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncSegmentClient {
+
+    // Completes with the user's segment, or null when the segment service has no segment for the user;
+    // completes exceptionally when the call fails
+    CompletableFuture<SegmentResponse> getSegmentAsync(int userId);
+
+}
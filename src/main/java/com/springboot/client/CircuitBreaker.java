@@ -0,0 +1,131 @@
+package com.springboot.client;
+
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// Count-based circuit breaker. Closed: calls pass and outcomes fill a sliding window; once the failure rate
+// over the window reaches the threshold the circuit opens. Open: calls are rejected until the open duration
+// has passed. Half-open: a few trial calls pass; all must succeed to close, any failure reopens.
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+    private final Consumer<State> transitionListener;
+
+    // Read without locking on the fast path; every change happens under the lock
+    private volatile State state = State.CLOSED;
+
+    // Guarded by this
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAtNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(int failureRateThreshold, int slidingWindowSize, int minimumCalls, long openNanos,
+                          int halfOpenCalls, LongSupplier clock, Consumer<State> transitionListener) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[slidingWindowSize];
+        this.minimumCalls = Math.min(minimumCalls, slidingWindowSize);
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.transitionListener = transitionListener;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    // Returns false if the call must not be made; a permitted call must report onSuccess, onFailure or onSkipped
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        synchronized (this) {
+            if (state == State.OPEN && clock.getAsLong() - openedAtNanos >= openNanos) {
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+                halfOpenPermits--;
+                return true;
+            }
+            return state == State.CLOSED;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                resetWindow();
+                transition(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                open();
+            }
+        }
+    }
+
+    // A permitted call that never reached the service says nothing about its health: no outcome is recorded, and a
+    // half-open trial permit is handed back for another call
+    public synchronized void onSkipped() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits = Math.min(halfOpenPermits + 1, halfOpenCalls);
+        }
+    }
+
+    private void record(boolean failed) {
+        if (windowCount == window.length) {
+            // Overwrite the oldest outcome
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        openedAtNanos = clock.getAsLong();
+        resetWindow();
+        transition(State.OPEN);
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    private void transition(State next) {
+        state = next;
+        transitionListener.accept(next);
+    }
+}
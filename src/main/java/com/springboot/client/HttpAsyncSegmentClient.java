@@ -0,0 +1,122 @@
+package com.springboot.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.property.OfferAsyncProperty;
+import com.springboot.property.SegmentClientProperty;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+// Talks to the segment service from a small set of I/O reactor threads, so waiting on a slow
+// segment service costs a pending future rather than a blocked request thread.
+@Component
+@ConditionalOnProperty(prefix = "offer.async", name = "enabled", havingValue = "true")
+public class HttpAsyncSegmentClient implements AsyncSegmentClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpAsyncSegmentClient.class);
+
+    private final String segmentUrl;
+    private final CloseableHttpAsyncClient httpClient;
+    private final ObjectReader segmentReader;
+
+    @Autowired
+    public HttpAsyncSegmentClient(SegmentClientProperty property, OfferAsyncProperty asyncProperty,
+                                  ObjectMapper objectMapper) throws IOReactorException {
+        this.segmentUrl = property.getBaseUrl() + "/api/v1/user_segment?user_id=";
+        this.segmentReader = objectMapper.readerFor(SegmentResponse.class);
+
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(asyncProperty.getIoThreads())
+                .setConnectTimeout((int) property.getConnectTimeout().toMillis())
+                .setSoTimeout((int) property.getReadTimeout().toMillis())
+                .build();
+
+        // Same pool limits as the blocking client; all calls go to a single host
+        PoolingNHttpClientConnectionManager connectionManager =
+                new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactorConfig));
+        connectionManager.setMaxTotal(property.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(property.getMaxConnections());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) property.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) property.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) property.getConnectionRequestTimeout().toMillis())
+                .build();
+
+        this.httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+        httpClient.start();
+    }
+
+    @Override
+    public CompletableFuture<SegmentResponse> getSegmentAsync(int userId) {
+        CompletableFuture<SegmentResponse> result = new CompletableFuture<>();
+
+        httpClient.execute(new HttpGet(segmentUrl + userId), new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    result.complete(readSegment(userId, response));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                result.completeExceptionally(new CancellationException("Segment request cancelled"));
+            }
+        });
+
+        return result;
+    }
+
+    // The async client has already buffered the (small) body, so this does not block
+    private SegmentResponse readSegment(int userId, HttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        int statusCode = response.getStatusLine().getStatusCode();
+
+        if (statusCode != HttpStatus.SC_OK || entity == null) {
+            logger.debug("Segment service returned status {} for user_id={}", statusCode, userId);
+            return null;
+        }
+
+        try (InputStream is = entity.getContent()) {
+            return segmentReader.readValue(is);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
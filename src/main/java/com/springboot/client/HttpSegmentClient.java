@@ -0,0 +1,87 @@
+package com.springboot.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.property.SegmentClientProperty;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class HttpSegmentClient implements SegmentClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpSegmentClient.class);
+
+    private final String segmentUrl;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final ObjectReader segmentReader;
+
+    @Autowired
+    public HttpSegmentClient(SegmentClientProperty property, ObjectMapper objectMapper) {
+        this.segmentUrl = property.getBaseUrl() + "/api/v1/user_segment?user_id=";
+        this.segmentReader = objectMapper.readerFor(SegmentResponse.class);
+
+        // All calls go to a single host, so the whole pool is available to that route
+        this.connectionManager = new PoolingHttpClientConnectionManager(
+                property.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(property.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(property.getMaxConnections());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) property.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) property.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) property.getConnectionRequestTimeout().toMillis())
+                .build();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(property.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public SegmentResponse getSegment(int userId) throws IOException {
+        HttpGet request = new HttpGet(segmentUrl + userId);
+
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            HttpEntity entity = response.getEntity();
+            int statusCode = response.getStatusLine().getStatusCode();
+
+            if (statusCode != HttpStatus.SC_OK || entity == null) {
+                logger.debug("Segment service returned status {} for user_id={}", statusCode, userId);
+                // Drain the body so the connection can go back to the pool
+                EntityUtils.consume(entity);
+                return null;
+            }
+
+            try (InputStream is = entity.getContent()) {
+                return segmentReader.readValue(is);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+        connectionManager.shutdown();
+    }
+}
@@ -0,0 +1,46 @@
+package com.springboot.client;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Keeps the most recent call latencies and a percentile over them. The percentile is only recomputed
+// every RECOMPUTE_EVERY samples, so reading it is a volatile read.
+final class LatencyWindow {
+
+    private static final int SIZE = 1024;
+    private static final int RECOMPUTE_EVERY = 128;
+
+    private final double percentile;
+    private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+    private final AtomicInteger recorded = new AtomicInteger();
+    private volatile long percentileNanos = -1;
+
+    LatencyWindow(double percentile) {
+        this.percentile = percentile;
+    }
+
+    void record(long nanos) {
+        int count = recorded.getAndIncrement();
+        samples.set(count & (SIZE - 1), nanos);
+        // Recompute early at first so the percentile is usable soon after startup
+        if ((count + 1) % RECOMPUTE_EVERY == 0 || count + 1 == 16) {
+            recompute(Math.min(count + 1, SIZE));
+        }
+    }
+
+    // Returns -1 until enough samples have been recorded
+    long percentileNanos() {
+        return percentileNanos;
+    }
+
+    private void recompute(int filled) {
+        long[] sorted = new long[filled];
+        for (int i = 0; i < filled; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * filled) - 1;
+        percentileNanos = sorted[Math.max(0, Math.min(rank, filled - 1))];
+    }
+}
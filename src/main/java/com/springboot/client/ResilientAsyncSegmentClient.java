@@ -0,0 +1,105 @@
+package com.springboot.client;
+
+import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.property.SegmentResilienceProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// The non-blocking lookup's counterpart to ResilientSegmentClient. It shares that client's circuit breaker, so
+// both paths see the same segment service health, and holds each lookup to the same timeout budget with a timer
+// instead of a waiting thread.
+@Primary
+@Component
+@ConditionalOnProperty(prefix = "offer.async", name = "enabled", havingValue = "true")
+public class ResilientAsyncSegmentClient implements AsyncSegmentClient {
+
+    private final AsyncSegmentClient delegate;
+    private final OfferMetrics offerMetrics;
+    private final CircuitBreaker circuitBreaker;
+    private final long budgetNanos;
+    private final ScheduledThreadPoolExecutor budgetTimer;
+
+    @Autowired
+    public ResilientAsyncSegmentClient(@Qualifier("httpAsyncSegmentClient") AsyncSegmentClient delegate,
+                                       ResilientSegmentClient segmentClient, SegmentResilienceProperty property,
+                                       OfferMetrics offerMetrics) {
+        this.delegate = delegate;
+        this.offerMetrics = offerMetrics;
+        this.circuitBreaker = segmentClient.getCircuitBreaker();
+        this.budgetNanos = property.getTimeoutBudget().toNanos();
+
+        this.budgetTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "segment-budget");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most lookups finish well inside the budget; their cancelled timeouts are dropped instead of piling up
+        budgetTimer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public CompletableFuture<SegmentResponse> getSegmentAsync(int userId) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            offerMetrics.circuitRejected();
+            return failed(new SegmentUnavailableException("Segment service circuit is open"));
+        }
+
+        CompletableFuture<SegmentResponse> result = new CompletableFuture<>();
+        ScheduledFuture<?> budget = budgetTimer.schedule(() -> {
+            // The abandoned call finishes on its own, bounded by the client's read timeout
+            if (result.completeExceptionally(new InterruptedIOException("Segment lookup exceeded its "
+                    + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + " ms budget"))) {
+                offerMetrics.budgetExceeded();
+            }
+        }, budgetNanos, TimeUnit.NANOSECONDS);
+
+        CompletableFuture<SegmentResponse> call;
+        try {
+            call = delegate.getSegmentAsync(userId);
+        } catch (RuntimeException e) {
+            call = failed(e);
+        }
+        call.whenComplete((segment, failure) -> {
+            budget.cancel(false);
+            if (failure == null) {
+                result.complete(segment);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        });
+
+        // Whichever comes first, the call's outcome or the exceeded budget, is what the breaker hears about
+        if (circuitBreaker != null) {
+            result.whenComplete((segment, failure) -> {
+                if (failure == null) {
+                    circuitBreaker.onSuccess();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+            });
+        }
+        return result;
+    }
+
+    private static CompletableFuture<SegmentResponse> failed(Throwable failure) {
+        CompletableFuture<SegmentResponse> result = new CompletableFuture<>();
+        result.completeExceptionally(failure);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        budgetTimer.shutdownNow();
+    }
+}
@@ -0,0 +1,231 @@
+package com.springboot.client;
+
+import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.property.SegmentResilienceProperty;
+import com.springboot.property.VirtualThreadProperty;
+import com.springboot.threads.VirtualThreads;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Wraps the segment service call so a degraded segment service costs apply_offer at most the timeout budget:
+// - a circuit breaker fails fast while the service is failing
+// - each lookup has a total timeout budget, after which the cart is priced without a segment
+// - optionally, a hedged second request is sent once the first is slower than a recent latency percentile
+@Primary
+@Component
+public class ResilientSegmentClient implements SegmentClient {
+
+    private final SegmentClient delegate;
+    private final OfferMetrics offerMetrics;
+    private final long budgetNanos;
+    private final boolean hedgeEnabled;
+    private final long hedgeMinDelayNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyWindow latencies;
+    private final ThreadPoolExecutor callExecutor;
+
+    public ResilientSegmentClient(SegmentClient delegate, SegmentResilienceProperty property, OfferMetrics offerMetrics) {
+        this(delegate, property, new VirtualThreadProperty(), offerMetrics);
+    }
+
+    @Autowired
+    public ResilientSegmentClient(@Qualifier("httpSegmentClient") SegmentClient delegate,
+                                  SegmentResilienceProperty property, VirtualThreadProperty virtualThreadProperty,
+                                  OfferMetrics offerMetrics) {
+        this.delegate = delegate;
+        this.offerMetrics = offerMetrics;
+        this.budgetNanos = property.getTimeoutBudget().toNanos();
+        this.hedgeEnabled = property.isHedgeEnabled();
+        this.hedgeMinDelayNanos = property.getHedgeMinDelay().toNanos();
+        this.latencies = new LatencyWindow(property.getHedgePercentile());
+
+        this.circuitBreaker = property.isCircuitBreakerEnabled()
+                ? new CircuitBreaker(property.getFailureRateThreshold(), property.getSlidingWindowSize(),
+                        property.getMinimumCalls(), property.getOpenDuration().toNanos(), property.getHalfOpenCalls(),
+                        System::nanoTime, offerMetrics::circuitTransition)
+                : null;
+        if (circuitBreaker != null) {
+            offerMetrics.registerCircuitBreaker(circuitBreaker);
+        }
+
+        // Calls run off the caller's thread so the budget holds even while a call is stuck on the socket.
+        // No queue: when every thread is busy the lookup fails fast rather than waiting.
+        // On virtual threads max-concurrent-calls still caps the calls in flight.
+        ThreadFactory threadFactory;
+        if (virtualThreadProperty.isEnabled()) {
+            threadFactory = VirtualThreads.factory("segment-call-");
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "segment-call-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        this.callExecutor = new ThreadPoolExecutor(0, property.getMaxConcurrentCalls(), 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory);
+    }
+
+    @Override
+    public SegmentResponse getSegment(int userId) throws IOException {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            offerMetrics.circuitRejected();
+            throw new SegmentUnavailableException("Segment service circuit is open");
+        }
+
+        long start = System.nanoTime();
+        try {
+            SegmentResponse segment = call(userId, start + budgetNanos);
+            latencies.record(System.nanoTime() - start);
+            if (circuitBreaker != null) {
+                circuitBreaker.onSuccess();
+            }
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            if (circuitBreaker != null) {
+                // Our own executor being full is a traffic spike, not a sign the segment service is unhealthy
+                if (e instanceof CallsSaturatedException) {
+                    circuitBreaker.onSkipped();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private SegmentResponse call(int userId, long deadline) throws IOException {
+        CompletableFuture<SegmentResponse> primary = submit(userId);
+        CompletableFuture<SegmentResponse> result = primary;
+
+        long hedgeDelay = hedgeDelayNanos();
+        if (hedgeDelay >= 0 && hedgeDelay < deadline - System.nanoTime()) {
+            try {
+                return primary.get(hedgeDelay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                offerMetrics.hedgeSent();
+                result = firstSuccessful(primary, submit(userId));
+            } catch (InterruptedException | ExecutionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        try {
+            return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // The abandoned call finishes on its own, bounded by the client's read timeout
+            offerMetrics.budgetExceeded();
+            throw new InterruptedIOException("Segment lookup exceeded its "
+                    + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + " ms budget");
+        } catch (InterruptedException | ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    // Returns -1 when no hedge should be sent
+    private long hedgeDelayNanos() {
+        if (!hedgeEnabled) {
+            return -1;
+        }
+        long percentile = latencies.percentileNanos();
+        return percentile < 0 ? -1 : Math.max(percentile, hedgeMinDelayNanos);
+    }
+
+    private CompletableFuture<SegmentResponse> submit(int userId) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return delegate.getSegment(userId);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, callExecutor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<SegmentResponse> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new CallsSaturatedException());
+            return rejected;
+        }
+    }
+
+    // Completes with whichever call succeeds first, or fails once both have failed
+    private CompletableFuture<SegmentResponse> firstSuccessful(CompletableFuture<SegmentResponse> primary,
+                                                               CompletableFuture<SegmentResponse> hedge) {
+        CompletableFuture<SegmentResponse> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        primary.whenComplete((segment, failure) -> {
+            if (failure == null) {
+                result.complete(segment);
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(failure);
+            }
+        });
+        hedge.whenComplete((segment, failure) -> {
+            if (failure == null) {
+                if (result.complete(segment)) {
+                    offerMetrics.hedgeWon();
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(failure);
+            }
+        });
+        return result;
+    }
+
+    private IOException unwrap(Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            return new InterruptedIOException("Interrupted waiting for segment lookup");
+        }
+        Throwable cause = e.getCause();
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new IOException("Segment lookup failed", cause);
+    }
+
+    // Every call thread is busy, so the lookup was refused before reaching the segment service
+    private static final class CallsSaturatedException extends SegmentUnavailableException {
+        CallsSaturatedException() {
+            super("Too many segment calls in flight");
+        }
+    }
+
+    // Null when the circuit breaker is disabled; shared with the non-blocking client
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker != null ? circuitBreaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callExecutor.shutdownNow();
+    }
+}
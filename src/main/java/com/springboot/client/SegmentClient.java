@@ -0,0 +1,12 @@
+package com.springboot.client;
+
+import com.springboot.controller.SegmentResponse;
+
+import java.io.IOException;
+
+public interface SegmentClient {
+
+    // Returns the user's segment, or null when the segment service has no segment for the user
+    SegmentResponse getSegment(int userId) throws IOException;
+
+}
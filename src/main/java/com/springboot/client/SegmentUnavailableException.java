@@ -0,0 +1,11 @@
+package com.springboot.client;
+
+import java.io.IOException;
+
+// Thrown without calling the segment service at all, e.g. while its circuit is open
+public class SegmentUnavailableException extends IOException {
+
+    public SegmentUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -7,4 +7,6 @@ public class ApplyOfferRequest {
     private int cart_value;
     private int restaurant_id;
     private int user_id;
+    // Optional; only offers priced per item need it
+    private int item_count;
 }
@@ -10,6 +10,10 @@ public class ApplyOfferResponse {
     @JsonProperty("cart_value")
     private int cart_value;
 
+    // Version of the offer catalog the cart was priced against
+    @JsonProperty("catalog_version")
+    private long catalog_version;
+
     public ApplyOfferResponse() {
     }
 
@@ -17,6 +21,11 @@ public class ApplyOfferResponse {
         this.cart_value = cart_value;
     }
 
+    public ApplyOfferResponse(int cart_value, long catalog_version) {
+        this.cart_value = cart_value;
+        this.catalog_version = catalog_version;
+    }
+
     public int getCart_value() {
         return cart_value;
     }
@@ -25,10 +34,19 @@ public class ApplyOfferResponse {
         this.cart_value = cart_value;
     }
 
+    public long getCatalog_version() {
+        return catalog_version;
+    }
+
+    public void setCatalog_version(long catalog_version) {
+        this.catalog_version = catalog_version;
+    }
+
     @Override
     public String toString() {
         return "ApplyOfferResponse{" +
                 "cart_value=" + cart_value +
+                ", catalog_version=" + catalog_version +
                 '}';
     }
 }
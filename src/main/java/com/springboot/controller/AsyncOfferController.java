@@ -0,0 +1,66 @@
+package com.springboot.controller;
+
+import com.springboot.admission.AdmissionControl;
+import com.springboot.service.AsyncOfferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.CompletableFuture;
+
+// Returning a CompletableFuture hands the request to servlet async processing: the request thread
+// is released while the segment lookup is in flight and the response is written once it completes.
+@RestController
+@ConditionalOnProperty(prefix = "offer.async", name = "enabled", havingValue = "true")
+public class AsyncOfferController {
+
+	private static final Logger logger = LoggerFactory.getLogger(AsyncOfferController.class);
+	private final AsyncOfferService asyncOfferService;
+	private final AdmissionControl admissionControl;
+
+	@Autowired
+	public AsyncOfferController(AsyncOfferService asyncOfferService, AdmissionControl admissionControl) {
+		this.asyncOfferService = asyncOfferService;
+		this.admissionControl = admissionControl;
+	}
+
+	@PostMapping(path = "/api/v1/cart/apply_offer/async")
+	public CompletableFuture<ResponseEntity<?>> applyOffer(@RequestBody ApplyOfferRequest applyOfferRequest,
+															HttpServletRequest request) {
+		logger.debug("Received async apply offer request: {}", applyOfferRequest);
+
+		AdmissionControl.Decision decision = admissionControl.admit(admissionControl.clientOf(request),
+				applyOfferRequest.getRestaurant_id());
+		if (decision != AdmissionControl.Decision.ADMITTED) {
+			return CompletableFuture.completedFuture(AutowiredController.rejected(decision));
+		}
+
+		// The request holds its place under the concurrency limit until the response is ready, not just
+		// until this thread lets go of it
+		long start = System.nanoTime();
+		CompletableFuture<ApplyOfferResponse> result = null;
+		try {
+			result = asyncOfferService.applyOffer(applyOfferRequest);
+			return result
+					.whenComplete((response, failure) -> admissionControl.complete(System.nanoTime() - start))
+					.<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+					.exceptionally(e -> {
+						logger.error("Error applying offer", e);
+						return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+								.body(new ApplyOfferResponse(applyOfferRequest.getCart_value()));
+					});
+		} catch (IllegalArgumentException e) {
+			logger.error("Invalid apply offer request: {}", e.getMessage());
+			return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new ApiResponse(e.getMessage())));
+		} finally {
+			if (result == null) {
+				admissionControl.complete(System.nanoTime() - start);
+			}
+		}
+	}
+}
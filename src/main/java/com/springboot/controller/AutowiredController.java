@@ -1,27 +1,49 @@
 package com.springboot.controller;
 
+import com.springboot.admission.AdmissionControl;
+import com.springboot.service.OfferBatchService;
+import com.springboot.service.OfferIngestService;
+import com.springboot.service.OfferListingService;
 import com.springboot.service.OfferService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
 @RestController
 public class AutowiredController {
 
 	private static final Logger logger = LoggerFactory.getLogger(AutowiredController.class);
+	private static final ApiResponse RATE_LIMITED = new ApiResponse("Too many requests");
+	private static final ApiResponse OVERLOADED = new ApiResponse("Service overloaded");
 	private final OfferService offerService;
+	private final OfferBatchService offerBatchService;
+	private final OfferIngestService offerIngestService;
+	private final OfferListingService offerListingService;
+	private final AdmissionControl admissionControl;
 
 	@Autowired
-	public AutowiredController(OfferService offerService) {
+	public AutowiredController(OfferService offerService, OfferBatchService offerBatchService,
+							   OfferIngestService offerIngestService, OfferListingService offerListingService,
+							   AdmissionControl admissionControl) {
 		this.offerService = offerService;
+		this.offerBatchService = offerBatchService;
+		this.offerIngestService = offerIngestService;
+		this.offerListingService = offerListingService;
+		this.admissionControl = admissionControl;
 	}
 
 	@PostMapping(path = "/api/v1/offer")
 	public ResponseEntity<?> addOffer(@RequestBody OfferRequest offerRequest) {
-		logger.info("Received add offer request: {}", offerRequest);
+		logger.debug("Received add offer request: {}", offerRequest);
 
 		try {
 			boolean success = offerService.addOffer(offerRequest);
@@ -36,10 +58,68 @@ public class AutowiredController {
 		}
 	}
 
+	// Body is read incrementally from the request stream rather than bound with @RequestBody
+	@PostMapping(path = "/api/v1/offer/bulk", consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<?> addOffers(HttpServletRequest request,
+									   @RequestParam(name = "mode", defaultValue = "append") String mode) {
+		logger.info("Received bulk offer request in {} mode", mode);
+
+		try {
+			BulkOfferResponse response = offerIngestService.ingest(request.getInputStream(), mode);
+			// Appended lines stay in even when others are rejected, so only a refused replace is a 400
+			if (response.getRejected() > 0 && OfferIngestService.MODE_REPLACE.equals(response.getMode())) {
+				return ResponseEntity.badRequest().body(response);
+			}
+			return ResponseEntity.ok(response);
+		} catch (IllegalArgumentException e) {
+			logger.error("Invalid bulk offer request: {}", e.getMessage());
+			return ResponseEntity.badRequest().body(new ApiResponse(e.getMessage()));
+		} catch (Exception e) {
+			logger.error("Error ingesting offers", e);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body(new ApiResponse("Internal server error"));
+		}
+	}
+
+	// Written straight to the response stream, which goes out chunked; next_cursor is null on the last page
+	@GetMapping(path = "/api/v1/offers")
+	public ResponseEntity<?> listOffers(@RequestParam(name = "restaurant_id", required = false) Integer restaurantId,
+										@RequestParam(name = "segment", required = false) String segment,
+										@RequestParam(name = "cursor", required = false) String cursor,
+										@RequestParam(name = "limit", defaultValue = "" + OfferListingService.DEFAULT_LIMIT) int limit,
+										HttpServletResponse response) {
+		logger.debug("Received list offers request: restaurant_id={}, segment={}, limit={}", restaurantId, segment, limit);
+
+		try {
+			response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+			offerListingService.list(restaurantId, segment, cursor, limit, response.getOutputStream());
+			return null;
+		} catch (IllegalArgumentException e) {
+			logger.error("Invalid list offers request: {}", e.getMessage());
+			return ResponseEntity.badRequest().body(new ApiResponse(e.getMessage()));
+		} catch (Exception e) {
+			if (response.isCommitted()) {
+				// Part of the page is already out; the client sees a truncated body
+				logger.warn("Offer listing failed after the response was committed: {}", e.getMessage());
+				return null;
+			}
+			logger.error("Error listing offers", e);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body(new ApiResponse("Internal server error"));
+		}
+	}
+
 	@PostMapping(path = "/api/v1/cart/apply_offer")
-	public ResponseEntity<?> applyOffer(@RequestBody ApplyOfferRequest applyOfferRequest) {
-		logger.info("Received apply offer request: {}", applyOfferRequest);
+	public ResponseEntity<?> applyOffer(@RequestBody ApplyOfferRequest applyOfferRequest, HttpServletRequest request) {
+		logger.debug("Received apply offer request: {}", applyOfferRequest);
+
+		AdmissionControl.Decision decision = admissionControl.admit(admissionControl.clientOf(request),
+				applyOfferRequest.getRestaurant_id());
+		if (decision != AdmissionControl.Decision.ADMITTED) {
+			return rejected(decision);
+		}
 
+		long start = System.nanoTime();
 		try {
 			ApplyOfferResponse response = offerService.applyOffer(applyOfferRequest);
 			return ResponseEntity.ok(response);
@@ -50,6 +130,52 @@ public class AutowiredController {
 			logger.error("Error applying offer", e);
 			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
 					.body(new ApplyOfferResponse(applyOfferRequest.getCart_value()));
+		} finally {
+			admissionControl.complete(System.nanoTime() - start);
+		}
+	}
+
+	// Counted in offer.admission.rejected; nothing else is done for a request that is turned away
+	static ResponseEntity<?> rejected(AdmissionControl.Decision decision) {
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, "1")
+				.body(decision == AdmissionControl.Decision.OVERLOADED ? OVERLOADED : RATE_LIMITED);
+	}
+
+	@PostMapping(path = "/api/v1/cart/apply_offer/batch")
+	public ResponseEntity<?> applyOffers(@RequestBody List<ApplyOfferRequest> applyOfferRequests,
+										 HttpServletRequest request) {
+		logger.debug("Received apply offer batch request of {} carts",
+				applyOfferRequests == null ? 0 : applyOfferRequests.size());
+
+		if (applyOfferRequests != null) {
+			int[] restaurantIds = new int[applyOfferRequests.size()];
+			for (int i = 0; i < restaurantIds.length; i++) {
+				ApplyOfferRequest cart = applyOfferRequests.get(i);
+				restaurantIds[i] = cart == null ? 0 : cart.getRestaurant_id();
+			}
+			AdmissionControl.Decision decision = admissionControl.admit(admissionControl.clientOf(request),
+					restaurantIds);
+			if (decision != AdmissionControl.Decision.ADMITTED) {
+				return rejected(decision);
+			}
+		}
+
+		long start = System.nanoTime();
+		try {
+			List<ApplyOfferResponse> responses = offerBatchService.applyOffers(applyOfferRequests);
+			return ResponseEntity.ok(responses);
+		} catch (IllegalArgumentException e) {
+			logger.error("Invalid apply offer batch request: {}", e.getMessage());
+			return ResponseEntity.badRequest().body(new ApiResponse(e.getMessage()));
+		} catch (Exception e) {
+			logger.error("Error applying offer batch", e);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body(new ApiResponse("Internal server error"));
+		} finally {
+			if (applyOfferRequests != null) {
+				admissionControl.complete(System.nanoTime() - start);
+			}
 		}
 	}
 
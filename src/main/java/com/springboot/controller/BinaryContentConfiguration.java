@@ -0,0 +1,36 @@
+package com.springboot.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// Lets callers exchange the same request and response objects as Smile (application/x-jackson-smile) or
+// CBOR (application/cbor) instead of JSON text, chosen through Content-Type and Accept. JSON stays first
+// among the converters, so it remains the default. Both mappers are configured by the builder Spring Boot
+// configures for JSON, so field names and date handling are identical in every encoding.
+@Configuration
+public class BinaryContentConfiguration {
+
+    // Replace the converters Spring MVC would otherwise build from an unconfigured mapper
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(configured(builder, new ObjectMapper(new SmileFactory())));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(configured(builder, new ObjectMapper(new CBORFactory())));
+    }
+
+    // The builder is a shared singleton, so its settings are applied to a mapper of our own rather than changed;
+    // setting a factory on it would hand every later build() the binary format
+    private static ObjectMapper configured(Jackson2ObjectMapperBuilder builder, ObjectMapper mapper) {
+        builder.configure(mapper);
+        return mapper;
+    }
+}
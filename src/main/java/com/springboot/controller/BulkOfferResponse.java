@@ -0,0 +1,44 @@
+package com.springboot.controller;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkOfferResponse {
+
+    @Data
+    public static class RecordError {
+        // 1-based position of the offer in the stream
+        @JsonProperty("index")
+        private long index;
+        @JsonProperty("line")
+        private int line;
+        @JsonProperty("error")
+        private String error;
+
+        public RecordError() {
+        }
+
+        public RecordError(long index, int line, String error) {
+            this.index = index;
+            this.line = line;
+            this.error = error;
+        }
+    }
+
+    @JsonProperty("response_msg")
+    private String responseMsg;
+    @JsonProperty("mode")
+    private String mode;
+    @JsonProperty("received")
+    private long received;
+    @JsonProperty("accepted")
+    private long accepted;
+    @JsonProperty("rejected")
+    private long rejected;
+    @JsonProperty("errors")
+    private List<RecordError> errors = new ArrayList<>();
+}
@@ -0,0 +1,28 @@
+package com.springboot.controller;
+
+import com.springboot.metrics.HotKeys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// Admin view of the hottest restaurants, users and segments in apply_offer traffic
+@RestController
+public class HotKeyController {
+
+	private final HotKeys hotKeys;
+
+	@Autowired
+	public HotKeyController(HotKeys hotKeys) {
+		this.hotKeys = hotKeys;
+	}
+
+	@GetMapping(path = "/internal/hot-keys")
+	public ResponseEntity<?> hotKeys(@RequestParam(name = "limit", defaultValue = "20") int limit) {
+		if (!hotKeys.isEnabled()) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(hotKeys.report(Math.max(0, limit)));
+	}
+}
@@ -0,0 +1,52 @@
+package com.springboot.controller;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class HotKeyResponse {
+
+    @Data
+    public static class HotKey {
+        @JsonProperty("key")
+        private Object key;
+        // Decayed count, at most slightly too high
+        @JsonProperty("estimate")
+        private long estimate;
+        // Fraction of the dimension's decayed total
+        @JsonProperty("share")
+        private double share;
+
+        public HotKey() {
+        }
+
+        public HotKey(Object key, long estimate, double share) {
+            this.key = key;
+            this.estimate = estimate;
+            this.share = share;
+        }
+    }
+
+    @Data
+    public static class Dimension {
+        @JsonProperty("total")
+        private long total;
+        @JsonProperty("top")
+        private List<HotKey> top = new ArrayList<>();
+    }
+
+    @JsonProperty("decay_interval_seconds")
+    private long decayIntervalSeconds;
+
+    @JsonProperty("restaurants")
+    private Dimension restaurants;
+
+    @JsonProperty("users")
+    private Dimension users;
+
+    @JsonProperty("segments")
+    private Dimension segments;
+}
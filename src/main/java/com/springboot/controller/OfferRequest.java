@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.util.List;
 @Data
 @AllArgsConstructor
@@ -18,4 +19,37 @@ public class OfferRequest {
     private int offerValue;
     @JsonProperty("customer_segment")
     private List<String> customerSegment;
+    // Only used by the offer types that need them, 0 otherwise
+    @JsonProperty("max_discount")
+    private int maxDiscount;
+    @JsonProperty("buy_quantity")
+    private int buyQuantity;
+    @JsonProperty("pay_quantity")
+    private int payQuantity;
+    // Where several offers cover the same restaurant and segment, higher priority is preferred
+    @JsonProperty("priority")
+    private int priority;
+    // EXCLUSIVE (the default when absent) or STACKABLE
+    @JsonProperty("stacking")
+    private String stacking;
+    // Optional validity window: the offer applies from valid_from until just before valid_until
+    @JsonProperty("valid_from")
+    private Instant validFrom;
+    @JsonProperty("valid_until")
+    private Instant validUntil;
+
+    public OfferRequest(int restaurantId, String offerType, int offerValue, List<String> customerSegment) {
+        this(restaurantId, offerType, offerValue, customerSegment, 0, 0, 0);
+    }
+
+    public OfferRequest(int restaurantId, String offerType, int offerValue, List<String> customerSegment,
+                        int maxDiscount, int buyQuantity, int payQuantity) {
+        this(restaurantId, offerType, offerValue, customerSegment, maxDiscount, buyQuantity, payQuantity, 0, null);
+    }
+
+    public OfferRequest(int restaurantId, String offerType, int offerValue, List<String> customerSegment,
+                        int maxDiscount, int buyQuantity, int payQuantity, int priority, String stacking) {
+        this(restaurantId, offerType, offerValue, customerSegment, maxDiscount, buyQuantity, payQuantity, priority,
+                stacking, null, null);
+    }
 }
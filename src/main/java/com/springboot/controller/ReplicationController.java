@@ -0,0 +1,39 @@
+package com.springboot.controller;
+
+import com.springboot.replication.CatalogSnapshot;
+import com.springboot.replication.ChangeBatch;
+import com.springboot.replication.ChangeLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// Served by the leader to its peers; see ReplicationFollower
+@RestController
+@ConditionalOnProperty(prefix = "replication", name = "role", havingValue = "leader")
+public class ReplicationController {
+
+	private static final long MAX_WAIT_MILLIS = 60_000;
+
+	private final ChangeLog changeLog;
+
+	@Autowired
+	public ReplicationController(ChangeLog changeLog) {
+		this.changeLog = changeLog;
+	}
+
+	@GetMapping(path = "/internal/replication/log")
+	public ChangeBatch readLog(@RequestParam(name = "log_id", defaultValue = "") String logId,
+							   @RequestParam(name = "from") long from,
+							   @RequestParam(name = "max", defaultValue = "1000") int max,
+							   @RequestParam(name = "wait_ms", defaultValue = "0") long waitMillis)
+			throws InterruptedException {
+		return changeLog.read(logId, from, Math.max(1, max), Math.min(Math.max(0, waitMillis), MAX_WAIT_MILLIS));
+	}
+
+	@GetMapping(path = "/internal/replication/snapshot")
+	public CatalogSnapshot snapshot() {
+		return changeLog.snapshot();
+	}
+}
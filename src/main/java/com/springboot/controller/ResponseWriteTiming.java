@@ -0,0 +1,68 @@
+package com.springboot.controller;
+
+import com.springboot.metrics.OfferMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// Times the write stage of apply_offer. The advice runs just before the chosen message converter serializes
+// the body, and the interceptor's afterCompletion just after it has been written (on the async dispatch for
+// async requests), so the stage covers serialization and the write in whichever encoding was negotiated.
+@ControllerAdvice
+public class ResponseWriteTiming implements ResponseBodyAdvice<Object>, HandlerInterceptor, WebMvcConfigurer {
+
+	private static final String APPLY_PATH = "/api/v1/cart/apply_offer";
+	private static final String WRITE_STARTED = ResponseWriteTiming.class.getName() + ".writeStarted";
+
+	private final OfferMetrics offerMetrics;
+
+	@Autowired
+	public ResponseWriteTiming(OfferMetrics offerMetrics) {
+		this.offerMetrics = offerMetrics;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(this).addPathPatterns(APPLY_PATH, APPLY_PATH + "/**");
+	}
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+								  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+								  ServerHttpRequest request, ServerHttpResponse response) {
+		if (request instanceof ServletServerHttpRequest) {
+			HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+			if (servletRequest.getRequestURI().startsWith(APPLY_PATH)) {
+				servletRequest.setAttribute(WRITE_STARTED, System.nanoTime());
+			}
+		}
+		return body;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+								Exception ex) {
+		Object started = request.getAttribute(WRITE_STARTED);
+		if (started != null) {
+			offerMetrics.recordWrite(System.nanoTime() - (Long) started);
+			request.removeAttribute(WRITE_STARTED);
+		}
+	}
+}
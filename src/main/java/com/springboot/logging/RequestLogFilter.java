@@ -0,0 +1,132 @@
+package com.springboot.logging;
+
+import com.springboot.property.RequestLogProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Writes one summary line per request instead of per-stage INFO lines. Errors, slow requests and traced
+// requests are always logged; everything else is sampled at the rate configured for its path.
+@Component
+public class RequestLogFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestLogFilter.class);
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final boolean enabled;
+    private final double defaultSampleRate;
+    private final Map<String, Double> sampleRates;
+    private final long slowNanos;
+    private final String traceHeader;
+
+    @Autowired
+    public RequestLogFilter(RequestLogProperty property) {
+        this.enabled = property.isEnabled();
+        this.defaultSampleRate = property.getDefaultSampleRate();
+        this.sampleRates = new HashMap<>(property.getSampleRates());
+        this.slowNanos = property.getSlowThreshold().toNanos();
+        this.traceHeader = property.getTraceHeader();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean traced = "true".equalsIgnoreCase(request.getHeader(traceHeader));
+        if (traced) {
+            MDC.put(RequestTraceTurboFilter.MDC_KEY, "on");
+        }
+
+        Throwable failure = null;
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (traced) {
+                MDC.remove(RequestTraceTurboFilter.MDC_KEY);
+            }
+            if (failure == null && request.isAsyncStarted()) {
+                // The response is written later, so log once the async request completes
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        log(request, response.getStatus(), start, traced, false);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        log(request, HttpServletResponse.SC_SERVICE_UNAVAILABLE, start, traced, true);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        log(request, response.getStatus(), start, traced, true);
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                log(request, response.getStatus(), start, traced, failure != null);
+            }
+        }
+    }
+
+    private void log(HttpServletRequest request, int status, long start, boolean traced, boolean failed) {
+        long duration = System.nanoTime() - start;
+        String path = request.getRequestURI();
+        String reason;
+
+        // Requests shed with 429 are counted by offer.admission.rejected; logging each one would add work
+        // exactly while the service is overloaded, so they are only sampled like successful ones
+        if (failed || (status >= 400 && status != TOO_MANY_REQUESTS)) {
+            reason = "error";
+        } else if (duration >= slowNanos) {
+            reason = "slow";
+        } else if (traced) {
+            reason = "traced";
+        } else if (sampled(path)) {
+            reason = "sampled";
+        } else {
+            return;
+        }
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(duration);
+        if ("sampled".equals(reason) || "traced".equals(reason)) {
+            logger.info("method={} path={} status={} duration_us={} log_reason={}",
+                    request.getMethod(), path, status, micros, reason);
+        } else {
+            logger.warn("method={} path={} status={} duration_us={} log_reason={}",
+                    request.getMethod(), path, status, micros, reason);
+        }
+    }
+
+    private boolean sampled(String path) {
+        Double configured = sampleRates.get(path);
+        double rate = configured != null ? configured : defaultSampleRate;
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+}
@@ -0,0 +1,30 @@
+package com.springboot.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+// Enables every level for the application's loggers on a thread handling a traced request,
+// so DEBUG detail can be had for one request without turning it on for all of them.
+public class RequestTraceTurboFilter extends TurboFilter {
+
+    public static final String MDC_KEY = "trace";
+
+    private String loggerPrefix = "com.springboot";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        if (MDC.get(MDC_KEY) != null && logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.ACCEPT;
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+}
@@ -0,0 +1,221 @@
+package com.springboot.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Finds the most frequent int keys of a stream in fixed memory. A count-min sketch estimates how often each key
+// was seen, never too low and too high by about total / width at most, and a small candidate set keeps the
+// keys with the highest estimates. decay() halves every count, so the ranking follows recent traffic.
+// The sketch is kept in several stripes, each thread counting into the one its id picks and reads summing them
+// all, so threads counting the same hot key do not all contend on the same few counters.
+public final class HeavyHitters {
+
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646C,
+            0xFD7046C5, 0xB55A4F09};
+
+    public static final class Entry {
+
+        private final Object key;
+        private final long estimate;
+
+        Entry(Object key, long estimate) {
+            this.key = key;
+            this.estimate = estimate;
+        }
+
+        // The key's name where one was given, the int key otherwise
+        public Object getKey() {
+            return key;
+        }
+
+        public long getEstimate() {
+            return estimate;
+        }
+    }
+
+    private static final class Candidate {
+
+        private final int key;
+        private final String name;
+
+        Candidate(int key, String name) {
+            this.key = key;
+            this.name = name;
+        }
+    }
+
+    private final int width;
+    private final int depth;
+    private final int capacity;
+    private final int stripes;
+    // Stripe after stripe, each holding depth rows of width counters
+    private final AtomicLongArray counts;
+    private final LongAdder total = new LongAdder();
+
+    // Copy-on-write, so counting a key that is already a candidate takes no lock
+    private volatile Candidate[] candidates = new Candidate[0];
+    // Lowest candidate estimate when the set last changed; keys at or below it cannot get in
+    private volatile long floor;
+
+    public HeavyHitters(int width, int depth, int capacity) {
+        this(width, depth, capacity, 1);
+    }
+
+    public HeavyHitters(int width, int depth, int capacity, int stripes) {
+        if (width <= 0 || depth <= 0 || depth > SEEDS.length || capacity <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("Invalid heavy hitter sizing: width=" + width + ", depth=" + depth
+                    + ", capacity=" + capacity + ", stripes=" + stripes);
+        }
+        this.width = roundUpToPowerOfTwo(width);
+        this.depth = depth;
+        this.capacity = capacity;
+        this.stripes = roundUpToPowerOfTwo(stripes);
+        this.counts = new AtomicLongArray(this.width * depth * this.stripes);
+    }
+
+    public void add(int key) {
+        add(key, null);
+    }
+
+    // Keys with a name, such as hashed strings, are reported by that name
+    public void add(int key, String name) {
+        int stripe = stripe();
+        long local = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            local = Math.min(local, counts.incrementAndGet(stripe + cell(row, key)));
+        }
+        total.increment();
+
+        // This stripe's count scaled up stands in for the key's, so the stripes are only summed for keys that may
+        // get in. A key mostly counted by other threads gets its chance when they count it.
+        long lowest = floor;
+        boolean full = candidates.length >= capacity;
+        if ((!full || local * stripes > lowest) && !isCandidate(key)) {
+            long estimate = stripes == 1 ? local : estimate(key, full ? lowest : -1);
+            if (!full || estimate > lowest) {
+                admit(key, name, estimate);
+            }
+        }
+    }
+
+    public long estimate(int key) {
+        return estimate(key, -1);
+    }
+
+    // Stops summing once a row shows the estimate is at or below floor, returning that row's count
+    private long estimate(int key, long floor) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth && estimate > floor; row++) {
+            int cell = cell(row, key);
+            long count = 0;
+            for (int stripe = 0; stripe < counts.length(); stripe += width * depth) {
+                count += counts.get(stripe + cell);
+            }
+            estimate = Math.min(estimate, count);
+        }
+        return estimate;
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    // Highest estimates first
+    public List<Entry> top(int limit) {
+        Candidate[] current = candidates;
+        List<Entry> entries = new ArrayList<>(current.length);
+        for (Candidate candidate : current) {
+            long estimate = estimate(candidate.key);
+            if (estimate > 0) {
+                entries.add(new Entry(candidate.name != null ? candidate.name : candidate.key, estimate));
+            }
+        }
+        entries.sort((a, b) -> Long.compare(b.getEstimate(), a.getEstimate()));
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, Math.max(0, limit))) : entries;
+    }
+
+    // Increments racing with the halving may be lost, which only makes the estimates a little lower
+    public void decay() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.updateAndGet(i, count -> count >>> 1);
+        }
+        long seen = total.sumThenReset();
+        total.add(seen >>> 1);
+        synchronized (this) {
+            floor = floor >>> 1;
+        }
+    }
+
+    private boolean isCandidate(int key) {
+        for (Candidate candidate : candidates) {
+            if (candidate.key == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void admit(int key, String name, long estimate) {
+        Candidate[] current = candidates;
+        for (Candidate candidate : current) {
+            if (candidate.key == key) {
+                return;
+            }
+        }
+
+        Candidate[] next;
+        if (current.length < capacity) {
+            next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = new Candidate(key, name);
+        } else {
+            // Estimates only grow between decays, so the weakest candidate is found by asking the sketch again
+            int weakest = 0;
+            long weakestEstimate = Long.MAX_VALUE;
+            for (int i = 0; i < current.length; i++) {
+                long candidateEstimate = estimate(current[i].key);
+                if (candidateEstimate < weakestEstimate) {
+                    weakest = i;
+                    weakestEstimate = candidateEstimate;
+                }
+            }
+            if (estimate <= weakestEstimate) {
+                floor = weakestEstimate;
+                return;
+            }
+            next = current.clone();
+            next[weakest] = new Candidate(key, name);
+        }
+
+        candidates = next;
+        if (next.length == capacity) {
+            long lowest = Long.MAX_VALUE;
+            for (Candidate candidate : next) {
+                lowest = Math.min(lowest, estimate(candidate.key));
+            }
+            floor = lowest;
+        }
+    }
+
+    // Offset of the calling thread's stripe. Pool threads have consecutive ids, which the mask spreads evenly.
+    private int stripe() {
+        return ((int) Thread.currentThread().getId() & (stripes - 1)) * width * depth;
+    }
+
+    // A differently seeded hash per row, so keys colliding in one row rarely collide in the others
+    private int cell(int row, int key) {
+        int hash = key ^ SEEDS[row];
+        hash ^= hash >>> 16;
+        hash *= 0x7FEB352D;
+        hash ^= hash >>> 15;
+        hash *= 0x846CA68B;
+        hash ^= hash >>> 16;
+        return row * width + (hash & (width - 1));
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        return Integer.highestOneBit(value) == value ? value : Integer.highestOneBit(value) << 1;
+    }
+}
@@ -0,0 +1,111 @@
+package com.springboot.metrics;
+
+import com.springboot.controller.HotKeyResponse;
+import com.springboot.property.HotKeyProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Which restaurants, users and segments dominate apply_offer traffic right now, for sizing caches, spotting
+// abusive clients and pre-warming nodes. Each dimension uses a fixed amount of memory however many keys pass
+// through (up to one megabyte with the default sizing), and counts are halved every decay interval.
+@Component
+public class HotKeys {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotKeys.class);
+
+    private final HotKeyProperty property;
+    private final HeavyHitters restaurants;
+    private final HeavyHitters users;
+    private final HeavyHitters segments;
+    private ScheduledExecutorService decayer;
+
+    @Autowired
+    public HotKeys(HotKeyProperty property) {
+        this.property = property;
+        this.restaurants = newTracker();
+        this.users = newTracker();
+        this.segments = newTracker();
+    }
+
+    public boolean isEnabled() {
+        return property.isEnabled();
+    }
+
+    // Called once per priced cart; allocates nothing unless a key enters the top
+    public void record(int restaurantId, int userId, String segment) {
+        restaurants.add(restaurantId);
+        users.add(userId);
+        if (segment != null) {
+            segments.add(segment.hashCode(), segment);
+        }
+    }
+
+    public void decay() {
+        restaurants.decay();
+        users.decay();
+        segments.decay();
+    }
+
+    public HotKeyResponse report(int limit) {
+        HotKeyResponse response = new HotKeyResponse();
+        response.setDecayIntervalSeconds(property.getDecayInterval().getSeconds());
+        response.setRestaurants(dimension(restaurants, limit));
+        response.setUsers(dimension(users, limit));
+        response.setSegments(dimension(segments, limit));
+        return response;
+    }
+
+    @PostConstruct
+    public void start() {
+        long intervalMillis = property.getDecayInterval().toMillis();
+        if (!property.isEnabled() || intervalMillis <= 0) {
+            return;
+        }
+        decayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-key-decay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        decayer.scheduleAtFixedRate(this::decayQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (decayer != null) {
+            decayer.shutdownNow();
+        }
+    }
+
+    private void decayQuietly() {
+        try {
+            decay();
+        } catch (RuntimeException e) {
+            // A failed run must not cancel the schedule
+            logger.error("Failed to decay hot key counts", e);
+        }
+    }
+
+    private HeavyHitters newTracker() {
+        return new HeavyHitters(property.getSketchWidth(), property.getSketchDepth(), property.getTopK(),
+                property.getStripes());
+    }
+
+    private static HotKeyResponse.Dimension dimension(HeavyHitters tracker, int limit) {
+        HotKeyResponse.Dimension dimension = new HotKeyResponse.Dimension();
+        long total = tracker.getTotal();
+        dimension.setTotal(total);
+        for (HeavyHitters.Entry entry : tracker.top(limit)) {
+            double share = total == 0 ? 0 : Math.min(1.0, (double) entry.getEstimate() / total);
+            dimension.getTop().add(new HotKeyResponse.HotKey(entry.getKey(), entry.getEstimate(), share));
+        }
+        return dimension;
+    }
+}
@@ -0,0 +1,244 @@
+package com.springboot.metrics;
+
+import com.springboot.admission.AdaptiveConcurrencyLimit;
+import com.springboot.admission.AdmissionControl;
+import com.springboot.client.CircuitBreaker;
+import com.springboot.repository.OfferRepository;
+import com.springboot.service.SegmentCache;
+import com.springboot.service.SegmentSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class OfferMetrics {
+
+    private static final String STAGE_TIMER = "offer.apply.stage";
+
+    private final MeterRegistry registry;
+
+    private final Timer applyTimer;
+    private final Timer segmentTimer;
+    private final Timer repositoryTimer;
+    private final Timer discountTimer;
+    private final Timer writeTimer;
+
+    private final Counter segmentErrors;
+    private final Counter segmentTimeouts;
+    private final Counter segmentRejected;
+    private final Counter segmentCancelled;
+    private final Counter segmentNotFound;
+    private final Counter offerMisses;
+    private final Counter circuitRejected;
+    private final Counter budgetExceeded;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    // One hit counter per offer type, created on first use
+    private final ConcurrentHashMap<String, Counter> offerHits = new ConcurrentHashMap<>();
+    private final Map<AdmissionControl.Decision, Counter> admissionRejections =
+            new EnumMap<>(AdmissionControl.Decision.class);
+
+    @Autowired
+    public OfferMetrics(MeterRegistry registry, OfferRepository offerRepository, SegmentCache segmentCache) {
+        this.registry = registry;
+
+        this.applyTimer = stageTimer("apply");
+        this.segmentTimer = stageTimer("segment");
+        this.repositoryTimer = stageTimer("repository");
+        this.discountTimer = stageTimer("discount");
+        this.writeTimer = stageTimer("write");
+
+        this.segmentErrors = Counter.builder("segment.lookup.failures")
+                .description("Segment service calls that failed")
+                .tag("reason", "error")
+                .register(registry);
+        this.segmentTimeouts = Counter.builder("segment.lookup.failures")
+                .description("Segment service calls that failed")
+                .tag("reason", "timeout")
+                .register(registry);
+        this.segmentRejected = Counter.builder("segment.lookup.failures")
+                .description("Segment service calls that failed")
+                .tag("reason", "rejected")
+                .register(registry);
+        this.segmentCancelled = Counter.builder("segment.lookup.failures")
+                .description("Segment service calls that failed")
+                .tag("reason", "cancelled")
+                .register(registry);
+        this.segmentNotFound = Counter.builder("segment.lookup.not_found")
+                .description("Users the segment service returned no segment for")
+                .register(registry);
+        this.offerMisses = Counter.builder("offer.lookup")
+                .tag("result", "miss")
+                .tag("offer_type", "none")
+                .register(registry);
+
+        this.circuitRejected = Counter.builder("segment.circuit.rejected")
+                .description("Segment lookups failed fast because the circuit was open")
+                .register(registry);
+        this.budgetExceeded = Counter.builder("segment.budget.exceeded")
+                .description("Segment lookups abandoned after exceeding their timeout budget")
+                .register(registry);
+        this.hedgesSent = Counter.builder("segment.hedge.requests")
+                .description("Hedged second requests to the segment service")
+                .tag("result", "sent")
+                .register(registry);
+        this.hedgesWon = Counter.builder("segment.hedge.requests")
+                .description("Hedged second requests to the segment service")
+                .tag("result", "won")
+                .register(registry);
+
+        for (AdmissionControl.Decision decision : AdmissionControl.Decision.values()) {
+            if (decision != AdmissionControl.Decision.ADMITTED) {
+                admissionRejections.put(decision, Counter.builder("offer.admission.rejected")
+                        .description("apply_offer requests turned away with 429")
+                        .tag("reason", decision.name().toLowerCase())
+                        .register(registry));
+            }
+        }
+
+        Gauge.builder("offer.repository.size", offerRepository, OfferRepository::getOfferCount)
+                .description("Offers stored, counted once per restaurant and segment")
+                .register(registry);
+        Gauge.builder("offer.repository.pending", offerRepository, OfferRepository::getPendingOfferCount)
+                .description("Offers waiting for their validity window to start")
+                .register(registry);
+        Gauge.builder("segment.cache.size", segmentCache, SegmentCache::size)
+                .register(registry);
+        FunctionCounter.builder("segment.cache.requests", segmentCache, SegmentCache::getHitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("segment.cache.requests", segmentCache, SegmentCache::getMissCount)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("segment.cache.evictions", segmentCache, SegmentCache::getEvictionCount)
+                .register(registry);
+        FunctionCounter.builder("segment.cache.refreshes", segmentCache, SegmentCache::getRefreshCount)
+                .register(registry);
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder(STAGE_TIMER)
+                .description("Latency of each stage of apply_offer")
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void recordApply(long nanos) {
+        applyTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSegmentLookup(long nanos) {
+        segmentTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRepositoryLookup(long nanos) {
+        repositoryTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDiscount(long nanos) {
+        discountTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Serializing and writing the response body, whichever encoding was negotiated
+    public void recordWrite(long nanos) {
+        writeTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void segmentError() {
+        segmentErrors.increment();
+    }
+
+    public void segmentTimeout() {
+        segmentTimeouts.increment();
+    }
+
+    public void segmentRejected() {
+        segmentRejected.increment();
+    }
+
+    public void segmentCancelled() {
+        segmentCancelled.increment();
+    }
+
+    public void segmentNotFound() {
+        segmentNotFound.increment();
+    }
+
+    public void registerSegmentSnapshot(SegmentSnapshot segmentSnapshot) {
+        Gauge.builder("segment.snapshot.size", segmentSnapshot, SegmentSnapshot::size)
+                .description("Users in the mapped segment snapshot")
+                .register(registry);
+        Gauge.builder("segment.snapshot.generation", segmentSnapshot, SegmentSnapshot::getGeneration)
+                .register(registry);
+        FunctionCounter.builder("segment.snapshot.requests", segmentSnapshot, SegmentSnapshot::getHitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("segment.snapshot.requests", segmentSnapshot, SegmentSnapshot::getMissCount)
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    public void registerCircuitBreaker(CircuitBreaker circuitBreaker) {
+        Gauge.builder("segment.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Segment service circuit: 0 closed, 1 open, 2 half-open")
+                .register(registry);
+    }
+
+    public void registerConcurrencyLimit(AdaptiveConcurrencyLimit concurrencyLimit) {
+        Gauge.builder("offer.admission.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("apply_offer requests allowed in flight at once")
+                .register(registry);
+        Gauge.builder("offer.admission.in_flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .register(registry);
+    }
+
+    public void admissionRejected(AdmissionControl.Decision decision) {
+        admissionRejections.get(decision).increment();
+    }
+
+    public void circuitTransition(CircuitBreaker.State state) {
+        registry.counter("segment.circuit.transitions", "state", state.name().toLowerCase()).increment();
+    }
+
+    public void circuitRejected() {
+        circuitRejected.increment();
+    }
+
+    public void budgetExceeded() {
+        budgetExceeded.increment();
+    }
+
+    public void hedgeSent() {
+        hedgesSent.increment();
+    }
+
+    public void hedgeWon() {
+        hedgesWon.increment();
+    }
+
+    public void offerHit(String offerType) {
+        Counter counter = offerHits.get(offerType);
+        if (counter == null) {
+            counter = offerHits.computeIfAbsent(offerType, type -> Counter.builder("offer.lookup")
+                    .tag("result", "hit")
+                    .tag("offer_type", type)
+                    .register(registry));
+        }
+        counter.increment();
+    }
+
+    public void offerMiss() {
+        offerMisses.increment();
+    }
+}
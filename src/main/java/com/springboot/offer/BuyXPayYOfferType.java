@@ -0,0 +1,55 @@
+package com.springboot.offer;
+
+import com.springboot.controller.OfferRequest;
+
+// For every full group of buy_quantity items the customer pays for pay_quantity of them. Carts only carry a
+// total, so items are taken to be equally priced; a cart that reports no item_count gets no discount.
+public class BuyXPayYOfferType implements OfferType {
+
+    private final String name;
+
+    public BuyXPayYOfferType(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void validate(OfferRequest offer) {
+        if (offer.getBuyQuantity() <= 0) {
+            throw new IllegalArgumentException("Buy quantity of a " + name + " offer must be positive");
+        }
+        if (offer.getPayQuantity() <= 0 || offer.getPayQuantity() >= offer.getBuyQuantity()) {
+            throw new IllegalArgumentException("Pay quantity of a " + name
+                    + " offer must be positive and less than the buy quantity");
+        }
+    }
+
+    @Override
+    public CompiledOffer compile(OfferRequest offer) {
+        return new BuyXPayY(offer);
+    }
+
+    private static final class BuyXPayY extends CompiledOffer {
+        private final int buy;
+        private final int freePerGroup;
+
+        BuyXPayY(OfferRequest offer) {
+            super(offer);
+            this.buy = offer.getBuyQuantity();
+            this.freePerGroup = offer.getBuyQuantity() - offer.getPayQuantity();
+        }
+
+        @Override
+        public int apply(int cartValue, int itemCount) {
+            if (itemCount <= 0) {
+                return cartValue;
+            }
+            long freeItems = (long) (itemCount / buy) * freePerGroup;
+            return (int) (cartValue - cartValue * freeItems / itemCount);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.springboot.offer;
+
+import com.springboot.controller.OfferRequest;
+
+// An offer prepared for evaluation when it is stored: applying it is a single virtual call doing
+// integer arithmetic, with everything that depends only on the offer worked out up front.
+public abstract class CompiledOffer {
+
+    private final OfferRequest offer;
+    private final int priority;
+    private final boolean stackable;
+
+    protected CompiledOffer(OfferRequest offer) {
+        this.offer = offer;
+        this.priority = offer.getPriority();
+        this.stackable = OfferTypes.isStackable(offer);
+    }
+
+    public final OfferRequest getOffer() {
+        return offer;
+    }
+
+    public final int getPriority() {
+        return priority;
+    }
+
+    public final boolean isStackable() {
+        return stackable;
+    }
+
+    // Returns the cart value after the offer; itemCount is 0 when the cart did not report one
+    public abstract int apply(int cartValue, int itemCount);
+}
@@ -0,0 +1,58 @@
+package com.springboot.offer;
+
+import com.springboot.controller.OfferRequest;
+
+// Takes offer_value off the cart. Without the floor the cart may go negative, as it always has for FLATX.
+public class FlatAmountOfferType implements OfferType {
+
+    private final String name;
+    private final boolean floorAtZero;
+
+    public FlatAmountOfferType(String name, boolean floorAtZero) {
+        this.name = name;
+        this.floorAtZero = floorAtZero;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void validate(OfferRequest offer) {
+        // offer_value is already checked to be non-negative for every type
+    }
+
+    @Override
+    public CompiledOffer compile(OfferRequest offer) {
+        return floorAtZero ? new FlooredFlatAmount(offer) : new FlatAmount(offer);
+    }
+
+    private static final class FlatAmount extends CompiledOffer {
+        private final int amount;
+
+        FlatAmount(OfferRequest offer) {
+            super(offer);
+            this.amount = offer.getOfferValue();
+        }
+
+        @Override
+        public int apply(int cartValue, int itemCount) {
+            return cartValue - amount;
+        }
+    }
+
+    private static final class FlooredFlatAmount extends CompiledOffer {
+        private final int amount;
+
+        FlooredFlatAmount(OfferRequest offer) {
+            super(offer);
+            this.amount = offer.getOfferValue();
+        }
+
+        @Override
+        public int apply(int cartValue, int itemCount) {
+            return Math.max(0, cartValue - amount);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.springboot.offer;
+
+import com.springboot.controller.OfferRequest;
+
+import java.util.Arrays;
+
+// Every offer a restaurant runs for one segment, ordered when written so that applying them needs no
+// scanning or sorting. Candidates are ordered by priority, highest first, then by the order they were added.
+// The first exclusive candidate is the one that applies, so with equal priorities the earliest offer still
+// wins; every stackable candidate applies as well, all of them in candidate order.
+// Immutable: adding an offer returns a new selection.
+public final class OfferSelection {
+
+    private static final CompiledOffer[] NONE = new CompiledOffer[0];
+
+    private final CompiledOffer[] candidates;
+    // Order in which each candidate was added, used to keep that order across snapshots
+    private final long[] sequences;
+    private final CompiledOffer[] applied;
+
+    private OfferSelection(CompiledOffer[] candidates, long[] sequences) {
+        this.candidates = candidates;
+        this.sequences = sequences;
+        this.applied = selectApplied(candidates);
+    }
+
+    public static OfferSelection of(CompiledOffer offer, long sequence) {
+        return new OfferSelection(new CompiledOffer[]{offer}, new long[]{sequence});
+    }
+
+    // The new offer goes after every candidate of the same or a higher priority
+    public OfferSelection with(CompiledOffer offer, long sequence) {
+        int position = 0;
+        while (position < candidates.length && candidates[position].getPriority() >= offer.getPriority()) {
+            position++;
+        }
+
+        CompiledOffer[] updatedCandidates = new CompiledOffer[candidates.length + 1];
+        long[] updatedSequences = new long[sequences.length + 1];
+        System.arraycopy(candidates, 0, updatedCandidates, 0, position);
+        System.arraycopy(sequences, 0, updatedSequences, 0, position);
+        updatedCandidates[position] = offer;
+        updatedSequences[position] = sequence;
+        System.arraycopy(candidates, position, updatedCandidates, position + 1, candidates.length - position);
+        System.arraycopy(sequences, position, updatedSequences, position + 1, sequences.length - position);
+        return new OfferSelection(updatedCandidates, updatedSequences);
+    }
+
+    // The selection without the given offer, or null if it was the only one; keeps the order of the rest
+    public OfferSelection without(OfferRequest offer) {
+        int position = 0;
+        while (position < candidates.length && !candidates[position].getOffer().equals(offer)) {
+            position++;
+        }
+        if (position == candidates.length) {
+            return this;
+        }
+        if (candidates.length == 1) {
+            return null;
+        }
+
+        CompiledOffer[] updatedCandidates = new CompiledOffer[candidates.length - 1];
+        long[] updatedSequences = new long[sequences.length - 1];
+        System.arraycopy(candidates, 0, updatedCandidates, 0, position);
+        System.arraycopy(sequences, 0, updatedSequences, 0, position);
+        System.arraycopy(candidates, position + 1, updatedCandidates, position, candidates.length - position - 1);
+        System.arraycopy(sequences, position + 1, updatedSequences, position, sequences.length - position - 1);
+        return new OfferSelection(updatedCandidates, updatedSequences);
+    }
+
+    private static CompiledOffer[] selectApplied(CompiledOffer[] candidates) {
+        CompiledOffer[] applied = new CompiledOffer[candidates.length];
+        int count = 0;
+        boolean exclusiveChosen = false;
+        for (CompiledOffer candidate : candidates) {
+            if (candidate.isStackable()) {
+                applied[count++] = candidate;
+            } else if (!exclusiveChosen) {
+                applied[count++] = candidate;
+                exclusiveChosen = true;
+            }
+        }
+        return count == 0 ? NONE : Arrays.copyOf(applied, count);
+    }
+
+    public boolean contains(OfferRequest offer) {
+        for (CompiledOffer candidate : candidates) {
+            if (candidate.getOffer().equals(offer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns the cart value after every applied offer
+    public int apply(int cartValue, int itemCount) {
+        int value = cartValue;
+        for (CompiledOffer offer : applied) {
+            value = offer.apply(value, itemCount);
+        }
+        return value;
+    }
+
+    // The highest ranked offer that applies
+    public CompiledOffer getPrimary() {
+        return applied[0];
+    }
+
+    public int getAppliedCount() {
+        return applied.length;
+    }
+
+    public int size() {
+        return candidates.length;
+    }
+
+    public CompiledOffer getCandidate(int index) {
+        return candidates[index];
+    }
+
+    public long getSequence(int index) {
+        return sequences[index];
+    }
+}
@@ -0,0 +1,15 @@
+package com.springboot.offer;
+
+import com.springboot.controller.OfferRequest;
+
+// A kind of offer, identified by the offer_type it is stored under. Register a new type by
+// exposing it as a bean; OfferTypes picks it up alongside the built-in ones.
+public interface OfferType {
+
+    String getName();
+
+    // Checks the fields this type relies on, throwing IllegalArgumentException with a message for the client
+    void validate(OfferRequest offer);
+
+    CompiledOffer compile(OfferRequest offer);
+}
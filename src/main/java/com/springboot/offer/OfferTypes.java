@@ -0,0 +1,81 @@
+package com.springboot.offer;
+
+import com.springboot.controller.OfferRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Registry of offer types by name: the built-in ones plus any OfferType beans in the context.
+@Component
+public class OfferTypes {
+
+    // Stacking policies: an exclusive offer competes with the others for the cart, a stackable one
+    // applies on top of whichever exclusive offer wins
+    public static final String EXCLUSIVE = "EXCLUSIVE";
+    public static final String STACKABLE = "STACKABLE";
+
+    private volatile Map<String, OfferType> types = register(Collections.emptyList());
+
+    @Autowired(required = false)
+    public void setPluginTypes(List<OfferType> pluginTypes) {
+        this.types = register(pluginTypes);
+    }
+
+    private static Map<String, OfferType> register(List<OfferType> pluginTypes) {
+        Map<String, OfferType> types = new LinkedHashMap<>();
+        add(types, new FlatAmountOfferType("FLATX", false));
+        add(types, new PercentOfferType("FLAT%", false));
+        add(types, new PercentOfferType("FLATP", false));
+        add(types, new FlatAmountOfferType("FLATX_FLOOR", true));
+        add(types, new PercentOfferType("FLATP_MAX", true));
+        add(types, new BuyXPayYOfferType("BUYX_PAYY"));
+        for (OfferType pluginType : pluginTypes) {
+            add(types, pluginType);
+        }
+        return Collections.unmodifiableMap(types);
+    }
+
+    private static void add(Map<String, OfferType> types, OfferType type) {
+        if (types.putIfAbsent(type.getName(), type) != null) {
+            throw new IllegalStateException("Offer type " + type.getName() + " is registered twice");
+        }
+    }
+
+    public Set<String> getNames() {
+        return types.keySet();
+    }
+
+    public void validate(OfferRequest offer) {
+        require(offer).validate(offer);
+
+        String stacking = offer.getStacking();
+        if (stacking != null && !EXCLUSIVE.equalsIgnoreCase(stacking.trim())
+                && !STACKABLE.equalsIgnoreCase(stacking.trim())) {
+            throw new IllegalArgumentException("Unsupported stacking policy: " + stacking +
+                    ". Supported policies: " + EXCLUSIVE + ", " + STACKABLE);
+        }
+    }
+
+    public static boolean isStackable(OfferRequest offer) {
+        return offer.getStacking() != null && STACKABLE.equalsIgnoreCase(offer.getStacking().trim());
+    }
+
+    public CompiledOffer compile(OfferRequest offer) {
+        return require(offer).compile(offer);
+    }
+
+    private OfferType require(OfferRequest offer) {
+        String name = offer.getOfferType() == null ? null : offer.getOfferType().trim();
+        OfferType type = name == null ? null : types.get(name);
+        if (type == null) {
+            throw new IllegalArgumentException("Unsupported offer type: " + name +
+                    ". Supported types: " + String.join(", ", types.keySet()));
+        }
+        return type;
+    }
+}
@@ -0,0 +1,70 @@
+package com.springboot.offer;
+
+import com.springboot.controller.OfferRequest;
+
+// Takes offer_value percent off the cart, optionally capped at max_discount.
+// The result is the cart scaled by (100 - percent) / 100 and truncated toward zero, which is what the
+// old floating-point calculation intended without its rounding errors (100 at 7% is 93, not 92).
+public class PercentOfferType implements OfferType {
+
+    private final String name;
+    private final boolean capped;
+
+    public PercentOfferType(String name, boolean capped) {
+        this.name = name;
+        this.capped = capped;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void validate(OfferRequest offer) {
+        if (capped) {
+            if (offer.getOfferValue() > 100) {
+                throw new IllegalArgumentException("Offer value of a " + name + " offer cannot exceed 100");
+            }
+            if (offer.getMaxDiscount() <= 0) {
+                throw new IllegalArgumentException("Max discount of a " + name + " offer must be positive");
+            }
+        }
+    }
+
+    @Override
+    public CompiledOffer compile(OfferRequest offer) {
+        return capped ? new CappedPercent(offer) : new Percent(offer);
+    }
+
+    private static final class Percent extends CompiledOffer {
+        private final long keptPercent;
+
+        Percent(OfferRequest offer) {
+            super(offer);
+            this.keptPercent = 100L - offer.getOfferValue();
+        }
+
+        @Override
+        public int apply(int cartValue, int itemCount) {
+            return (int) (cartValue * keptPercent / 100);
+        }
+    }
+
+    private static final class CappedPercent extends CompiledOffer {
+        private final long keptPercent;
+        private final int maxDiscount;
+
+        CappedPercent(OfferRequest offer) {
+            super(offer);
+            this.keptPercent = 100L - offer.getOfferValue();
+            this.maxDiscount = offer.getMaxDiscount();
+        }
+
+        @Override
+        public int apply(int cartValue, int itemCount) {
+            int discounted = (int) (cartValue * keptPercent / 100);
+            return Math.max(discounted, cartValue - maxDiscount);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.springboot.property;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "offer.admission")
+public class AdmissionProperty {
+
+	private boolean enabled = false;
+
+	// Requests carrying no client header are limited per remote address
+	private String clientHeader = "X-Client-Id";
+
+	// Sustained requests per second and burst per client and per restaurant; 0 or less means no rate limit
+	private double clientRate = 200;
+
+	private double clientBurst = 400;
+
+	private double restaurantRate = 500;
+
+	private double restaurantBurst = 1000;
+
+	// Token buckets per kind of key; keys sharing a stripe share its bucket
+	private int stripes = 4096;
+
+	private int initialLimit = 100;
+
+	private int minLimit = 10;
+
+	// Below server.tomcat.max-threads, so there are always threads free to turn requests away
+	private int maxLimit = 150;
+
+	// The concurrency limit backs off when more than allowed-slow-ratio of a window of calls took longer than this;
+	// set it well above the usual latency, or ordinary jitter keeps the limit at its minimum
+	private Duration latencyTarget = Duration.ofMillis(100);
+
+	private double allowedSlowRatio = 0.01;
+
+	// Calls per window
+	private int windowSize = 200;
+
+	private double backoffRatio = 0.9;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getClientHeader() {
+		return clientHeader;
+	}
+
+	public void setClientHeader(String clientHeader) {
+		this.clientHeader = clientHeader;
+	}
+
+	public double getClientRate() {
+		return clientRate;
+	}
+
+	public void setClientRate(double clientRate) {
+		this.clientRate = clientRate;
+	}
+
+	public double getClientBurst() {
+		return clientBurst;
+	}
+
+	public void setClientBurst(double clientBurst) {
+		this.clientBurst = clientBurst;
+	}
+
+	public double getRestaurantRate() {
+		return restaurantRate;
+	}
+
+	public void setRestaurantRate(double restaurantRate) {
+		this.restaurantRate = restaurantRate;
+	}
+
+	public double getRestaurantBurst() {
+		return restaurantBurst;
+	}
+
+	public void setRestaurantBurst(double restaurantBurst) {
+		this.restaurantBurst = restaurantBurst;
+	}
+
+	public int getStripes() {
+		return stripes;
+	}
+
+	public void setStripes(int stripes) {
+		this.stripes = stripes;
+	}
+
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	public void setInitialLimit(int initialLimit) {
+		this.initialLimit = initialLimit;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public void setMinLimit(int minLimit) {
+		this.minLimit = minLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public void setMaxLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+	}
+
+	public Duration getLatencyTarget() {
+		return latencyTarget;
+	}
+
+	public void setLatencyTarget(Duration latencyTarget) {
+		this.latencyTarget = latencyTarget;
+	}
+
+	public double getAllowedSlowRatio() {
+		return allowedSlowRatio;
+	}
+
+	public void setAllowedSlowRatio(double allowedSlowRatio) {
+		this.allowedSlowRatio = allowedSlowRatio;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public void setWindowSize(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	public double getBackoffRatio() {
+		return backoffRatio;
+	}
+
+	public void setBackoffRatio(double backoffRatio) {
+		this.backoffRatio = backoffRatio;
+	}
+}
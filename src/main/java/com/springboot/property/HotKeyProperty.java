@@ -0,0 +1,78 @@
+package com.springboot.property;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "offer.hot-keys")
+public class HotKeyProperty {
+
+	// Off until its cost under concurrent load has been measured on the target hardware (HotKeysBenchmark)
+	private boolean enabled = false;
+
+	// Keys tracked per dimension (restaurant, user, segment)
+	private int topK = 50;
+
+	// Counters per sketch row, rounded up to a power of two; overestimates stay below about total / width
+	private int sketchWidth = 4096;
+
+	private int sketchDepth = 4;
+
+	// Copies of each sketch that concurrent threads spread their counting over, rounded up to a power of two.
+	// One per core up to 8: a single thread only pays for summing them. Memory per dimension is
+	// stripes * sketch-width * sketch-depth * 8 bytes.
+	private int stripes = Math.min(8, Runtime.getRuntime().availableProcessors());
+
+	// Every count is halved this often, so the ranking follows current traffic
+	private Duration decayInterval = Duration.ofMinutes(1);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getTopK() {
+		return topK;
+	}
+
+	public void setTopK(int topK) {
+		this.topK = topK;
+	}
+
+	public int getSketchWidth() {
+		return sketchWidth;
+	}
+
+	public void setSketchWidth(int sketchWidth) {
+		this.sketchWidth = sketchWidth;
+	}
+
+	public int getSketchDepth() {
+		return sketchDepth;
+	}
+
+	public void setSketchDepth(int sketchDepth) {
+		this.sketchDepth = sketchDepth;
+	}
+
+	public int getStripes() {
+		return stripes;
+	}
+
+	public void setStripes(int stripes) {
+		this.stripes = stripes;
+	}
+
+	public Duration getDecayInterval() {
+		return decayInterval;
+	}
+
+	public void setDecayInterval(Duration decayInterval) {
+		this.decayInterval = decayInterval;
+	}
+}
@@ -0,0 +1,31 @@
+package com.springboot.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "offer.async")
+public class OfferAsyncProperty {
+
+	// Exposes the non-blocking apply_offer endpoint backed by the async segment client
+	private boolean enabled = false;
+
+	// Event-loop threads of the async segment client
+	private int ioThreads = 2;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getIoThreads() {
+		return ioThreads;
+	}
+
+	public void setIoThreads(int ioThreads) {
+		this.ioThreads = ioThreads;
+	}
+}
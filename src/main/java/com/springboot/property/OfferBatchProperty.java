@@ -0,0 +1,30 @@
+package com.springboot.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "offer.batch")
+public class OfferBatchProperty {
+
+	private int maxSize = 1000;
+
+	// Threads used to look up the distinct users of a batch concurrently
+	private int lookupThreads = 32;
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public int getLookupThreads() {
+		return lookupThreads;
+	}
+
+	public void setLookupThreads(int lookupThreads) {
+		this.lookupThreads = lookupThreads;
+	}
+}
@@ -0,0 +1,31 @@
+package com.springboot.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "offer.ingest")
+public class OfferIngestProperty {
+
+	// Offers validated and inserted together under one repository lock
+	private int batchSize = 1000;
+
+	// Errors beyond this are counted but not listed in the response
+	private int maxReportedErrors = 1000;
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getMaxReportedErrors() {
+		return maxReportedErrors;
+	}
+
+	public void setMaxReportedErrors(int maxReportedErrors) {
+		this.maxReportedErrors = maxReportedErrors;
+	}
+}
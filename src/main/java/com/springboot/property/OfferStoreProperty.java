@@ -0,0 +1,53 @@
+package com.springboot.property;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "offer.store")
+public class OfferStoreProperty {
+
+	// When disabled, offers only live in memory and are lost on restart
+	private boolean enabled = false;
+
+	private String directory = "data/offers";
+
+	// Wait for the write-ahead log to be fsynced before acknowledging a change
+	private boolean syncWrites = true;
+
+	private Duration snapshotInterval = Duration.ofMinutes(5);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	public boolean isSyncWrites() {
+		return syncWrites;
+	}
+
+	public void setSyncWrites(boolean syncWrites) {
+		this.syncWrites = syncWrites;
+	}
+
+	public Duration getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	public void setSnapshotInterval(Duration snapshotInterval) {
+		this.snapshotInterval = snapshotInterval;
+	}
+}
@@ -0,0 +1,97 @@
+package com.springboot.property;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "replication")
+public class ReplicationProperty {
+
+	// none, leader (keeps the change log peers replicate from) or follower (replicates from leader-url)
+	private String role = "none";
+
+	private String leaderUrl = "http://localhost:8080";
+
+	// Changes the leader keeps for peers; a peer further behind catches up from a snapshot instead
+	private int logRetention = 100_000;
+
+	// Most changes handed to a peer per poll
+	private int batchSize = 1000;
+
+	// How long a poll waits on the leader for new changes before returning empty
+	private Duration pollWait = Duration.ofSeconds(20);
+
+	private Duration connectTimeout = Duration.ofMillis(500);
+
+	// Pause before polling again after the leader could not be reached
+	private Duration retryDelay = Duration.ofSeconds(1);
+
+	// How long a write forwarded to the leader waits to be applied locally before it is answered
+	private Duration writeTimeout = Duration.ofSeconds(5);
+
+	public String getRole() {
+		return role;
+	}
+
+	public void setRole(String role) {
+		this.role = role;
+	}
+
+	public String getLeaderUrl() {
+		return leaderUrl;
+	}
+
+	public void setLeaderUrl(String leaderUrl) {
+		this.leaderUrl = leaderUrl;
+	}
+
+	public int getLogRetention() {
+		return logRetention;
+	}
+
+	public void setLogRetention(int logRetention) {
+		this.logRetention = logRetention;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public Duration getPollWait() {
+		return pollWait;
+	}
+
+	public void setPollWait(Duration pollWait) {
+		this.pollWait = pollWait;
+	}
+
+	public Duration getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(Duration connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public Duration getRetryDelay() {
+		return retryDelay;
+	}
+
+	public void setRetryDelay(Duration retryDelay) {
+		this.retryDelay = retryDelay;
+	}
+
+	public Duration getWriteTimeout() {
+		return writeTimeout;
+	}
+
+	public void setWriteTimeout(Duration writeTimeout) {
+		this.writeTimeout = writeTimeout;
+	}
+}
@@ -0,0 +1,67 @@
+package com.springboot.property;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "request.log")
+public class RequestLogProperty {
+
+	private boolean enabled = true;
+
+	// Fraction of successful, fast requests that get a summary line, for paths without their own rate
+	private double defaultSampleRate = 1.0;
+
+	// Per-path sample rates, keyed by request URI
+	private Map<String, Double> sampleRates = new HashMap<>();
+
+	// Requests taking at least this long are always logged
+	private Duration slowThreshold = Duration.ofMillis(100);
+
+	// Requests carrying this header with value "true" are logged with DEBUG output from the application loggers
+	private String traceHeader = "X-Trace-Request";
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public double getDefaultSampleRate() {
+		return defaultSampleRate;
+	}
+
+	public void setDefaultSampleRate(double defaultSampleRate) {
+		this.defaultSampleRate = defaultSampleRate;
+	}
+
+	public Map<String, Double> getSampleRates() {
+		return sampleRates;
+	}
+
+	public void setSampleRates(Map<String, Double> sampleRates) {
+		this.sampleRates = sampleRates;
+	}
+
+	public Duration getSlowThreshold() {
+		return slowThreshold;
+	}
+
+	public void setSlowThreshold(Duration slowThreshold) {
+		this.slowThreshold = slowThreshold;
+	}
+
+	public String getTraceHeader() {
+		return traceHeader;
+	}
+
+	public void setTraceHeader(String traceHeader) {
+		this.traceHeader = traceHeader;
+	}
+}
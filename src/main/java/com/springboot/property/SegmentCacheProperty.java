@@ -0,0 +1,63 @@
+package com.springboot.property;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "segment.cache")
+public class SegmentCacheProperty {
+
+	private boolean enabled = true;
+
+	private int maximumSize = 100_000;
+
+	// Entries older than this are treated as a miss and reloaded synchronously
+	private Duration ttl = Duration.ofMinutes(10);
+
+	// Entries older than this are still served, but reloaded in the background
+	private Duration refreshAfter = Duration.ofMinutes(8);
+
+	private int refreshThreads = 2;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public void setMaximumSize(int maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	public Duration getTtl() {
+		return ttl;
+	}
+
+	public void setTtl(Duration ttl) {
+		this.ttl = ttl;
+	}
+
+	public Duration getRefreshAfter() {
+		return refreshAfter;
+	}
+
+	public void setRefreshAfter(Duration refreshAfter) {
+		this.refreshAfter = refreshAfter;
+	}
+
+	public int getRefreshThreads() {
+		return refreshThreads;
+	}
+
+	public void setRefreshThreads(int refreshThreads) {
+		this.refreshThreads = refreshThreads;
+	}
+}
@@ -0,0 +1,130 @@
+package com.springboot.property;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "segment.resilience")
+public class SegmentResilienceProperty {
+
+	// Total time a segment lookup may take, including any hedged request, before the cart is priced without a segment
+	private Duration timeoutBudget = Duration.ofMillis(300);
+
+	// Upper bound on segment calls in flight; further lookups fail fast instead of queueing
+	private int maxConcurrentCalls = 200;
+
+	private boolean circuitBreakerEnabled = true;
+
+	// Percentage of failed calls in the sliding window that opens the circuit
+	private int failureRateThreshold = 50;
+
+	// Number of most recent calls the failure rate is computed over
+	private int slidingWindowSize = 100;
+
+	// The circuit stays closed until the window holds at least this many calls
+	private int minimumCalls = 20;
+
+	// How long an open circuit rejects calls before letting trial calls through
+	private Duration openDuration = Duration.ofSeconds(5);
+
+	// Trial calls that must all succeed to close a half-open circuit
+	private int halfOpenCalls = 5;
+
+	private boolean hedgeEnabled = false;
+
+	// A second request is sent once the first has been outstanding longer than this percentile of recent latencies
+	private double hedgePercentile = 95;
+
+	// Floor for the hedge delay, so a very fast service is not hit twice for every call
+	private Duration hedgeMinDelay = Duration.ofMillis(10);
+
+	public Duration getTimeoutBudget() {
+		return timeoutBudget;
+	}
+
+	public void setTimeoutBudget(Duration timeoutBudget) {
+		this.timeoutBudget = timeoutBudget;
+	}
+
+	public int getMaxConcurrentCalls() {
+		return maxConcurrentCalls;
+	}
+
+	public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+		this.maxConcurrentCalls = maxConcurrentCalls;
+	}
+
+	public boolean isCircuitBreakerEnabled() {
+		return circuitBreakerEnabled;
+	}
+
+	public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+		this.circuitBreakerEnabled = circuitBreakerEnabled;
+	}
+
+	public int getFailureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	public void setFailureRateThreshold(int failureRateThreshold) {
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	public int getSlidingWindowSize() {
+		return slidingWindowSize;
+	}
+
+	public void setSlidingWindowSize(int slidingWindowSize) {
+		this.slidingWindowSize = slidingWindowSize;
+	}
+
+	public int getMinimumCalls() {
+		return minimumCalls;
+	}
+
+	public void setMinimumCalls(int minimumCalls) {
+		this.minimumCalls = minimumCalls;
+	}
+
+	public Duration getOpenDuration() {
+		return openDuration;
+	}
+
+	public void setOpenDuration(Duration openDuration) {
+		this.openDuration = openDuration;
+	}
+
+	public int getHalfOpenCalls() {
+		return halfOpenCalls;
+	}
+
+	public void setHalfOpenCalls(int halfOpenCalls) {
+		this.halfOpenCalls = halfOpenCalls;
+	}
+
+	public boolean isHedgeEnabled() {
+		return hedgeEnabled;
+	}
+
+	public void setHedgeEnabled(boolean hedgeEnabled) {
+		this.hedgeEnabled = hedgeEnabled;
+	}
+
+	public double getHedgePercentile() {
+		return hedgePercentile;
+	}
+
+	public void setHedgePercentile(double hedgePercentile) {
+		this.hedgePercentile = hedgePercentile;
+	}
+
+	public Duration getHedgeMinDelay() {
+		return hedgeMinDelay;
+	}
+
+	public void setHedgeMinDelay(Duration hedgeMinDelay) {
+		this.hedgeMinDelay = hedgeMinDelay;
+	}
+}
@@ -0,0 +1,54 @@
+package com.springboot.property;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "segment.snapshot")
+public class SegmentSnapshotProperty {
+
+	private boolean enabled = false;
+
+	// Full user_id -> segment file written by the nightly segment job; memory-mapped, never copied onto the heap
+	private String file = "data/segments/segments.snap";
+
+	// Delta files (<generation>-<sequence>.delta) applied on top of the snapshot they were produced against
+	private String deltaDirectory = "data/segments/deltas";
+
+	// How often to look for a new snapshot and new delta files
+	private Duration refreshInterval = Duration.ofMinutes(1);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public void setFile(String file) {
+		this.file = file;
+	}
+
+	public String getDeltaDirectory() {
+		return deltaDirectory;
+	}
+
+	public void setDeltaDirectory(String deltaDirectory) {
+		this.deltaDirectory = deltaDirectory;
+	}
+
+	public Duration getRefreshInterval() {
+		return refreshInterval;
+	}
+
+	public void setRefreshInterval(Duration refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+}
@@ -0,0 +1,20 @@
+package com.springboot.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "offer.virtual-threads")
+public class VirtualThreadProperty {
+
+	// Runs controllers and outbound segment calls on virtual threads; needs Java 21 or later at runtime
+	private boolean enabled = false;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+}
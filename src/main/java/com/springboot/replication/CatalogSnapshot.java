@@ -0,0 +1,24 @@
+package com.springboot.replication;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.springboot.controller.OfferRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// The leader's whole catalog as of a sequence of its change log. Offers are listed in the order they
+// were added, so adding them in that order ranks them the same way.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogSnapshot {
+
+    @JsonProperty("log_id")
+    private String logId;
+    @JsonProperty("sequence")
+    private long sequence;
+    @JsonProperty("offers")
+    private List<OfferRequest> offers;
+}
@@ -0,0 +1,25 @@
+package com.springboot.replication;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Answer to a peer's poll: the changes after the one it last applied, or a request to reload from a snapshot
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangeBatch {
+
+    // Identifies one run of the leader's log; sequences of different runs are unrelated
+    @JsonProperty("log_id")
+    private String logId;
+    @JsonProperty("last_sequence")
+    private long lastSequence;
+    @JsonProperty("snapshot_required")
+    private boolean snapshotRequired;
+    @JsonProperty("entries")
+    private List<ChangeEntry> entries;
+}
@@ -0,0 +1,27 @@
+package com.springboot.replication;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.springboot.controller.OfferRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One mutation in the leader's change log
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangeEntry {
+
+    public static final String ADD = "ADD";
+    public static final String CLEAR = "CLEAR";
+    // The whole catalog was replaced; peers reload it from a snapshot
+    public static final String RESYNC = "RESYNC";
+
+    @JsonProperty("sequence")
+    private long sequence;
+    @JsonProperty("op")
+    private String op;
+    // Only set for ADD
+    @JsonProperty("offer")
+    private OfferRequest offer;
+}
@@ -0,0 +1,119 @@
+package com.springboot.replication;
+
+import com.springboot.controller.OfferRequest;
+import com.springboot.property.ReplicationProperty;
+import com.springboot.repository.OfferRepository;
+import com.springboot.repository.StoredOffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// The leader's record of every offer mutation, numbered in the order the repository applied them.
+// Peers poll it and apply the changes in the same order. Only the most recent changes are kept in memory;
+// a peer that falls further behind, or that last read from an earlier run of the leader, reloads from a snapshot.
+@Component
+@ConditionalOnProperty(prefix = "replication", name = "role", havingValue = "leader")
+public class ChangeLog implements OfferRepository.MutationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLog.class);
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final OfferRepository offerRepository;
+    private final String logId = UUID.randomUUID().toString();
+
+    // Ring of the retained entries, entry n at n % length; guarded by this
+    private final ChangeEntry[] entries;
+    private long lastSequence;
+
+    @Autowired
+    public ChangeLog(OfferRepository offerRepository, ReplicationProperty property) {
+        this.offerRepository = offerRepository;
+        this.entries = new ChangeEntry[property.getLogRetention()];
+    }
+
+    @PostConstruct
+    public void register() {
+        offerRepository.addMutationListener(this);
+        logger.info("Replication change log {} started, keeping the last {} changes", logId, entries.length);
+    }
+
+    // Peers replicate asynchronously, so there is nothing to wait for
+    @Override
+    public CompletableFuture<Void> offerAdded(OfferRequest offerRequest) {
+        append(ChangeEntry.ADD, offerRequest);
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Void> offersCleared() {
+        append(ChangeEntry.CLEAR, null);
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Void> catalogReplaced() {
+        append(ChangeEntry.RESYNC, null);
+        return DONE;
+    }
+
+    public String getLogId() {
+        return logId;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    private synchronized void append(String op, OfferRequest offer) {
+        lastSequence++;
+        entries[(int) (lastSequence % entries.length)] = new ChangeEntry(lastSequence, op, offer);
+        notifyAll();
+    }
+
+    // Returns the changes from sequence from onwards, waiting up to waitMillis for one to arrive
+    public synchronized ChangeBatch read(String peerLogId, long from, int max, long waitMillis)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        long remaining = waitMillis;
+        while (logId.equals(peerLogId) && from == lastSequence + 1 && remaining > 0) {
+            wait(remaining);
+            remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+
+        long firstRetained = Math.max(1, lastSequence - entries.length + 1);
+        if (!logId.equals(peerLogId) || from < firstRetained || from > lastSequence + 1) {
+            return new ChangeBatch(logId, lastSequence, true, Collections.emptyList());
+        }
+
+        long to = Math.min(lastSequence, from + max - 1);
+        List<ChangeEntry> batch = new ArrayList<>((int) Math.max(0, to - from + 1));
+        for (long sequence = from; sequence <= to; sequence++) {
+            batch.add(entries[(int) (sequence % entries.length)]);
+        }
+        return new ChangeBatch(logId, lastSequence, false, batch);
+    }
+
+    // The catalog together with the last change it includes
+    public CatalogSnapshot snapshot() {
+        long[] sequence = new long[1];
+        // Appends happen under the repository's write lock, so no change can slip in between the two reads
+        List<StoredOffer> storedOffers = offerRepository.snapshotOffers(() -> sequence[0] = getLastSequence());
+
+        List<OfferRequest> offers = new ArrayList<>(storedOffers.size());
+        for (StoredOffer storedOffer : storedOffers) {
+            offers.add(storedOffer.getOffer());
+        }
+        return new CatalogSnapshot(logId, sequence[0], offers);
+    }
+}
@@ -0,0 +1,43 @@
+package com.springboot.replication;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// Tells the sender of a write how far the leader's change log had got once the write was applied.
+// Read after the write, so it may already include later writes too, which only makes a follower wait a bit longer.
+@Component
+@ConditionalOnProperty(prefix = "replication", name = "role", havingValue = "leader")
+public class ChangeLogSequenceFilter extends OncePerRequestFilter {
+
+    private final ChangeLog changeLog;
+
+    @Autowired
+    public ChangeLogSequenceFilter(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!ReplicatedWrites.isWrite(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // Holds the (small) response back so the headers can still be set after the write
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        wrapper.setHeader(ReplicatedWrites.LOG_ID_HEADER, changeLog.getLogId());
+        wrapper.setHeader(ReplicatedWrites.SEQUENCE_HEADER, Long.toString(changeLog.getLastSequence()));
+        wrapper.copyBodyToResponse();
+    }
+}
@@ -0,0 +1,22 @@
+package com.springboot.replication;
+
+import javax.servlet.http.HttpServletRequest;
+
+// The requests that change offers. A follower forwards them to the leader, which answers with the
+// sequence of its change log the write reached, so the follower can wait until it has applied it.
+final class ReplicatedWrites {
+
+    static final String SEQUENCE_HEADER = "X-Replication-Sequence";
+    static final String LOG_ID_HEADER = "X-Replication-Log-Id";
+
+    private ReplicatedWrites() {
+    }
+
+    static boolean isWrite(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return false;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.equals("/api/v1/offer") || path.equals("/api/v1/offer/bulk") || path.equals("/api/v1/offer/clear");
+    }
+}
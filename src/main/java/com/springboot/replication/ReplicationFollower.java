@@ -0,0 +1,224 @@
+package com.springboot.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.springboot.controller.OfferRequest;
+import com.springboot.property.ReplicationProperty;
+import com.springboot.repository.OfferRepository;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Keeps this node's repository in step with the leader: a single thread long-polls the leader's change log
+// and applies each change in order, reloading the whole catalog from a snapshot when the log cannot
+// continue where this node left off (first start, fell too far behind, leader restarted, catalog replaced).
+@Component
+@ConditionalOnProperty(prefix = "replication", name = "role", havingValue = "follower")
+public class ReplicationFollower {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    private final OfferRepository offerRepository;
+    private final String leaderUrl;
+    private final int batchSize;
+    private final long pollWaitMillis;
+    private final long retryDelayMillis;
+    private final CloseableHttpClient httpClient;
+    private final ObjectReader batchReader;
+    private final ObjectReader snapshotReader;
+    private final Thread poller;
+    private volatile boolean running = true;
+
+    // Position in the leader's log; only written by the poller, guarded by this for waiters
+    private String logId;
+    private long appliedSequence;
+
+    @Autowired
+    public ReplicationFollower(OfferRepository offerRepository, ReplicationProperty property, ObjectMapper objectMapper) {
+        this.offerRepository = offerRepository;
+        this.leaderUrl = property.getLeaderUrl();
+        this.batchSize = property.getBatchSize();
+        this.pollWaitMillis = property.getPollWait().toMillis();
+        this.retryDelayMillis = property.getRetryDelay().toMillis();
+        this.batchReader = objectMapper.readerFor(ChangeBatch.class);
+        this.snapshotReader = objectMapper.readerFor(CatalogSnapshot.class);
+
+        // A poll legitimately takes up to pollWait, so only time out well after that
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) property.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) (pollWaitMillis * 3 / 2 + 1000))
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+
+        this.poller = new Thread(this::pollLoop, "replication-follower");
+        poller.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        logger.info("Replicating offers from {}", leaderUrl);
+        poller.start();
+    }
+
+    public synchronized long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    // Waits until this node has applied the given change of the leader's log; returns false on timeout
+    public synchronized boolean awaitApplied(String leaderLogId, long sequence, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long remaining = timeoutMillis;
+        while (!isApplied(leaderLogId, sequence) && remaining > 0) {
+            wait(remaining);
+            remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+        return isApplied(leaderLogId, sequence);
+    }
+
+    private boolean isApplied(String leaderLogId, long sequence) {
+        return leaderLogId.equals(logId) && appliedSequence >= sequence;
+    }
+
+    private void pollLoop() {
+        while (running) {
+            try {
+                ChangeBatch batch = get(logUri(), batchReader);
+                if (batch.isSnapshotRequired()) {
+                    reload();
+                } else {
+                    apply(batch);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    logger.warn("Could not replicate from {}: {}", leaderUrl, e.getMessage());
+                    pause();
+                }
+            } catch (RuntimeException e) {
+                if (running) {
+                    logger.error("Failed to apply replicated offers", e);
+                    pause();
+                }
+            }
+        }
+    }
+
+    private void apply(ChangeBatch batch) throws IOException {
+        // Runs of added offers are applied as one batch, publishing a single catalog version
+        List<OfferRequest> added = new ArrayList<>();
+        long addedThrough = 0;
+
+        for (ChangeEntry entry : batch.getEntries()) {
+            if (ChangeEntry.ADD.equals(entry.getOp())) {
+                added.add(entry.getOffer());
+                addedThrough = entry.getSequence();
+                continue;
+            }
+
+            applyAdded(batch.getLogId(), added, addedThrough);
+            if (ChangeEntry.CLEAR.equals(entry.getOp())) {
+                offerRepository.clearOffers();
+                advance(batch.getLogId(), entry.getSequence());
+            } else {
+                // RESYNC: the snapshot covers the rest of this batch too
+                reload();
+                return;
+            }
+        }
+        applyAdded(batch.getLogId(), added, addedThrough);
+    }
+
+    private void applyAdded(String leaderLogId, List<OfferRequest> added, long addedThrough) {
+        if (!added.isEmpty()) {
+            offerRepository.addOffers(added);
+            advance(leaderLogId, addedThrough);
+            added.clear();
+        }
+    }
+
+    private void reload() throws IOException {
+        CatalogSnapshot snapshot = get(URI.create(leaderUrl + "/internal/replication/snapshot"), snapshotReader);
+
+        OfferRepository.CatalogBuilder catalog = offerRepository.newCatalog();
+        for (OfferRequest offer : snapshot.getOffers()) {
+            catalog.add(offer);
+        }
+        offerRepository.replaceOffers(catalog);
+        advance(snapshot.getLogId(), snapshot.getSequence());
+
+        logger.info("Reloaded {} offers from the leader's snapshot at {}#{}",
+                snapshot.getOffers().size(), snapshot.getLogId(), snapshot.getSequence());
+    }
+
+    private synchronized void advance(String logId, long sequence) {
+        this.logId = logId;
+        this.appliedSequence = sequence;
+        notifyAll();
+    }
+
+    private synchronized URI logUri() throws IOException {
+        try {
+            return new URIBuilder(leaderUrl + "/internal/replication/log")
+                    .addParameter("log_id", logId == null ? "" : logId)
+                    .addParameter("from", Long.toString(appliedSequence + 1))
+                    .addParameter("max", Integer.toString(batchSize))
+                    .addParameter("wait_ms", Long.toString(pollWaitMillis))
+                    .build();
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid leader URL " + leaderUrl, e);
+        }
+    }
+
+    private <T> T get(URI uri, ObjectReader reader) throws IOException {
+        try (CloseableHttpResponse response = httpClient.execute(new HttpGet(uri))) {
+            HttpEntity entity = response.getEntity();
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != HttpStatus.SC_OK || entity == null) {
+                EntityUtils.consume(entity);
+                throw new IOException("Leader returned status " + statusCode + " for " + uri.getPath());
+            }
+            try (InputStream is = entity.getContent()) {
+                return reader.readValue(is);
+            }
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(retryDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        poller.interrupt();
+        httpClient.close();
+    }
+}
@@ -0,0 +1,135 @@
+package com.springboot.replication;
+
+import com.springboot.property.ReplicationProperty;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// On a follower, offer writes go to the leader so that every node applies them in the leader's order.
+// The leader's answer is passed back only once this node has applied the write too, so a client that
+// reads from the node it wrote to sees its own write.
+@Component
+@ConditionalOnProperty(prefix = "replication", name = "role", havingValue = "follower")
+public class WriteForwardingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteForwardingFilter.class);
+
+    private static final int MAX_CONNECTIONS = 50;
+    private static final byte[] LEADER_UNAVAILABLE =
+            "{\"response_msg\":\"Leader unavailable\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final ReplicationFollower follower;
+    private final String leaderUrl;
+    private final long writeTimeoutMillis;
+    private final CloseableHttpClient httpClient;
+
+    @Autowired
+    public WriteForwardingFilter(ReplicationFollower follower, ReplicationProperty property) {
+        this.follower = follower;
+        this.leaderUrl = property.getLeaderUrl();
+        this.writeTimeoutMillis = property.getWriteTimeout().toMillis();
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) property.getConnectTimeout().toMillis())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setDefaultRequestConfig(requestConfig)
+                .setMaxConnTotal(MAX_CONNECTIONS)
+                .setMaxConnPerRoute(MAX_CONNECTIONS)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!ReplicatedWrites.isWrite(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String query = request.getQueryString();
+        HttpPost forwarded = new HttpPost(leaderUrl + request.getRequestURI().substring(request.getContextPath().length())
+                + (query == null ? "" : "?" + query));
+        // Streamed through, so bulk loads are not buffered here
+        ContentType contentType = request.getContentType() == null ? null : ContentType.parse(request.getContentType());
+        forwarded.setEntity(new InputStreamEntity(request.getInputStream(), request.getContentLengthLong(), contentType));
+        // So the leader answers in the encoding the client asked for
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null) {
+            forwarded.setHeader(HttpHeaders.ACCEPT, accept);
+        }
+
+        byte[] body;
+        int status;
+        String responseType;
+        try (CloseableHttpResponse leaderResponse = httpClient.execute(forwarded)) {
+            HttpEntity entity = leaderResponse.getEntity();
+            status = leaderResponse.getStatusLine().getStatusCode();
+            body = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+            Header type = entity == null ? null : entity.getContentType();
+            responseType = type == null ? null : type.getValue();
+
+            awaitApplied(leaderResponse);
+        } catch (IOException e) {
+            logger.warn("Could not forward {} to the leader at {}: {}", request.getRequestURI(), leaderUrl, e.getMessage());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(LEADER_UNAVAILABLE);
+            return;
+        }
+
+        response.setStatus(status);
+        if (responseType != null) {
+            response.setContentType(responseType);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void awaitApplied(CloseableHttpResponse leaderResponse) {
+        Header logId = leaderResponse.getFirstHeader(ReplicatedWrites.LOG_ID_HEADER);
+        Header sequence = leaderResponse.getFirstHeader(ReplicatedWrites.SEQUENCE_HEADER);
+        if (logId == null || sequence == null) {
+            return;
+        }
+
+        try {
+            if (!follower.awaitApplied(logId.getValue(), Long.parseLong(sequence.getValue()), writeTimeoutMillis)) {
+                logger.warn("Write reached the leader but was not replicated here within {} ms", writeTimeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close the connection to the leader", e);
+        }
+    }
+}
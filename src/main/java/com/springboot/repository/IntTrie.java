@@ -0,0 +1,298 @@
+package com.springboot.repository;
+
+import java.util.function.Consumer;
+
+// Persistent int -> object map (a hash array mapped trie): never modified once built, so any number of readers
+// can share a version without locking. Writes go through a Builder that copies only the nodes on the path to
+// the changed key, leaving the previous version intact.
+// Keys are hashed with a bijective mix, so two distinct keys never share a full hash and no collision
+// handling is needed: each level consumes 5 bits and keys always part ways by the last level.
+public final class IntTrie<V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final IntTrie<Object> EMPTY = new IntTrie<>(new Node(null, 0, new Object[0]), 0);
+
+    private static final class Node {
+        // Builder that created the node, which may still modify it in place; null once published
+        Object owner;
+        int bitmap;
+        // Either an Entry or a child Node per set bit of the bitmap, in bit order
+        Object[] slots;
+
+        Node(Object owner, int bitmap, Object[] slots) {
+            this.owner = owner;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    private static final class Entry {
+        final int key;
+        final int hash;
+        final Object value;
+
+        Entry(int key, int hash, Object value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private IntTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> IntTrie<V> empty() {
+        return (IntTrie<V>) EMPTY;
+    }
+
+    public V get(int key) {
+        return get(root, key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V get(Node root, int key) {
+        int hash = mix(key);
+        Node node = root;
+
+        for (int shift = 0; ; shift += BITS) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (slot instanceof Node) {
+                node = (Node) slot;
+            } else {
+                Entry entry = (Entry) slot;
+                return entry.key == key ? (V) entry.value : null;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    void forEachValue(Consumer<V> action) {
+        forEach(root, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Node node, Consumer<V> action) {
+        for (Object slot : node.slots) {
+            if (slot instanceof Node) {
+                forEach((Node) slot, action);
+            } else {
+                action.accept((V) ((Entry) slot).value);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface EntryVisitor<V> {
+        // Returns false to stop the walk
+        boolean visit(int key, V value);
+    }
+
+    // Walks the entries in the same order as forEachValue, starting at fromKey whether or not it is present.
+    // The order depends only on the keys, so a walk stopped on one version can be resumed on a later one.
+    // Returns false if the visitor stopped the walk.
+    boolean forEachFrom(int fromKey, EntryVisitor<V> visitor) {
+        int fromHash = mix(fromKey);
+        return walk(root, 0, fromHash, order(fromHash), true, visitor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> boolean walk(Node node, int shift, int fromHash, long fromOrder, boolean bounded,
+                                    EntryVisitor<V> visitor) {
+        int fromDigit = bounded ? (fromHash >>> shift) & MASK : 0;
+        int index = 0;
+        for (int remaining = node.bitmap; remaining != 0; remaining &= remaining - 1, index++) {
+            int digit = Integer.numberOfTrailingZeros(remaining);
+            if (digit < fromDigit) {
+                continue;
+            }
+            // Still on the path to fromKey: everything before it on this branch has to be skipped
+            boolean onPath = bounded && digit == fromDigit;
+            Object slot = node.slots[index];
+            if (slot instanceof Node) {
+                if (!walk((Node) slot, shift + BITS, fromHash, fromOrder, onPath, visitor)) {
+                    return false;
+                }
+            } else {
+                Entry entry = (Entry) slot;
+                if (onPath && order(entry.hash) < fromOrder) {
+                    continue;
+                }
+                if (!visitor.visit(entry.key, (V) entry.value)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Position of a hash in walk order: its 5-bit digits, lowest first, as a number
+    private static long order(int hash) {
+        long order = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += BITS) {
+            order = (order << BITS) | ((hash >>> shift) & MASK);
+        }
+        return order;
+    }
+
+    public Builder<V> toBuilder() {
+        return new Builder<>(root, size);
+    }
+
+    // Accumulates changes on top of a version. Nodes it created are updated in place until build(),
+    // so a large batch costs little more than building the map from scratch. Not thread-safe.
+    public static final class Builder<V> {
+        private Node root;
+        private int size;
+
+        private Builder(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        V get(int key) {
+            return IntTrie.get(root, key);
+        }
+
+        public void put(int key, V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("Value cannot be null");
+            }
+            root = put(root, new Entry(key, mix(key), value), 0);
+        }
+
+        void remove(int key) {
+            Node updated = remove(root, key, mix(key), 0);
+            root = updated != null ? updated : new Node(this, 0, new Object[0]);
+        }
+
+        // Publishes the changes; the builder must not be used afterwards
+        public IntTrie<V> build() {
+            seal(root);
+            IntTrie<V> built = new IntTrie<>(root, size);
+            root = null;
+            return built;
+        }
+
+        private Node put(Node node, Entry entry, int shift) {
+            int bit = 1 << ((entry.hash >>> shift) & MASK);
+            int index = Integer.bitCount(node.bitmap & (bit - 1));
+
+            if ((node.bitmap & bit) == 0) {
+                Object[] slots = new Object[node.slots.length + 1];
+                System.arraycopy(node.slots, 0, slots, 0, index);
+                slots[index] = entry;
+                System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+                size++;
+                if (node.owner != this) {
+                    return new Node(this, node.bitmap | bit, slots);
+                }
+                node.slots = slots;
+                node.bitmap |= bit;
+                return node;
+            }
+
+            Node editable = editable(node);
+            Object slot = node.slots[index];
+            if (slot instanceof Node) {
+                editable.slots[index] = put((Node) slot, entry, shift + BITS);
+            } else if (((Entry) slot).key == entry.key) {
+                editable.slots[index] = entry;
+            } else {
+                editable.slots[index] = split((Entry) slot, entry, shift + BITS);
+                size++;
+            }
+            return editable;
+        }
+
+        // Returns the node without the key, the same node if the key is absent, or null once the node is empty
+        private Node remove(Node node, int key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return node;
+            }
+            int index = Integer.bitCount(node.bitmap & (bit - 1));
+            Object slot = node.slots[index];
+
+            Object replacement;
+            if (slot instanceof Node) {
+                Node child = remove((Node) slot, key, hash, shift + BITS);
+                if (child == slot) {
+                    return node;
+                }
+                // A lone entry moves up; lookups stop at the first entry on their path either way
+                replacement = child != null && child.slots.length == 1 && !(child.slots[0] instanceof Node)
+                        ? child.slots[0] : child;
+            } else if (((Entry) slot).key == key) {
+                replacement = null;
+                size--;
+            } else {
+                return node;
+            }
+
+            if (replacement != null) {
+                Node editable = editable(node);
+                editable.slots[index] = replacement;
+                return editable;
+            }
+            if (node.slots.length == 1) {
+                return null;
+            }
+            Object[] slots = new Object[node.slots.length - 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            System.arraycopy(node.slots, index + 1, slots, index, node.slots.length - index - 1);
+            if (node.owner != this) {
+                return new Node(this, node.bitmap & ~bit, slots);
+            }
+            node.slots = slots;
+            node.bitmap &= ~bit;
+            return node;
+        }
+
+        // A node holding two entries that shared every hash bit up to shift
+        private Node split(Entry first, Entry second, int shift) {
+            int firstIndex = (first.hash >>> shift) & MASK;
+            int secondIndex = (second.hash >>> shift) & MASK;
+            if (firstIndex == secondIndex) {
+                return new Node(this, 1 << firstIndex, new Object[]{split(first, second, shift + BITS)});
+            }
+            Object[] slots = firstIndex < secondIndex ? new Object[]{first, second} : new Object[]{second, first};
+            return new Node(this, (1 << firstIndex) | (1 << secondIndex), slots);
+        }
+
+        private Node editable(Node node) {
+            return node.owner == this ? node : new Node(this, node.bitmap, node.slots.clone());
+        }
+
+        private void seal(Node node) {
+            if (node.owner != this) {
+                return;
+            }
+            node.owner = null;
+            for (Object slot : node.slots) {
+                if (slot instanceof Node) {
+                    seal((Node) slot);
+                }
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        // Restaurant and user ids are often sequential, spread them across the trie
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
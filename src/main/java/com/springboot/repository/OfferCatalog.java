@@ -0,0 +1,178 @@
+package com.springboot.repository;
+
+import com.springboot.controller.OfferRequest;
+import com.springboot.offer.OfferSelection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+// One immutable version of the offer catalog. A reader takes the current version with a single volatile read
+// and answers everything from it, so it never sees half of a multi-segment offer, a batch or a clear.
+// Every published change produces a new version with a higher number.
+public final class OfferCatalog {
+
+    private final long version;
+    // Key: restaurant_id, Value: offer selections indexed by interned segment id (null where a segment has no offer)
+    private final IntTrie<OfferSelection[]> offers;
+    // Number of (offer, segment) entries
+    private final int offerCount;
+    // Shared by every version; ids are only ever added, and arrays of older versions are simply shorter
+    private final SegmentIds segmentIds;
+
+    OfferCatalog(long version, IntTrie<OfferSelection[]> offers, int offerCount, SegmentIds segmentIds) {
+        this.version = version;
+        this.offers = offers;
+        this.offerCount = offerCount;
+        this.segmentIds = segmentIds;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getOfferCount() {
+        return offerCount;
+    }
+
+    // Hot-path lookup: returns null rather than allocating an Optional when there is no offer
+    public OfferSelection findOffer(int restaurantId, String userSegment) {
+        int segmentId = segmentIds.lookup(userSegment);
+        if (segmentId == SegmentIds.UNKNOWN) {
+            return null;
+        }
+
+        OfferSelection[] restaurantOffers = offers.get(restaurantId);
+        if (restaurantOffers == null || segmentId >= restaurantOffers.length) {
+            return null;
+        }
+        return restaurantOffers[segmentId];
+    }
+
+    public List<OfferRequest> getOffersForRestaurant(int restaurantId) {
+        OfferSelection[] restaurantOffers = offers.get(restaurantId);
+        if (restaurantOffers == null) {
+            return Collections.emptyList();
+        }
+        List<OfferRequest> restaurantOfferList = new ArrayList<>();
+        forEachDistinct(restaurantOffers, restaurantOfferList::add);
+        return restaurantOfferList;
+    }
+
+    // Offers never span restaurants, so duplicates are only looked for within each one
+    public List<OfferRequest> getAllOffers() {
+        List<OfferRequest> allOffers = new ArrayList<>(offers.size());
+        offers.forEachValue(restaurantOffers -> forEachDistinct(restaurantOffers, allOffers::add));
+        return allOffers;
+    }
+
+    // Hands up to limit offers to action, starting at from (or the beginning when null), optionally only those of
+    // one restaurant and one segment. Restaurants come in the trie's key order, then each restaurant's offers in insertion order.
+    // Returns where the next page starts, or null when nothing is left.
+    public OfferCursor scanOffers(Integer restaurantId, String segment, OfferCursor from, int limit,
+                                  Consumer<OfferRequest> action) {
+        int segmentId = SegmentIds.UNKNOWN;
+        if (segment != null) {
+            segmentId = segmentIds.lookup(segment);
+            if (segmentId == SegmentIds.UNKNOWN) {
+                return null;
+            }
+        }
+
+        Scan scan = new Scan(segmentId, from, limit, action);
+        if (restaurantId != null) {
+            OfferSelection[] restaurantOffers = offers.get(restaurantId);
+            if (restaurantOffers != null) {
+                scan.visit(restaurantId, restaurantOffers);
+            }
+        } else {
+            offers.forEachFrom(from == null ? 0 : from.getRestaurantId(), scan);
+        }
+        return scan.next;
+    }
+
+    private static final class Scan implements IntTrie.EntryVisitor<OfferSelection[]> {
+        private final int segmentId;
+        private final OfferCursor from;
+        private final int limit;
+        private final Consumer<OfferRequest> action;
+        private int listed;
+        private OfferCursor next;
+
+        Scan(int segmentId, OfferCursor from, int limit, Consumer<OfferRequest> action) {
+            this.segmentId = segmentId;
+            this.from = from;
+            this.limit = limit;
+            this.action = action;
+        }
+
+        @Override
+        public boolean visit(int restaurantId, OfferSelection[] restaurantOffers) {
+            // A restaurant's offers are listed in insertion order, so the cursor's sequence keeps its place while
+            // they change: removing an offer shifts nothing, and a new one always lands after it
+            long lowest = from != null && from.getRestaurantId() == restaurantId ? from.getSequence() : 0;
+            int first = segmentId == SegmentIds.UNKNOWN ? 0 : segmentId;
+            int last = segmentId == SegmentIds.UNKNOWN ? restaurantOffers.length - 1 : segmentId;
+
+            while (true) {
+                // The next offer is the one with the lowest sequence not yet listed. A multi-segment offer has the
+                // same sequence in each of its segments, so it is listed once.
+                OfferRequest offer = null;
+                long sequence = Long.MAX_VALUE;
+                for (int id = first; id <= last && id < restaurantOffers.length; id++) {
+                    OfferSelection selection = restaurantOffers[id];
+                    if (selection == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < selection.size(); i++) {
+                        long candidateSequence = selection.getSequence(i);
+                        if (candidateSequence >= lowest && candidateSequence < sequence) {
+                            sequence = candidateSequence;
+                            offer = selection.getCandidate(i).getOffer();
+                        }
+                    }
+                }
+                if (offer == null) {
+                    return true;
+                }
+                if (listed == limit) {
+                    next = new OfferCursor(restaurantId, sequence);
+                    return false;
+                }
+                action.accept(offer);
+                listed++;
+                lowest = sequence + 1;
+            }
+        }
+    }
+
+    // Visits each distinct offer of a restaurant once, in segment order
+    private static void forEachDistinct(OfferSelection[] restaurantOffers, Consumer<OfferRequest> action) {
+        for (int id = 0; id < restaurantOffers.length; id++) {
+            OfferSelection selection = restaurantOffers[id];
+            if (selection != null) {
+                for (int i = 0; i < selection.size(); i++) {
+                    OfferRequest offer = selection.getCandidate(i).getOffer();
+                    if (!listedEarlier(restaurantOffers, id, offer)) {
+                        action.accept(offer);
+                    }
+                }
+            }
+        }
+    }
+
+    // A multi-segment offer is stored under each of its segments; it belongs to the first one
+    private static boolean listedEarlier(OfferSelection[] restaurantOffers, int segmentId, OfferRequest offer) {
+        for (int id = 0; id < segmentId; id++) {
+            if (restaurantOffers[id] != null && restaurantOffers[id].contains(offer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    IntTrie<OfferSelection[]> offers() {
+        return offers;
+    }
+}
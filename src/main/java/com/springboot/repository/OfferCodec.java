@@ -0,0 +1,130 @@
+package com.springboot.repository;
+
+import com.springboot.controller.OfferRequest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compact binary form of offers shared by the write-ahead log and snapshots.
+// Each revision appends fields after the segments: EXTENDED the type-specific fields (max discount, buy and
+// pay quantities), RANKED the priority and stacking policy, WINDOWED the validity window. Offers are always written in the latest revision;
+// files written earlier are read with the revision they were written in.
+final class OfferCodec {
+
+    static final int BASIC = 0;
+    static final int EXTENDED = 1;
+    static final int RANKED = 2;
+    static final int WINDOWED = 3;
+
+    private static final int EXTENSION_SIZE = 3 * 4;
+    private static final int WINDOW_SIZE = 2 * 8;
+    // Written for an open end of the validity window
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private OfferCodec() {
+    }
+
+    static int sizeOf(OfferRequest offer) {
+        return 4 + sizeOf(offer.getOfferType()) + 4 + sizeOf(offer.getCustomerSegment()) + EXTENSION_SIZE
+                + 4 + sizeOf(stacking(offer)) + WINDOW_SIZE;
+    }
+
+    static int sizeOf(List<String> values) {
+        int size = 2;
+        for (String value : values) {
+            size += sizeOf(value);
+        }
+        return size;
+    }
+
+    static void write(ByteBuffer buffer, OfferRequest offer) {
+        buffer.putInt(offer.getRestaurantId());
+        write(buffer, offer.getOfferType());
+        buffer.putInt(offer.getOfferValue());
+        write(buffer, offer.getCustomerSegment());
+        buffer.putInt(offer.getMaxDiscount());
+        buffer.putInt(offer.getBuyQuantity());
+        buffer.putInt(offer.getPayQuantity());
+        buffer.putInt(offer.getPriority());
+        write(buffer, stacking(offer));
+        buffer.putLong(offer.getValidFrom() == null ? NO_TIME : offer.getValidFrom().toEpochMilli());
+        buffer.putLong(offer.getValidUntil() == null ? NO_TIME : offer.getValidUntil().toEpochMilli());
+    }
+
+    static OfferRequest readOffer(ByteBuffer buffer, int revision) {
+        OfferRequest offer = new OfferRequest();
+        offer.setRestaurantId(buffer.getInt());
+        offer.setOfferType(readString(buffer));
+        offer.setOfferValue(buffer.getInt());
+        offer.setCustomerSegment(readStrings(buffer));
+        if (revision >= EXTENDED) {
+            offer.setMaxDiscount(buffer.getInt());
+            offer.setBuyQuantity(buffer.getInt());
+            offer.setPayQuantity(buffer.getInt());
+        }
+        if (revision >= RANKED) {
+            offer.setPriority(buffer.getInt());
+            String stacking = readString(buffer);
+            offer.setStacking(stacking.isEmpty() ? null : stacking);
+        }
+        if (revision >= WINDOWED) {
+            offer.setValidFrom(readTime(buffer));
+            offer.setValidUntil(readTime(buffer));
+        }
+        return offer;
+    }
+
+    // An absent stacking policy is written as an empty string
+    private static String stacking(OfferRequest offer) {
+        return offer.getStacking() == null ? "" : offer.getStacking();
+    }
+
+    private static Instant readTime(ByteBuffer buffer) {
+        long millis = buffer.getLong();
+        return millis == NO_TIME ? null : Instant.ofEpochMilli(millis);
+    }
+
+    static void write(ByteBuffer buffer, List<String> values) {
+        buffer.putShort(length(values.size()));
+        for (String value : values) {
+            write(buffer, value);
+        }
+    }
+
+    static List<String> readStrings(ByteBuffer buffer) {
+        int count = buffer.getShort() & 0xFFFF;
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(buffer));
+        }
+        return values;
+    }
+
+    private static int sizeOf(String value) {
+        return 2 + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void write(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort(length(bytes.length));
+        buffer.put(bytes);
+    }
+
+    // Offers are validated against this limit before they reach the store; a longer value here is a bug
+    private static short length(int length) {
+        if (length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Length " + length + " does not fit an offer record");
+        }
+        return (short) length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,47 @@
+package com.springboot.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position in an offer listing: a restaurant and the insertion sequence of its first offer not yet listed. It
+// names a place in the catalog's key order rather than a version, so it keeps working while the catalog changes.
+// Sequences are assigned by the process holding the catalog, so a cursor is only meaningful to that process.
+public final class OfferCursor {
+
+    private final int restaurantId;
+    private final long sequence;
+
+    public OfferCursor(int restaurantId, long sequence) {
+        this.restaurantId = restaurantId;
+        this.sequence = sequence;
+    }
+
+    public int getRestaurantId() {
+        return restaurantId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Opaque to clients, so the position can change shape without breaking them
+    public String encode() {
+        String position = restaurantId + ":" + sequence;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static OfferCursor decode(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int separator = position.indexOf(':');
+            long sequence = Long.parseLong(position.substring(separator + 1));
+            if (separator < 0 || sequence < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new OfferCursor(Integer.parseInt(position.substring(0, separator)), sequence);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException included
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
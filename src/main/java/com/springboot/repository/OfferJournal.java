@@ -0,0 +1,260 @@
+package com.springboot.repository;
+
+import com.springboot.controller.OfferRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead log of offer mutations. Records are written by a single thread that
+// fsyncs once per batch, so concurrent writers share the cost of each fsync (group commit).
+// Record layout: [int length][int crc32][byte op][payload], where length and crc cover op + payload.
+final class OfferJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferJournal.class);
+
+    // ADD, ADD_EXTENDED and ADD_RANKED records hold offers in older codec revisions; new offers are always
+    // written as ADD_WINDOWED
+    static final byte ADD = 1;
+    static final byte CLEAR = 2;
+    static final byte ADD_EXTENDED = 3;
+    static final byte ADD_RANKED = 4;
+    static final byte ADD_WINDOWED = 5;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_BATCH = 1024;
+
+    private static final class Pending {
+        final ByteBuffer record;
+        // Generation of the log file to switch to, or -1 for a regular record
+        final long rotateTo;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(ByteBuffer record, long rotateTo) {
+            this.record = record;
+            this.rotateTo = rotateTo;
+        }
+    }
+
+    private final Path directory;
+    private final OfferStore.LogOpener opener;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Only touched by the writer thread after construction
+    private FileChannel channel;
+    // End of the last record known to be on disk; a failed batch is cut back to here
+    private long committed;
+    // Set when a failed batch could not be cut back; the file may end in a torn record, so nothing more is
+    // appended to it until the next rotation
+    private IOException broken;
+
+    OfferJournal(Path directory, long generation, OfferStore.LogOpener opener) throws IOException {
+        this.directory = directory;
+        this.opener = opener;
+        this.channel = opener.open(path(directory, generation));
+        this.committed = channel.size();
+        this.writer = new Thread(this::writeLoop, "offer-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    static Path path(Path directory, long generation) {
+        return directory.resolve(String.format("wal-%016d.log", generation));
+    }
+
+    CompletableFuture<Void> append(OfferRequest offer) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + 1 + OfferCodec.sizeOf(offer));
+        record.position(HEADER_SIZE);
+        record.put(ADD_WINDOWED);
+        OfferCodec.write(record, offer);
+        return enqueue(seal(record), -1);
+    }
+
+    CompletableFuture<Void> appendClear() {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + 1);
+        record.position(HEADER_SIZE);
+        record.put(CLEAR);
+        return enqueue(seal(record), -1);
+    }
+
+    // Records appended after this call go to the log file of the given generation
+    CompletableFuture<Void> rotate(long generation) {
+        return enqueue(null, generation);
+    }
+
+    void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("Failed to close offer journal", e);
+        }
+    }
+
+    // Applies every intact record of a log file; a torn record at the end (crash mid-write) ends the replay
+    static int replay(Path file, OfferRepository offerRepository) throws IOException {
+        int replayed = 0;
+
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            CRC32 crc = new CRC32();
+
+            while (buffer.remaining() >= HEADER_SIZE + 1) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 1 || length > buffer.remaining()) {
+                    logger.warn("Truncated record in {} after {} records", file, replayed);
+                    break;
+                }
+
+                ByteBuffer record = buffer.slice();
+                record.limit(length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    logger.warn("Corrupt record in {} after {} records", file, replayed);
+                    break;
+                }
+
+                byte op = record.get();
+                if (op == ADD) {
+                    offerRepository.replayOffer(OfferCodec.readOffer(record, OfferCodec.BASIC));
+                } else if (op == ADD_EXTENDED) {
+                    offerRepository.replayOffer(OfferCodec.readOffer(record, OfferCodec.EXTENDED));
+                } else if (op == ADD_RANKED) {
+                    offerRepository.replayOffer(OfferCodec.readOffer(record, OfferCodec.RANKED));
+                } else if (op == ADD_WINDOWED) {
+                    offerRepository.replayOffer(OfferCodec.readOffer(record, OfferCodec.WINDOWED));
+                } else if (op == CLEAR) {
+                    offerRepository.replayClear();
+                }
+                buffer.position(buffer.position() + length);
+                replayed++;
+            }
+        }
+
+        return replayed;
+    }
+
+    private static ByteBuffer seal(ByteBuffer record) {
+        int length = record.position() - HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, length);
+        record.putInt(0, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private CompletableFuture<Void> enqueue(ByteBuffer record, long rotateTo) {
+        if (!running) {
+            CompletableFuture<Void> closed = new CompletableFuture<>();
+            closed.completeExceptionally(new IllegalStateException("Offer journal is closed"));
+            return closed;
+        }
+        Pending pending = new Pending(record, rotateTo);
+        queue.add(pending);
+        return pending.done;
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        // Records before this index are durable: they were forced before their file was rotated away
+        int start = 0;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                if (pending.rotateTo >= 0) {
+                    if (broken == null) {
+                        channel.force(false);
+                    }
+                    channel.close();
+                    complete(batch, start, i + 1);
+                    start = i + 1;
+                    broken = null;
+                    channel = opener.open(path(directory, pending.rotateTo));
+                    committed = channel.size();
+                } else if (broken != null) {
+                    // Already failed futures are left alone when the rest of the batch completes
+                    pending.done.completeExceptionally(broken);
+                } else {
+                    while (pending.record.hasRemaining()) {
+                        channel.write(pending.record);
+                    }
+                }
+            }
+            if (broken == null) {
+                channel.force(false);
+                committed = channel.size();
+            }
+            complete(batch, start, batch.size());
+        } catch (IOException e) {
+            logger.error("Failed to write offer journal", e);
+            discardTail();
+            for (int i = start; i < batch.size(); i++) {
+                batch.get(i).done.completeExceptionally(e);
+            }
+        }
+    }
+
+    // Cuts a failed batch off the end of the log, so a record written later never lands behind a torn one
+    // that would stop replay
+    private void discardTail() {
+        if (broken != null) {
+            return;
+        }
+        try {
+            channel.truncate(committed);
+            channel.force(false);
+        } catch (IOException e) {
+            logger.error("Failed to discard a partly written batch, offer journal is unusable until rotated", e);
+            broken = e;
+        }
+    }
+
+    private static void complete(List<Pending> batch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            batch.get(i).done.complete(null);
+        }
+    }
+
+    static FileChannel openForAppend(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
@@ -1,67 +1,585 @@
 package com.springboot.repository;
 
 import com.springboot.controller.OfferRequest;
+import com.springboot.offer.CompiledOffer;
+import com.springboot.offer.OfferSelection;
+import com.springboot.offer.OfferTypes;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 @Repository
 public class OfferRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(OfferRepository.class);
 
-    // Key: restaurant_id + segment, Value: OfferRequest
-    private final ConcurrentHashMap<String, OfferRequest> offers = new ConcurrentHashMap<>();
+    private static final OfferSelection[] NO_OFFERS = new OfferSelection[0];
 
-    private String generateKey(int restaurantId, String segment) {
-        return restaurantId + "_" + segment;
+    // Resolution of offer validity windows; advanceClock is expected to run about this often
+    public static final long SCHEDULE_TICK_MILLIS = 100;
+
+    // Due on the timing wheel: an offer whose window starts or ends
+    private static final class WindowEdge {
+        final OfferRequest offer;
+        final boolean start;
+
+        WindowEdge(OfferRequest offer, boolean start) {
+            this.offer = offer;
+            this.start = start;
+        }
+    }
+
+    // Told about every mutation while the write lock is held, so it sees them in the order they were applied.
+    // The returned future completes once the listener is done with the mutation (e.g. it is durable).
+    public interface MutationListener {
+        CompletableFuture<Void> offerAdded(OfferRequest offerRequest);
+
+        CompletableFuture<Void> offersCleared();
+
+        CompletableFuture<Void> catalogReplaced();
+    }
+
+    // Builds a complete catalog off to the side, to be swapped in atomically with replaceOffers.
+    // Not thread-safe: meant to be filled by a single ingesting thread.
+    public final class CatalogBuilder {
+        private final IntTrie.Builder<OfferSelection[]> catalog = IntTrie.<OfferSelection[]>empty().toBuilder();
+        private int count;
+        // Windowed offers, scheduled once the catalog is swapped in
+        private final Set<OfferRequest> pending = new LinkedHashSet<>();
+        private final List<OfferRequest> expiring = new ArrayList<>();
+
+        public boolean add(OfferRequest offerRequest) {
+            long now = clock.getAsLong();
+            if (hasEnded(offerRequest, now)) {
+                return false;
+            }
+            if (!hasStarted(offerRequest, now)) {
+                return pending.add(offerRequest);
+            }
+
+            int added = insert(catalog, offerRequest, false);
+            count += added;
+            if (added > 0 && offerRequest.getValidUntil() != null) {
+                expiring.add(offerRequest);
+            }
+            return added > 0;
+        }
+
+        public int getOfferCount() {
+            return count;
+        }
+    }
+
+    private final OfferTypes offerTypes;
+    private final LongSupplier clock;
+    private final SegmentIds segmentIds = new SegmentIds();
+
+    // The current version. Writers build the next version from it under the write lock and publish it with
+    // a single volatile write; readers need no locking. Offer selection arrays are copied on write and
+    // never modified once published.
+    private volatile OfferCatalog catalog = new OfferCatalog(0, IntTrie.empty(), 0, segmentIds);
+
+    // Orders offers of equal priority by when they were added
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    // Guarded by this
+    private final List<MutationListener> mutationListeners = new ArrayList<>();
+
+    // Starts and ends of offer windows; lookups never consult it, so windows cost the read path nothing.
+    // Guarded by this
+    private final TimingWheel<WindowEdge> windowEdges;
+    // Offers waiting for their window to start, in the order they were added; guarded by this
+    private final Set<OfferRequest> pendingOffers = new LinkedHashSet<>();
+
+    public OfferRepository() {
+        this(new OfferTypes());
+    }
+
+    @Autowired
+    public OfferRepository(OfferTypes offerTypes) {
+        this(offerTypes, System::currentTimeMillis);
+    }
+
+    public OfferRepository(OfferTypes offerTypes, LongSupplier clock) {
+        this.offerTypes = offerTypes;
+        this.clock = clock;
+        this.windowEdges = new TimingWheel<>(SCHEDULE_TICK_MILLIS, clock.getAsLong());
+    }
+
+    public OfferTypes getOfferTypes() {
+        return offerTypes;
     }
 
+    public OfferCatalog getCatalog() {
+        return catalog;
+    }
+
+    // Offers are published before their log record is on disk, so a write never holds the lock through an fsync.
+    // An offer whose record could not be written is withdrawn again before the failure is reported.
     public boolean addOffer(OfferRequest offerRequest) {
-        logger.info("Adding offer for restaurant {} with segments {}",
-                offerRequest.getRestaurantId(), offerRequest.getCustomerSegment());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Adding offer for restaurant {} with segments {}",
+                    offerRequest.getRestaurantId(), offerRequest.getCustomerSegment());
+        }
 
-        boolean offerAdded = false;
+        boolean offerAdded;
+        CompletableFuture<Void> durable = null;
 
-        // Add offer for each segment if it doesn't already exist
-        for (String segment : offerRequest.getCustomerSegment()) {
-            String key = generateKey(offerRequest.getRestaurantId(), segment);
-
-            // Only add if key doesn't exist (preserve immutability behavior)
-            if (!offers.containsKey(key)) {
-                offers.put(key, offerRequest);
-                offerAdded = true;
-                logger.info("Offer added for restaurant {} and segment {}",
-                        offerRequest.getRestaurantId(), segment);
-            } else {
-                logger.info("Offer already exists for restaurant {} and segment {}, skipping",
-                        offerRequest.getRestaurantId(), segment);
+        synchronized (this) {
+            IntTrie.Builder<OfferSelection[]> next = catalog.offers().toBuilder();
+            int added = admit(next, offerRequest, true, clock.getAsLong());
+            offerAdded = added != NOT_ADMITTED;
+            if (added > 0) {
+                publish(next.build(), catalog.getOfferCount() + added);
+            }
+            if (offerAdded) {
+                durable = notifyListeners(listener -> listener.offerAdded(offerRequest));
             }
         }
 
+        if (durable != null) {
+            awaitAdded(Collections.singletonList(offerRequest), Collections.singletonList(durable));
+        }
         return offerAdded;
     }
 
+    // Adds a batch as a single new version; returns how many offers were added
+    public int addOffers(List<OfferRequest> offerRequests) {
+        List<OfferRequest> admitted = new ArrayList<>(offerRequests.size());
+        List<CompletableFuture<Void>> durable = new ArrayList<>(offerRequests.size());
+
+        synchronized (this) {
+            IntTrie.Builder<OfferSelection[]> next = catalog.offers().toBuilder();
+            long now = clock.getAsLong();
+            int entriesAdded = 0;
+            for (OfferRequest offerRequest : offerRequests) {
+                int added = admit(next, offerRequest, false, now);
+                if (added != NOT_ADMITTED) {
+                    entriesAdded += added;
+                    admitted.add(offerRequest);
+                    CompletableFuture<Void> written = notifyListeners(listener -> listener.offerAdded(offerRequest));
+                    if (written != null) {
+                        durable.add(written);
+                    }
+                }
+            }
+            if (entriesAdded > 0) {
+                publish(next.build(), catalog.getOfferCount() + entriesAdded);
+            }
+        }
+
+        if (!durable.isEmpty()) {
+            awaitAdded(admitted, durable);
+        }
+        return admitted.size();
+    }
+
+    public CatalogBuilder newCatalog() {
+        return new CatalogBuilder();
+    }
+
+    // Swaps in a whole new catalog; readers see either the old or the new one, never a mix
+    public void replaceOffers(CatalogBuilder catalogBuilder) {
+        logger.info("Replacing catalog with {} offers", catalogBuilder.getOfferCount());
+        CompletableFuture<Void> durable = null;
+
+        synchronized (this) {
+            // The new catalog brings its own windows
+            windowEdges.clear();
+            pendingOffers.clear();
+            long now = clock.getAsLong();
+            int count = catalogBuilder.count;
+            for (OfferRequest offerRequest : catalogBuilder.expiring) {
+                count -= scheduleEnd(catalogBuilder.catalog, offerRequest);
+            }
+            for (OfferRequest offerRequest : catalogBuilder.pending) {
+                // Re-checked, as windows may have started while the catalog was being built
+                count += Math.max(0, admit(catalogBuilder.catalog, offerRequest, false, now));
+            }
+
+            publish(catalogBuilder.catalog.build(), count);
+            durable = notifyListeners(MutationListener::catalogReplaced);
+        }
+
+        awaitDurable(durable);
+    }
+
+    // Callers hold the write lock
+    private void publish(IntTrie<OfferSelection[]> offers, int offerCount) {
+        catalog = new OfferCatalog(catalog.getVersion() + 1, offers, offerCount, segmentIds);
+    }
+
+    private static final int NOT_ADMITTED = -1;
+
+    // Callers hold the write lock. Adds an offer whose window is open now, or schedules one whose window has yet
+    // to start. Returns the number of segments the offer was added for now (0 when scheduled), or NOT_ADMITTED
+    // for a duplicate or an offer whose window has already ended.
+    private int admit(IntTrie.Builder<OfferSelection[]> target, OfferRequest offerRequest, boolean log, long now) {
+        if (hasEnded(offerRequest, now)) {
+            if (log) {
+                logger.debug("Offer window for restaurant {} has already ended, skipping", offerRequest.getRestaurantId());
+            }
+            return NOT_ADMITTED;
+        }
+
+        if (!hasStarted(offerRequest, now)) {
+            if (!pendingOffers.add(offerRequest)) {
+                return NOT_ADMITTED;
+            }
+            windowEdges.schedule(offerRequest.getValidFrom().toEpochMilli(), new WindowEdge(offerRequest, true));
+            if (log) {
+                logger.debug("Offer for restaurant {} scheduled to start at {}",
+                        offerRequest.getRestaurantId(), offerRequest.getValidFrom());
+            }
+            return 0;
+        }
+
+        int added = insert(target, offerRequest, log);
+        if (added == 0) {
+            return NOT_ADMITTED;
+        }
+        return added - scheduleEnd(target, offerRequest);
+    }
+
+    // Callers hold the write lock. Returns the number of segments removed because the window has already ended.
+    private int scheduleEnd(IntTrie.Builder<OfferSelection[]> target, OfferRequest offerRequest) {
+        if (offerRequest.getValidUntil() == null
+                || windowEdges.schedule(offerRequest.getValidUntil().toEpochMilli(), new WindowEdge(offerRequest, false))) {
+            return 0;
+        }
+        return remove(target, offerRequest);
+    }
+
+    private static boolean hasStarted(OfferRequest offerRequest, long now) {
+        return offerRequest.getValidFrom() == null || offerRequest.getValidFrom().toEpochMilli() <= now;
+    }
+
+    private static boolean hasEnded(OfferRequest offerRequest, long now) {
+        return offerRequest.getValidUntil() != null && offerRequest.getValidUntil().toEpochMilli() <= now;
+    }
+
+    // Starts and ends every offer window that is due, all in one new version. Runs on a timer roughly every
+    // SCHEDULE_TICK_MILLIS; an ended offer leaves the read path at the first tick after its end.
+    public void advanceClock() {
+        synchronized (this) {
+            long now = clock.getAsLong();
+            IntTrie.Builder<OfferSelection[]> next = catalog.offers().toBuilder();
+            int[] change = new int[2];
+
+            windowEdges.advance(now, edge -> {
+                if (!edge.start) {
+                    change[0] -= remove(next, edge.offer);
+                } else if (pendingOffers.remove(edge.offer)) {
+                    change[0] += insert(next, edge.offer, false) - scheduleEnd(next, edge.offer);
+                }
+                change[1]++;
+            });
+
+            if (change[1] > 0) {
+                publish(next.build(), catalog.getOfferCount() + change[0]);
+                logger.debug("Applied {} offer window changes", change[1]);
+            }
+        }
+    }
+
+    // Returns the number of segments the offer was removed from
+    private int remove(IntTrie.Builder<OfferSelection[]> target, OfferRequest offerRequest) {
+        int restaurantId = offerRequest.getRestaurantId();
+        OfferSelection[] current = target.get(restaurantId);
+        if (current == null) {
+            return 0;
+        }
+
+        OfferSelection[] updated = null;
+        int removed = 0;
+        boolean empty = true;
+        for (int segmentId = 0; segmentId < current.length; segmentId++) {
+            OfferSelection selection = current[segmentId];
+            OfferSelection remaining = selection == null ? null : selection.without(offerRequest);
+            if (remaining != selection) {
+                if (updated == null) {
+                    updated = current.clone();
+                }
+                updated[segmentId] = remaining;
+                removed++;
+            }
+            empty &= remaining == null;
+        }
+
+        if (removed > 0) {
+            if (empty) {
+                target.remove(restaurantId);
+            } else {
+                target.put(restaurantId, updated);
+            }
+        }
+        return removed;
+    }
+
+    public synchronized int getPendingOfferCount() {
+        return pendingOffers.size();
+    }
+
+    // Returns the number of segments the offer was added for
+    private int insert(IntTrie.Builder<OfferSelection[]> target, OfferRequest offerRequest, boolean log) {
+        int restaurantId = offerRequest.getRestaurantId();
+        OfferSelection[] current = target.get(restaurantId);
+        OfferSelection[] updated = null;
+        CompiledOffer compiled = null;
+        long sequence = 0;
+        int added = 0;
+
+        // Add the offer next to any the segment already has, unless the very same offer is there
+        for (String segment : offerRequest.getCustomerSegment()) {
+            int segmentId = segmentIds.intern(segment);
+            OfferSelection[] existing = updated != null ? updated : (current != null ? current : NO_OFFERS);
+            OfferSelection selection = segmentId < existing.length ? existing[segmentId] : null;
+
+            if (selection != null && selection.contains(offerRequest)) {
+                if (log) {
+                    logger.debug("Offer already exists for restaurant {} and segment {}, skipping",
+                            restaurantId, segment);
+                }
+                continue;
+            }
+
+            if (updated == null || segmentId >= updated.length) {
+                updated = Arrays.copyOf(existing, Math.max(existing.length, segmentIds.size()));
+            }
+            if (compiled == null) {
+                // Compiled once and shared by every segment the offer is stored under
+                compiled = offerTypes.compile(offerRequest);
+                sequence = nextSequence.getAndIncrement();
+            }
+            // Candidates are ranked here, so lookups never sort
+            updated[segmentId] = selection == null
+                    ? OfferSelection.of(compiled, sequence) : selection.with(compiled, sequence);
+            added++;
+            if (log) {
+                logger.debug("Offer added for restaurant {} and segment {}", restaurantId, segment);
+            }
+        }
+
+        if (added > 0) {
+            // All segments of the offer become visible with the same version
+            target.put(restaurantId, updated);
+        }
+
+        return added;
+    }
+
+    // Hot-path lookup against the current version; callers needing several consistent reads use getCatalog
+    public OfferSelection findOffer(int restaurantId, String userSegment) {
+        return catalog.findOffer(restaurantId, userSegment);
+    }
+
+    // The highest ranked offer for the segment
     public Optional<OfferRequest> getOffer(int restaurantId, String userSegment) {
-        String key = generateKey(restaurantId, userSegment);
-        return Optional.ofNullable(offers.get(key));
+        OfferSelection selection = findOffer(restaurantId, userSegment);
+        return selection == null ? Optional.empty() : Optional.of(selection.getPrimary().getOffer());
+    }
+
+    public List<OfferRequest> getOffersForRestaurant(int restaurantId) {
+        return catalog.getOffersForRestaurant(restaurantId);
     }
 
     public List<OfferRequest> getAllOffers() {
-        return offers.values().stream().distinct().collect(Collectors.toList());
+        return catalog.getAllOffers();
     }
 
     public void clearOffers() {
         logger.info("Clearing all offers from repository");
-        offers.clear();
+        CompletableFuture<Void> durable = null;
+
+        synchronized (this) {
+            publish(IntTrie.empty(), 0);
+            windowEdges.clear();
+            pendingOffers.clear();
+            durable = notifyListeners(MutationListener::offersCleared);
+        }
+
+        awaitDurable(durable);
     }
 
     public int getOfferCount() {
-        return offers.size();
+        return catalog.getOfferCount();
+    }
+
+    public synchronized void addMutationListener(MutationListener mutationListener) {
+        mutationListeners.add(mutationListener);
+    }
+
+    // Callers hold the write lock; returns null when nobody is listening
+    private CompletableFuture<Void> notifyListeners(Function<MutationListener, CompletableFuture<Void>> mutation) {
+        if (mutationListeners.isEmpty()) {
+            return null;
+        }
+        if (mutationListeners.size() == 1) {
+            return mutation.apply(mutationListeners.get(0));
+        }
+        CompletableFuture<?>[] done = new CompletableFuture<?>[mutationListeners.size()];
+        for (int i = 0; i < done.length; i++) {
+            done[i] = mutation.apply(mutationListeners.get(i));
+        }
+        return CompletableFuture.allOf(done);
+    }
+
+    // Re-applies a logged addOffer during recovery, without logging or notifying the listener.
+    // Windows are judged against the current time, so offers that ended while the service was down stay out.
+    public synchronized void replayOffer(OfferRequest offerRequest) {
+        IntTrie.Builder<OfferSelection[]> next = catalog.offers().toBuilder();
+        int added = admit(next, offerRequest, false, clock.getAsLong());
+        if (added > 0) {
+            publish(next.build(), catalog.getOfferCount() + added);
+        }
+    }
+
+    public synchronized void replayClear() {
+        publish(IntTrie.empty(), 0);
+        windowEdges.clear();
+        pendingOffers.clear();
+    }
+
+    // Puts snapshotted offers back into exactly the segments they occupied, as one new version.
+    // Offers must be given in the order the snapshot lists them, which is the order they were added.
+    public synchronized void restoreOffers(List<StoredOffer> storedOffers) {
+        IntTrie.Builder<OfferSelection[]> next = catalog.offers().toBuilder();
+        long now = clock.getAsLong();
+        int restored = 0;
+
+        for (StoredOffer storedOffer : storedOffers) {
+            OfferRequest offerRequest = storedOffer.getOffer();
+            if (hasEnded(offerRequest, now)) {
+                continue;
+            }
+            if (!hasStarted(offerRequest, now)) {
+                admit(next, offerRequest, false, now);
+                continue;
+            }
+
+            CompiledOffer compiled = offerTypes.compile(offerRequest);
+            long sequence = nextSequence.getAndIncrement();
+            int restaurantId = offerRequest.getRestaurantId();
+            OfferSelection[] current = next.get(restaurantId);
+            OfferSelection[] updated = current != null ? current : NO_OFFERS;
+
+            for (String segment : storedOffer.getSegments()) {
+                int segmentId = segmentIds.intern(segment);
+                updated = Arrays.copyOf(updated, Math.max(updated.length, segmentIds.size()));
+                OfferSelection selection = updated[segmentId];
+                updated[segmentId] = selection == null
+                        ? OfferSelection.of(compiled, sequence) : selection.with(compiled, sequence);
+                restored++;
+            }
+
+            next.put(restaurantId, updated);
+            restored -= scheduleEnd(next, offerRequest);
+        }
+
+        publish(next.build(), catalog.getOfferCount() + restored);
+    }
+
+    // Captures every stored offer, then runs whileLocked before any further write can happen
+    public synchronized List<StoredOffer> snapshotOffers(Runnable whileLocked) {
+        List<StoredOffer> storedOffers = new ArrayList<>();
+
+        catalog.offers().forEachValue(restaurantOffers -> {
+            // A multi-segment offer occupies several slots of the same array
+            Map<CompiledOffer, List<String>> segmentsByOffer = new IdentityHashMap<>();
+            Map<CompiledOffer, Long> sequenceByOffer = new IdentityHashMap<>();
+            for (int segmentId = 0; segmentId < restaurantOffers.length; segmentId++) {
+                OfferSelection selection = restaurantOffers[segmentId];
+                if (selection == null) {
+                    continue;
+                }
+                for (int i = 0; i < selection.size(); i++) {
+                    CompiledOffer offer = selection.getCandidate(i);
+                    segmentsByOffer.computeIfAbsent(offer, key -> new ArrayList<>()).add(segmentIds.name(segmentId));
+                    sequenceByOffer.put(offer, selection.getSequence(i));
+                }
+            }
+
+            // Listed in the order they were added, so restoring them ranks equal priorities the same way
+            List<CompiledOffer> ordered = new ArrayList<>(segmentsByOffer.keySet());
+            ordered.sort(Comparator.comparingLong(sequenceByOffer::get));
+            for (CompiledOffer offer : ordered) {
+                storedOffers.add(new StoredOffer(offer.getOffer(), segmentsByOffer.get(offer)));
+            }
+        });
+        // Offers waiting for their window go in whole; restoring schedules them again
+        for (OfferRequest pendingOffer : pendingOffers) {
+            storedOffers.add(new StoredOffer(pendingOffer, pendingOffer.getCustomerSegment()));
+        }
+
+        whileLocked.run();
+        return storedOffers;
+    }
+
+    // Waits for the records of added offers, one future per offer, and withdraws the offers whose record failed.
+    // Records of a batch can fail independently, as they may span several log writes.
+    private void awaitAdded(List<OfferRequest> offers, List<CompletableFuture<Void>> durable) {
+        List<OfferRequest> lost = null;
+        Throwable cause = null;
+        for (int i = 0; i < durable.size(); i++) {
+            try {
+                durable.get(i).join();
+            } catch (CompletionException e) {
+                if (lost == null) {
+                    lost = new ArrayList<>();
+                }
+                lost.add(offers.get(i));
+                cause = e.getCause();
+            }
+        }
+
+        if (lost != null) {
+            withdraw(lost);
+            throw new IllegalStateException(lost.size() + " offer(s) could not be persisted and were withdrawn", cause);
+        }
+    }
+
+    // Takes offers back out of the catalog, whether they are live or still waiting for their window
+    private synchronized void withdraw(List<OfferRequest> offers) {
+        IntTrie.Builder<OfferSelection[]> next = catalog.offers().toBuilder();
+        int removed = 0;
+        for (OfferRequest offerRequest : offers) {
+            pendingOffers.remove(offerRequest);
+            removed += remove(next, offerRequest);
+        }
+        if (removed > 0) {
+            publish(next.build(), catalog.getOfferCount() - removed);
+        }
+        logger.warn("Withdrew {} offers whose log records could not be written", offers.size());
+    }
+
+    // A clear or replace is not undone when it cannot be persisted: writes made since it would have to be
+    // undone too. It stays in effect until a restart, which brings back the previous offers, and the error says so.
+    private void awaitDurable(CompletableFuture<Void> durable) {
+        if (durable == null) {
+            return;
+        }
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Offer change is in effect but could not be persisted, it will be lost on restart",
+                    e.getCause());
+        }
     }
 }
@@ -0,0 +1,130 @@
+package com.springboot.repository;
+
+import com.springboot.controller.OfferRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Point-in-time copies of the repository. Snapshot N holds the state produced by every log generation below N.
+// Layout: [int magic][int version][long generation][int count] then count x [int length][offer][segments],
+// then [int end magic][long crc32 of the records].
+final class OfferSnapshots {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferSnapshots.class);
+
+    private static final int MAGIC = 0x4F464653;
+    private static final int END_MAGIC = 0x4F464645;
+    // Version N stores offers in codec revision N - 1; files of every earlier version are still readable
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    private static final int TRAILER_SIZE = 4 + 8;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private OfferSnapshots() {
+    }
+
+    static Path path(Path directory, long generation) {
+        return directory.resolve(String.format("snapshot-%016d.bin", generation));
+    }
+
+    static void write(Path directory, long generation, List<StoredOffer> storedOffers) throws IOException {
+        Path target = path(directory, generation);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(generation).putInt(storedOffers.size());
+            drain(channel, buffer);
+
+            for (StoredOffer storedOffer : storedOffers) {
+                int length = OfferCodec.sizeOf(storedOffer.getOffer()) + OfferCodec.sizeOf(storedOffer.getSegments());
+                ByteBuffer record = length + 4 > BUFFER_SIZE ? ByteBuffer.allocate(length + 4) : buffer;
+                if (record.remaining() < length + 4) {
+                    drain(channel, record);
+                }
+
+                int start = record.position();
+                record.putInt(length);
+                OfferCodec.write(record, storedOffer.getOffer());
+                OfferCodec.write(record, storedOffer.getSegments());
+                ByteBuffer written = record.duplicate();
+                written.flip().position(start);
+                crc.update(written);
+
+                if (record != buffer) {
+                    drain(channel, record);
+                }
+            }
+
+            if (buffer.remaining() < TRAILER_SIZE) {
+                drain(channel, buffer);
+            }
+            buffer.putInt(END_MAGIC).putLong(crc.getValue());
+            drain(channel, buffer);
+            channel.force(true);
+        }
+
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Memory-maps the snapshot and restores its offers; returns the number restored, or -1 if the file is damaged
+    static int load(Path file, OfferRepository offerRepository) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                return -1;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            if (magic != MAGIC || version < 1 || version > VERSION) {
+                logger.warn("Snapshot {} has an unknown format", file);
+                return -1;
+            }
+            buffer.getLong();
+            int count = buffer.getInt();
+
+            // Verify the whole body before touching the repository
+            int recordsEnd = (int) size - TRAILER_SIZE;
+            ByteBuffer records = buffer.duplicate();
+            records.limit(recordsEnd);
+            CRC32 crc = new CRC32();
+            crc.update(records);
+            if (buffer.getInt(recordsEnd) != END_MAGIC || buffer.getLong(recordsEnd + 4) != crc.getValue()) {
+                logger.warn("Snapshot {} failed its checksum", file);
+                return -1;
+            }
+
+            List<StoredOffer> storedOffers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                buffer.getInt();
+                OfferRequest offer = OfferCodec.readOffer(buffer, version - 1);
+                storedOffers.add(new StoredOffer(offer, OfferCodec.readStrings(buffer)));
+            }
+            offerRepository.restoreOffers(storedOffers);
+            return count;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
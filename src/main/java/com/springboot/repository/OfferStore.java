@@ -0,0 +1,203 @@
+package com.springboot.repository;
+
+import com.springboot.controller.OfferRequest;
+import com.springboot.property.OfferStoreProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Makes OfferRepository durable: every mutation goes to a write-ahead log, and the repository is
+// periodically snapshotted so a restart only has to load the latest snapshot and replay a short log tail.
+@Component
+@ConditionalOnProperty(prefix = "offer.store", name = "enabled", havingValue = "true")
+public class OfferStore implements OfferRepository.MutationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferStore.class);
+
+    private static final Pattern WAL_FILE = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final CompletableFuture<Void> NOT_AWAITED = CompletableFuture.completedFuture(null);
+
+    private final OfferRepository offerRepository;
+    private final OfferStoreProperty property;
+    private final Path directory;
+    private final LogOpener logOpener;
+    private final ScheduledExecutorService snapshotScheduler;
+
+    private OfferJournal journal;
+    // Generation of the log file currently being appended to; guarded by the repository's write lock
+    private long generation;
+
+    // Opens a log file for appending; tests substitute channels that fail part way through a write
+    @FunctionalInterface
+    public interface LogOpener {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    @Autowired
+    public OfferStore(OfferRepository offerRepository, OfferStoreProperty property) {
+        this(offerRepository, property, OfferJournal::openForAppend);
+    }
+
+    public OfferStore(OfferRepository offerRepository, OfferStoreProperty property, LogOpener logOpener) {
+        this.offerRepository = offerRepository;
+        this.property = property;
+        this.directory = Paths.get(property.getDirectory());
+        this.logOpener = logOpener;
+        this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "offer-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+
+        long snapshotGeneration = loadLatestSnapshot();
+        int replayed = 0;
+        long lastGeneration = snapshotGeneration;
+        for (long walGeneration : generations(WAL_FILE)) {
+            if (walGeneration >= snapshotGeneration) {
+                replayed += OfferJournal.replay(OfferJournal.path(directory, walGeneration), offerRepository);
+                lastGeneration = Math.max(lastGeneration, walGeneration);
+            }
+        }
+
+        // Never append to a log that may end in a torn record, start a fresh one instead
+        generation = lastGeneration + 1;
+        journal = new OfferJournal(directory, generation, logOpener);
+        offerRepository.addMutationListener(this);
+
+        logger.info("Recovered {} offers from {} (snapshot generation {}, {} log records replayed) in {} ms",
+                offerRepository.getOfferCount(), directory, snapshotGeneration, replayed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        long interval = property.getSnapshotInterval().toMillis();
+        snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<Void> offerAdded(OfferRequest offerRequest) {
+        return awaited(journal.append(offerRequest));
+    }
+
+    @Override
+    public CompletableFuture<Void> offersCleared() {
+        return awaited(journal.appendClear());
+    }
+
+    @Override
+    public CompletableFuture<Void> catalogReplaced() {
+        // Logging every offer of a replaced catalog would be slow; a snapshot records it in one go. It is written
+        // here, with the repository lock still held, so it is on disk before any later write reaches the log and
+        // recovery never replays those writes on top of the catalog that was replaced.
+        try {
+            snapshot();
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    public void snapshot() throws IOException {
+        long[] snapshotGeneration = new long[1];
+
+        // Capture the offers and switch to a new log atomically: the snapshot then covers exactly
+        // the log generations below the new one
+        List<StoredOffer> storedOffers = offerRepository.snapshotOffers(() -> {
+            generation++;
+            snapshotGeneration[0] = generation;
+            journal.rotate(generation);
+        });
+
+        OfferSnapshots.write(directory, snapshotGeneration[0], storedOffers);
+        deleteOlderThan(snapshotGeneration[0]);
+        logger.info("Wrote snapshot generation {} with {} offers", snapshotGeneration[0], storedOffers.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshotScheduler.shutdownNow();
+        // A final snapshot keeps the next startup to a single file load
+        snapshotQuietly();
+        journal.close();
+    }
+
+    private CompletableFuture<Void> awaited(CompletableFuture<Void> durable) {
+        return property.isSyncWrites() ? durable : NOT_AWAITED;
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            logger.error("Failed to write offer snapshot", e);
+        }
+    }
+
+    private long loadLatestSnapshot() throws IOException {
+        List<Long> snapshots = generations(SNAPSHOT_FILE);
+
+        // Newest first; fall back to an older snapshot if the newest is damaged
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            long snapshotGeneration = snapshots.get(i);
+            int restored = OfferSnapshots.load(OfferSnapshots.path(directory, snapshotGeneration), offerRepository);
+            if (restored >= 0) {
+                return snapshotGeneration;
+            }
+            offerRepository.replayClear();
+        }
+        return 0;
+    }
+
+    private void deleteOlderThan(long snapshotGeneration) throws IOException {
+        for (long walGeneration : generations(WAL_FILE)) {
+            if (walGeneration < snapshotGeneration) {
+                Files.deleteIfExists(OfferJournal.path(directory, walGeneration));
+            }
+        }
+        for (long olderSnapshot : generations(SNAPSHOT_FILE)) {
+            if (olderSnapshot < snapshotGeneration) {
+                Files.deleteIfExists(OfferSnapshots.path(directory, olderSnapshot));
+            }
+        }
+    }
+
+    private List<Long> generations(Pattern filePattern) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = filePattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    generations.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        generations.sort(null);
+        return generations;
+    }
+}
@@ -0,0 +1,43 @@
+package com.springboot.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns segment names to dense ints so offers can be stored in small arrays indexed by segment
+final class SegmentIds {
+
+    static final int UNKNOWN = -1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    int lookup(String segment) {
+        if (segment == null) {
+            return UNKNOWN;
+        }
+        Integer id = ids.get(segment);
+        return id == null ? UNKNOWN : id;
+    }
+
+    int intern(String segment) {
+        Integer id = ids.get(segment);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            return ids.computeIfAbsent(segment, key -> {
+                names.add(key);
+                return names.size() - 1;
+            });
+        }
+    }
+
+    synchronized String name(int id) {
+        return names.get(id);
+    }
+
+    int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,26 @@
+package com.springboot.repository;
+
+import com.springboot.controller.OfferRequest;
+
+import java.util.List;
+
+// An offer together with the segments it actually occupies in the repository.
+// These are a subset of the offer's customer segments where the very same offer was already stored for some.
+public final class StoredOffer {
+
+    private final OfferRequest offer;
+    private final List<String> segments;
+
+    public StoredOffer(OfferRequest offer, List<String> segments) {
+        this.offer = offer;
+        this.segments = segments;
+    }
+
+    public OfferRequest getOffer() {
+        return offer;
+    }
+
+    public List<String> getSegments() {
+        return segments;
+    }
+}
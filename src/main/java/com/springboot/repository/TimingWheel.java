@@ -0,0 +1,130 @@
+package com.springboot.repository;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel (Varghese & Lauck): level 0 has one slot per tick, and each higher level has one slot
+// per full turn of the level below. A timer is filed in the lowest level whose span reaches its due tick, and
+// moves down a level each time the clock reaches the start of its slot. Scheduling is O(1) however far ahead the
+// timer is, each timer is moved at most once per level, and advancing the clock only visits the current slots,
+// so millions of pending timers cost nothing until they are due. Not thread-safe; callers hold a lock.
+final class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 9;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // With 100ms ticks: 51s, 7.3h, 155 days and 218 years
+    private static final int LEVELS = 4;
+
+    private static final class Timer<T> {
+        final long dueTick;
+        final T value;
+        Timer<T> next;
+
+        Timer(long dueTick, T value) {
+            this.dueTick = dueTick;
+            this.value = value;
+        }
+    }
+
+    private final long tickMillis;
+    // Singly linked list of timers per slot, per level
+    private final Timer<T>[][] slots;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = new Timer[LEVELS][SLOTS];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Files a timer for dueMillis; returns false, without filing it, if it is already due
+    boolean schedule(long dueMillis, T value) {
+        // Rounded up, so a timer never fires before it is due
+        long dueTick = (dueMillis + tickMillis - 1) / tickMillis;
+        if (dueTick <= currentTick) {
+            return false;
+        }
+        file(new Timer<>(dueTick, value));
+        size++;
+        return true;
+    }
+
+    private void file(Timer<T> timer) {
+        long delta = timer.dueTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((timer.dueTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        timer.next = slots[level][slot];
+        slots[level][slot] = timer;
+    }
+
+    // Moves the clock to nowMillis tick by tick, handing every timer that has come due to expired.
+    // expired may schedule further timers.
+    void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                // Nothing to visit on the way
+                currentTick = targetTick;
+                return;
+            }
+            currentTick++;
+
+            // At the start of a higher-level slot its timers move down, highest level first
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK), expired);
+                }
+            }
+
+            int slot = (int) (currentTick & SLOT_MASK);
+            Timer<T> timer = slots[0][slot];
+            slots[0][slot] = null;
+            fire(timer, expired);
+        }
+    }
+
+    private void cascade(int level, int slot, Consumer<T> expired) {
+        Timer<T> timer = slots[level][slot];
+        slots[level][slot] = null;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            if (timer.dueTick <= currentTick) {
+                size--;
+                expired.accept(timer.value);
+            } else {
+                // Timers too far ahead for the top level come back to the same slot on a later turn
+                file(timer);
+            }
+            timer = next;
+        }
+    }
+
+    private void fire(Timer<T> timer, Consumer<T> expired) {
+        while (timer != null) {
+            size--;
+            expired.accept(timer.value);
+            timer = timer.next;
+        }
+    }
+
+    void clear() {
+        for (Timer<T>[] level : slots) {
+            Arrays.fill(level, null);
+        }
+        size = 0;
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+}
@@ -0,0 +1,97 @@
+package com.springboot.service;
+
+import com.springboot.client.AsyncSegmentClient;
+import com.springboot.client.SegmentUnavailableException;
+import com.springboot.controller.ApplyOfferRequest;
+import com.springboot.controller.ApplyOfferResponse;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.OfferMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Non-blocking counterpart of OfferService.applyOffer. Validation and offer resolution are shared with
+// OfferService; only the segment lookup differs, completing on the async client's I/O threads.
+@Service
+@ConditionalOnProperty(prefix = "offer.async", name = "enabled", havingValue = "true")
+public class AsyncOfferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncOfferService.class);
+
+    private final OfferService offerService;
+    private final AsyncSegmentClient segmentClient;
+    private final SegmentCache segmentCache;
+    private final OfferMetrics offerMetrics;
+    private final SingleFlight<Integer, SegmentResponse> segmentLookups = new SingleFlight<>();
+
+    @Autowired
+    public AsyncOfferService(OfferService offerService, AsyncSegmentClient segmentClient, SegmentCache segmentCache,
+                             OfferMetrics offerMetrics) {
+        this.offerService = offerService;
+        this.segmentClient = segmentClient;
+        this.segmentCache = segmentCache;
+        this.offerMetrics = offerMetrics;
+    }
+
+    // Invalid requests throw IllegalArgumentException straight away, as in the blocking path
+    public CompletableFuture<ApplyOfferResponse> applyOffer(ApplyOfferRequest applyOfferRequest) {
+        long start = System.nanoTime();
+        offerService.validateApplyOfferRequest(applyOfferRequest);
+
+        // Guarded like the blocking path: the boxed ids and the varargs array would be allocated even with debug off
+        if (logger.isDebugEnabled()) {
+            logger.debug("Applying offer asynchronously for user_id={}, restaurant_id={}, cart_value={}",
+                    applyOfferRequest.getUser_id(), applyOfferRequest.getRestaurant_id(),
+                    applyOfferRequest.getCart_value());
+        }
+
+        return getUserSegment(applyOfferRequest.getUser_id())
+                .thenApply(segmentResponse -> offerService.resolveOffer(applyOfferRequest, segmentResponse,
+                        offerService.getCatalog()))
+                .whenComplete((response, failure) -> offerMetrics.recordApply(System.nanoTime() - start));
+    }
+
+    CompletableFuture<SegmentResponse> getUserSegment(int userId) {
+        long start = System.nanoTime();
+        SegmentResponse local = offerService.getSnapshotSegment(userId);
+        if (local != null) {
+            offerMetrics.recordSegmentLookup(System.nanoTime() - start);
+            return CompletableFuture.completedFuture(local);
+        }
+        return segmentCache.getAsync(userId, this::fetchUserSegment)
+                .whenComplete((segment, failure) -> offerMetrics.recordSegmentLookup(System.nanoTime() - start));
+    }
+
+    // Never completes exceptionally: failures are counted and logged, and the cart is priced without a segment
+    private CompletableFuture<SegmentResponse> fetchUserSegment(int userId) {
+        return segmentLookups.executeAsync(userId, segmentClient::getSegmentAsync).handle((segment, failure) -> {
+            if (failure == null) {
+                if (segment == null) {
+                    offerMetrics.segmentNotFound();
+                }
+                return segment;
+            }
+
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            if (cause instanceof SegmentUnavailableException) {
+                // Failing fast is expected while the segment service is down, so no stack trace
+                offerMetrics.segmentRejected();
+                logger.debug("Segment lookup skipped for user_id={}: {}", userId, cause.getMessage());
+            } else if (cause instanceof InterruptedIOException) {
+                offerMetrics.segmentTimeout();
+                logger.error("Timed out getting user segment for user_id={}", userId, cause);
+            } else {
+                offerMetrics.segmentError();
+                logger.error("Failed to get user segment for user_id={}", userId, cause);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package com.springboot.service;
+
+import com.springboot.controller.ApplyOfferRequest;
+import com.springboot.controller.ApplyOfferResponse;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.property.OfferBatchProperty;
+import com.springboot.property.VirtualThreadProperty;
+import com.springboot.repository.OfferCatalog;
+import com.springboot.threads.VirtualThreads;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class OfferBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferBatchService.class);
+
+    private final OfferService offerService;
+    private final int maxBatchSize;
+    private final ExecutorService lookupExecutor;
+
+    @Autowired
+    public OfferBatchService(OfferService offerService, OfferBatchProperty property,
+                             VirtualThreadProperty virtualThreadProperty) {
+        this.offerService = offerService;
+        this.maxBatchSize = property.getMaxSize();
+
+        if (virtualThreadProperty.isEnabled()) {
+            // Every lookup of a batch waits on the segment service at once; lookup-threads no longer applies
+            this.lookupExecutor = VirtualThreads.newThreadPerTaskExecutor("segment-batch-lookup-");
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.lookupExecutor = Executors.newFixedThreadPool(property.getLookupThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "segment-batch-lookup-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public List<ApplyOfferResponse> applyOffers(List<ApplyOfferRequest> requests) throws Exception {
+        if (requests == null) {
+            throw new IllegalArgumentException("Apply offer batch cannot be null");
+        }
+
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Apply offer batch cannot exceed " + maxBatchSize + " requests");
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                offerService.validateApplyOfferRequest(requests.get(i));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid request at index " + i + ": " + e.getMessage());
+            }
+        }
+
+        logger.debug("Applying offers for batch of {} carts", requests.size());
+
+        Map<Integer, SegmentResponse> segments = lookupSegments(requests);
+
+        // Resolve every cart against one catalog version in a single pass, keeping request order,
+        // so offers changing mid-batch never price carts of the same batch differently
+        OfferCatalog catalog = offerService.getCatalog();
+        List<ApplyOfferResponse> responses = new ArrayList<>(requests.size());
+        for (ApplyOfferRequest request : requests) {
+            SegmentResponse segment = segments.get(request.getUser_id());
+            responses.add(offerService.resolveOffer(request, segment, catalog));
+        }
+
+        return responses;
+    }
+
+    private Map<Integer, SegmentResponse> lookupSegments(List<ApplyOfferRequest> requests) throws Exception {
+        // One lookup per distinct user, all running concurrently
+        Map<Integer, CompletableFuture<SegmentResponse>> lookups = new HashMap<>();
+        for (ApplyOfferRequest request : requests) {
+            lookups.computeIfAbsent(request.getUser_id(), userId -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return offerService.getUserSegment(userId);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, lookupExecutor));
+        }
+
+        Map<Integer, SegmentResponse> segments = new HashMap<>(lookups.size() * 2);
+        for (Map.Entry<Integer, CompletableFuture<SegmentResponse>> lookup : lookups.entrySet()) {
+            try {
+                segments.put(lookup.getKey(), lookup.getValue().join());
+            } catch (CompletionException e) {
+                logger.error("Failed to get user segment for user_id={}", lookup.getKey(), e.getCause());
+            }
+        }
+
+        return segments;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
+}
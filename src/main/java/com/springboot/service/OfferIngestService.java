@@ -0,0 +1,153 @@
+package com.springboot.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.controller.BulkOfferResponse;
+import com.springboot.controller.OfferRequest;
+import com.springboot.property.OfferIngestProperty;
+import com.springboot.repository.OfferRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Loads offers from a stream of NDJSON lines or one large JSON array, one record at a time,
+// so a catalog of millions of offers never has to be held in memory as a request body.
+@Service
+public class OfferIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferIngestService.class);
+
+    public static final String MODE_APPEND = "append";
+    public static final String MODE_REPLACE = "replace";
+
+    private final OfferService offerService;
+    private final OfferRepository offerRepository;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    @Autowired
+    public OfferIngestService(OfferService offerService, OfferRepository offerRepository, ObjectMapper objectMapper,
+                              OfferIngestProperty property) {
+        this.offerService = offerService;
+        this.offerRepository = offerRepository;
+        this.objectMapper = objectMapper;
+        this.batchSize = property.getBatchSize();
+        this.maxReportedErrors = property.getMaxReportedErrors();
+    }
+
+    public BulkOfferResponse ingest(InputStream body, String mode) throws IOException {
+        boolean replace;
+        if (MODE_APPEND.equalsIgnoreCase(mode)) {
+            replace = false;
+        } else if (MODE_REPLACE.equalsIgnoreCase(mode)) {
+            replace = true;
+        } else {
+            throw new IllegalArgumentException("Unsupported ingest mode: " + mode + ". Supported modes: "
+                    + MODE_APPEND + ", " + MODE_REPLACE);
+        }
+
+        long start = System.nanoTime();
+        BulkOfferResponse response = new BulkOfferResponse();
+        response.setMode(replace ? MODE_REPLACE : MODE_APPEND);
+
+        // Replace mode builds the new catalog off to the side and only publishes it if every record is valid
+        OfferRepository.CatalogBuilder catalog = replace ? offerRepository.newCatalog() : null;
+        List<OfferRequest> batch = new ArrayList<>(batchSize);
+        boolean complete = readOffers(body, response, offer -> {
+            if (replace) {
+                catalog.add(offer);
+            } else {
+                batch.add(offer);
+                if (batch.size() >= batchSize) {
+                    offerRepository.addOffers(batch);
+                    batch.clear();
+                }
+            }
+        });
+
+        if (replace) {
+            if (complete && response.getRejected() == 0) {
+                offerRepository.replaceOffers(catalog);
+                response.setResponseMsg("success");
+            } else {
+                response.setResponseMsg("Catalog not replaced: " + response.getRejected() + " invalid offers");
+            }
+        } else {
+            if (!batch.isEmpty()) {
+                offerRepository.addOffers(batch);
+            }
+            response.setResponseMsg(complete && response.getRejected() == 0 ? "success" : "completed with errors");
+        }
+
+        logger.info("Ingested offers in {} mode: received={}, accepted={}, rejected={} in {} ms",
+                response.getMode(), response.getReceived(), response.getAccepted(), response.getRejected(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return response;
+    }
+
+    private interface OfferSink {
+        void accept(OfferRequest offerRequest);
+    }
+
+    // Returns false if the stream was cut short by malformed JSON
+    private boolean readOffers(InputStream body, BulkOfferResponse response, OfferSink sink) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            // Position of the record being read, so a syntax error can be pinned to it
+            long index = 1;
+            try {
+                JsonToken token = parser.nextToken();
+                // A top-level array holds the offers; otherwise the body is a sequence of root values (NDJSON)
+                if (token == JsonToken.START_ARRAY) {
+                    token = parser.nextToken();
+                }
+
+                while (token != null && token != JsonToken.END_ARRAY) {
+                    int line = parser.getTokenLocation().getLineNr();
+                    response.setReceived(index);
+
+                    // Reading a tree first keeps a record with bad field types from derailing the parser
+                    JsonNode node = parser.readValueAsTree();
+                    try {
+                        OfferRequest offer = objectMapper.treeToValue(node, OfferRequest.class);
+                        offerService.validateOfferRequest(offer);
+                        sink.accept(offer);
+                        response.setAccepted(response.getAccepted() + 1);
+                    } catch (JsonProcessingException e) {
+                        reject(response, index, line, e.getOriginalMessage());
+                    } catch (IllegalArgumentException e) {
+                        reject(response, index, line, e.getMessage());
+                    }
+
+                    index++;
+                    token = parser.nextToken();
+                }
+                return true;
+            } catch (JsonParseException e) {
+                // Nothing after a syntax error can be trusted, so the rest of the stream is dropped
+                int line = e.getLocation() != null ? e.getLocation().getLineNr() : -1;
+                response.setReceived(index);
+                reject(response, index, line, "Malformed JSON: " + e.getOriginalMessage());
+                return false;
+            }
+        }
+    }
+
+    private void reject(BulkOfferResponse response, long index, int line, String error) {
+        response.setRejected(response.getRejected() + 1);
+        if (response.getErrors().size() < maxReportedErrors) {
+            response.getErrors().add(new BulkOfferResponse.RecordError(index, line, error));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.springboot.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.springboot.controller.OfferRequest;
+import com.springboot.repository.OfferCatalog;
+import com.springboot.repository.OfferCursor;
+import com.springboot.repository.OfferRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+// Writes pages of the offer catalog straight to the response as they are read from one catalog version,
+// so listing millions of offers never builds a list of them or a response body in memory.
+@Service
+public class OfferListingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferListingService.class);
+
+    public static final int DEFAULT_LIMIT = 500;
+    public static final int MAX_LIMIT = 10_000;
+
+    private final OfferRepository offerRepository;
+    private final ObjectMapper objectMapper;
+    // Left to the servlet container to flush as its buffer fills, rather than once per offer
+    private final ObjectWriter offerWriter;
+
+    @Autowired
+    public OfferListingService(OfferRepository offerRepository, ObjectMapper objectMapper) {
+        this.offerRepository = offerRepository;
+        this.objectMapper = objectMapper;
+        this.offerWriter = objectMapper.writerFor(OfferRequest.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    // Validates before anything is written, so a bad request can still be answered with an error
+    public void list(Integer restaurantId, String segment, String cursor, int limit, OutputStream out)
+            throws IOException {
+        if (restaurantId != null && restaurantId <= 0) {
+            throw new IllegalArgumentException("Restaurant ID must be positive");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        OfferCursor from = cursor == null || cursor.isEmpty() ? null : OfferCursor.decode(cursor);
+        int pageSize = Math.min(limit, MAX_LIMIT);
+
+        OfferCatalog catalog = offerRepository.getCatalog();
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            json.writeNumberField("catalog_version", catalog.getVersion());
+            json.writeArrayFieldStart("offers");
+            OfferCursor next = catalog.scanOffers(restaurantId, segment, from, pageSize, offer -> {
+                try {
+                    offerWriter.writeValue(json, offer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+            json.writeStringField("next_cursor", next == null ? null : next.encode());
+            json.writeEndObject();
+        } catch (UncheckedIOException e) {
+            // Usually the client going away mid-page
+            logger.debug("Offer listing aborted: {}", e.getCause().getMessage());
+            throw e.getCause();
+        }
+    }
+}
@@ -1,34 +1,61 @@
 package com.springboot.service;
 
+import com.springboot.client.SegmentClient;
+import com.springboot.client.SegmentUnavailableException;
 import com.springboot.controller.OfferRequest;
 import com.springboot.controller.ApplyOfferRequest;
 import com.springboot.controller.ApplyOfferResponse;
 import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.HotKeys;
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.offer.OfferSelection;
+import com.springboot.repository.OfferCatalog;
 import com.springboot.repository.OfferRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.util.Optional;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 
 @Service
 public class OfferService {
 
     private static final Logger logger = LoggerFactory.getLogger(OfferService.class);
+    // Longest segment list, and longest segment name in UTF-8 bytes, that the offer store can write
+    private static final int MAX_STORED_LENGTH = Short.MAX_VALUE;
+
     private final OfferRepository offerRepository;
-    private final ObjectMapper objectMapper;
+    private final SegmentClient segmentClient;
+    private final SegmentCache segmentCache;
+    // Null when the service is assembled by hand without one
+    private final SegmentSnapshot segmentSnapshot;
+    private final OfferMetrics offerMetrics;
+    // Null when disabled or when the service is assembled by hand without one
+    private final HotKeys hotKeys;
+    // Concurrent lookups for the same user share one call to the segment service
+    private final SingleFlight<Integer, SegmentResponse> segmentLookups = new SingleFlight<>();
+
+    public OfferService(OfferRepository offerRepository, SegmentClient segmentClient, SegmentCache segmentCache,
+                        OfferMetrics offerMetrics) {
+        this(offerRepository, segmentClient, segmentCache, null, offerMetrics);
+    }
+
+    public OfferService(OfferRepository offerRepository, SegmentClient segmentClient, SegmentCache segmentCache,
+                        SegmentSnapshot segmentSnapshot, OfferMetrics offerMetrics) {
+        this(offerRepository, segmentClient, segmentCache, segmentSnapshot, offerMetrics, null);
+    }
 
     @Autowired
-    public OfferService(OfferRepository offerRepository) {
+    public OfferService(OfferRepository offerRepository, SegmentClient segmentClient, SegmentCache segmentCache,
+                        SegmentSnapshot segmentSnapshot, OfferMetrics offerMetrics, HotKeys hotKeys) {
         this.offerRepository = offerRepository;
-        this.objectMapper = new ObjectMapper();
+        this.segmentClient = segmentClient;
+        this.segmentCache = segmentCache;
+        this.segmentSnapshot = segmentSnapshot != null && segmentSnapshot.isEnabled() ? segmentSnapshot : null;
+        this.offerMetrics = offerMetrics;
+        this.hotKeys = hotKeys != null && hotKeys.isEnabled() ? hotKeys : null;
     }
 
     public boolean addOffer(OfferRequest offerRequest) {
@@ -38,7 +65,7 @@ public class OfferService {
 
         if (result) {
             logger.info("Successfully added offer: restaurant_id={}, offer_type={}, offer_value={}, segments={}",
-                    offerRequest.getRestaurantId(), offerRequest.getOfferValue(),
+                    offerRequest.getRestaurantId(), offerRequest.getOfferType(),
                     offerRequest.getOfferValue(), offerRequest.getCustomerSegment());
         }
 
@@ -46,84 +73,130 @@ public class OfferService {
     }
 
     public ApplyOfferResponse applyOffer(ApplyOfferRequest applyOfferRequest) throws Exception {
+        long start = System.nanoTime();
         validateApplyOfferRequest(applyOfferRequest);
 
+        // Guarded on the hot path: the boxed ids and the varargs array would be allocated even with debug off
+        if (logger.isDebugEnabled()) {
+            logger.debug("Applying offer for user_id={}, restaurant_id={}, cart_value={}",
+                    applyOfferRequest.getUser_id(), applyOfferRequest.getRestaurant_id(),
+                    applyOfferRequest.getCart_value());
+        }
+
+        try {
+            // Get user segment
+            SegmentResponse segmentResponse = getUserSegment(applyOfferRequest.getUser_id());
+
+            return resolveOffer(applyOfferRequest, segmentResponse, getCatalog());
+        } finally {
+            // Applies that fail are timed as well, since their latency is the one most worth seeing
+            offerMetrics.recordApply(System.nanoTime() - start);
+        }
+    }
+
+    // A single volatile read; pricing several carts against the same version keeps them consistent
+    OfferCatalog getCatalog() {
+        return offerRepository.getCatalog();
+    }
+
+    ApplyOfferResponse resolveOffer(ApplyOfferRequest applyOfferRequest, SegmentResponse segmentResponse,
+                                    OfferCatalog catalog) {
         int originalCartValue = applyOfferRequest.getCart_value();
         int finalCartValue = originalCartValue;
 
-        logger.info("Applying offer for user_id={}, restaurant_id={}, cart_value={}",
-                applyOfferRequest.getUser_id(), applyOfferRequest.getRestaurant_id(), originalCartValue);
-
-        // Get user segment
-        SegmentResponse segmentResponse = getUserSegment(applyOfferRequest.getUser_id());
+        // Shared by the single, batch and async paths, so every priced cart is counted once
+        if (hotKeys != null) {
+            hotKeys.record(applyOfferRequest.getRestaurant_id(), applyOfferRequest.getUser_id(),
+                    segmentResponse == null ? null : segmentResponse.getSegment());
+        }
 
         if (segmentResponse != null) {
             String userSegment = segmentResponse.getSegment();
-            logger.info("User {} belongs to segment: {}", applyOfferRequest.getUser_id(), userSegment);
-
-            // Find matching offer
-            Optional<OfferRequest> matchingOffer = offerRepository.getOffer(
-                    applyOfferRequest.getRestaurant_id(), userSegment);
-
-            if (matchingOffer.isPresent()) {
-                OfferRequest offer = matchingOffer.get();
-                finalCartValue = calculateDiscount(originalCartValue, offer);
+            if (logger.isDebugEnabled()) {
+                logger.debug("User {} belongs to segment: {}", applyOfferRequest.getUser_id(), userSegment);
+            }
 
-                logger.info("Offer applied: type={}, value={}, original_cart={}, final_cart={}",
-                        offer.getOfferType(), offer.getOfferValue(), originalCartValue, finalCartValue);
+            // Find matching offers, already ranked when they were added
+            long lookupStart = System.nanoTime();
+            OfferSelection matchingOffers = catalog.findOffer(applyOfferRequest.getRestaurant_id(), userSegment);
+            long discountStart = System.nanoTime();
+            offerMetrics.recordRepositoryLookup(discountStart - lookupStart);
+
+            if (matchingOffers != null) {
+                OfferRequest offer = matchingOffers.getPrimary().getOffer();
+                finalCartValue = matchingOffers.apply(originalCartValue, applyOfferRequest.getItem_count());
+                offerMetrics.recordDiscount(System.nanoTime() - discountStart);
+                offerMetrics.offerHit(offer.getOfferType());
+
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Offer applied: type={}, value={}, offers_applied={}, original_cart={}, final_cart={}",
+                            offer.getOfferType(), offer.getOfferValue(), matchingOffers.getAppliedCount(),
+                            originalCartValue, finalCartValue);
+                }
             } else {
-                logger.info("No matching offer found for restaurant_id={} and segment={}",
-                        applyOfferRequest.getRestaurant_id(), userSegment);
+                offerMetrics.offerMiss();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("No matching offer found for restaurant_id={} and segment={}",
+                            applyOfferRequest.getRestaurant_id(), userSegment);
+                }
             }
         } else {
-            logger.warn("Could not determine user segment for user_id={}", applyOfferRequest.getUser_id());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Could not determine user segment for user_id={}", applyOfferRequest.getUser_id());
+            }
         }
 
-        return new ApplyOfferResponse(finalCartValue);
+        return new ApplyOfferResponse(finalCartValue, catalog.getVersion());
     }
 
-    private int calculateDiscount(int cartValue, OfferRequest offer) {
-        int finalValue = cartValue;
-
-        if ("FLATX".equals(offer.getOfferType())) {
-            finalValue = cartValue - offer.getOfferValue();
-        } else if ("FLAT%".equals(offer.getOfferType()) || "FLATP".equals(offer.getOfferType())) {
-            double discountAmount = cartValue * offer.getOfferValue() * 0.01;
-            finalValue = (int) (cartValue - discountAmount);
+    SegmentResponse getUserSegment(int userId) throws Exception {
+        long start = System.nanoTime();
+        try {
+            // Batch-assigned users are answered from the local snapshot without touching the cache
+            SegmentResponse local = getSnapshotSegment(userId);
+            if (local != null) {
+                return local;
+            }
+            return segmentCache.get(userId, this::fetchUserSegment);
+        } finally {
+            offerMetrics.recordSegmentLookup(System.nanoTime() - start);
         }
-
-        // Ensure cart value doesn't go negative (preserve current behavior)
-        // Note: Based on your logs, the app allows negative values, so we maintain that
-        return finalValue;
     }
 
-    private SegmentResponse getUserSegment(int userId) throws Exception {
-        String url = "http://localhost:1080/api/v1/user_segment?user_id=" + userId;
+    SegmentResponse getSnapshotSegment(int userId) {
+        return segmentSnapshot == null ? null : segmentSnapshot.get(userId);
+    }
 
+    private SegmentResponse fetchUserSegment(int userId) {
         try {
-            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-            connection.setRequestMethod("GET");
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode == 200) {
-                try (InputStream is = connection.getInputStream();
-                     BufferedReader br = new BufferedReader(new InputStreamReader(is, "utf-8"))) {
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        response.append(line.trim());
-                    }
-                    return objectMapper.readValue(response.toString(), SegmentResponse.class);
-                }
+            SegmentResponse segment = segmentLookups.execute(userId, segmentClient::getSegment);
+            if (segment == null) {
+                offerMetrics.segmentNotFound();
+            }
+            return segment;
+        } catch (SegmentUnavailableException e) {
+            // Failing fast is expected while the segment service is down, so no stack trace
+            offerMetrics.segmentRejected();
+            logger.debug("Segment lookup skipped for user_id={}: {}", userId, e.getMessage());
+        } catch (InterruptedIOException e) {
+            // Connect, read and pool-wait timeouts and an exceeded budget all surface as InterruptedIOException, and
+            // so does an interrupt of this thread; only the interrupt leaves the flag set
+            if (Thread.currentThread().isInterrupted()) {
+                offerMetrics.segmentCancelled();
+                logger.debug("Segment lookup cancelled for user_id={}: {}", userId, e.getMessage());
+            } else {
+                offerMetrics.segmentTimeout();
+                logger.error("Timed out getting user segment for user_id={}", userId, e);
             }
         } catch (Exception e) {
+            offerMetrics.segmentError();
             logger.error("Failed to get user segment for user_id={}", userId, e);
         }
 
         return null;
     }
 
-    private void validateOfferRequest(OfferRequest offerRequest) {
+    void validateOfferRequest(OfferRequest offerRequest) {
         if (offerRequest == null) {
             throw new IllegalArgumentException("Offer request cannot be null");
         }
@@ -136,12 +209,6 @@ public class OfferService {
             throw new IllegalArgumentException("Offer type cannot be null or empty");
         }
 
-        String offerType = offerRequest.getOfferType().trim();
-        if (!"FLATX".equals(offerType) && !"FLAT%".equals(offerType) && !"FLATP".equals(offerType)) {
-            throw new IllegalArgumentException("Unsupported offer type: " + offerType +
-                    ". Supported types: FLATX, FLAT%, FLATP");
-        }
-
         if (offerRequest.getOfferValue() < 0) {
             throw new IllegalArgumentException("Offer value cannot be negative");
         }
@@ -149,9 +216,36 @@ public class OfferService {
         if (offerRequest.getCustomerSegment() == null || offerRequest.getCustomerSegment().isEmpty()) {
             throw new IllegalArgumentException("Customer segments cannot be null or empty");
         }
+
+        // The store writes segment counts and names with 16-bit lengths
+        if (offerRequest.getCustomerSegment().size() > MAX_STORED_LENGTH) {
+            throw new IllegalArgumentException("An offer cannot have more than " + MAX_STORED_LENGTH + " customer segments");
+        }
+
+        for (String segment : offerRequest.getCustomerSegment()) {
+            if (segment == null || segment.trim().isEmpty()) {
+                throw new IllegalArgumentException("Customer segment names cannot be null or empty");
+            }
+            if (segment.length() > MAX_STORED_LENGTH / 3
+                    && segment.getBytes(StandardCharsets.UTF_8).length > MAX_STORED_LENGTH) {
+                throw new IllegalArgumentException("Customer segment names cannot be longer than " + MAX_STORED_LENGTH + " bytes");
+            }
+        }
+
+        if (offerRequest.getValidFrom() != null && offerRequest.getValidUntil() != null
+                && !offerRequest.getValidUntil().isAfter(offerRequest.getValidFrom())) {
+            throw new IllegalArgumentException("Offer valid_until must be after valid_from");
+        }
+
+        if (offerRequest.getValidUntil() != null && offerRequest.getValidUntil().toEpochMilli() <= System.currentTimeMillis()) {
+            throw new IllegalArgumentException("Offer window has already ended");
+        }
+
+        // Rejects unknown types and checks the fields specific to the offer's type
+        offerRepository.getOfferTypes().validate(offerRequest);
     }
 
-    private void validateApplyOfferRequest(ApplyOfferRequest request) {
+    void validateApplyOfferRequest(ApplyOfferRequest request) {
         if (request == null) {
             throw new IllegalArgumentException("Apply offer request cannot be null");
         }
@@ -167,6 +261,10 @@ public class OfferService {
         if (request.getCart_value() < 0) {
             throw new IllegalArgumentException("Cart value cannot be negative");
         }
+
+        if (request.getItem_count() < 0) {
+            throw new IllegalArgumentException("Item count cannot be negative");
+        }
     }
 
     public void clearOffers() {
@@ -0,0 +1,55 @@
+package com.springboot.service;
+
+import com.springboot.repository.OfferRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Drives the repository's timing wheel, starting and ending offer validity windows as they come due
+@Component
+public class OfferWindowClock {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferWindowClock.class);
+
+    private final OfferRepository offerRepository;
+    private ScheduledExecutorService ticker;
+
+    @Autowired
+    public OfferWindowClock(OfferRepository offerRepository) {
+        this.offerRepository = offerRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "offer-window-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, OfferRepository.SCHEDULE_TICK_MILLIS,
+                OfferRepository.SCHEDULE_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        try {
+            offerRepository.advanceClock();
+        } catch (RuntimeException e) {
+            // A failed tick must not cancel the schedule; the next one catches up
+            logger.error("Failed to apply offer window changes", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+}
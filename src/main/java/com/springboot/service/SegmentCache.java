@@ -0,0 +1,227 @@
+package com.springboot.service;
+
+import com.springboot.controller.SegmentResponse;
+import com.springboot.property.SegmentCacheProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+@Component
+public class SegmentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentCache.class);
+
+    @FunctionalInterface
+    public interface Loader {
+        SegmentResponse load(int userId) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface AsyncLoader {
+        CompletableFuture<SegmentResponse> load(int userId);
+    }
+
+    private static final class Entry {
+        final SegmentResponse segment;
+        final long loadedAtNanos;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(SegmentResponse segment, long loadedAtNanos) {
+            this.segment = segment;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+
+    private final boolean enabled;
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    // Insertion order of keys, used to evict the oldest entries once the cache is full
+    private final ConcurrentLinkedQueue<Integer> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final ThreadPoolExecutor refresher;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    @Autowired
+    public SegmentCache(SegmentCacheProperty property) {
+        this(property, System::nanoTime);
+    }
+
+    public SegmentCache(SegmentCacheProperty property, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.enabled = property.isEnabled();
+        this.maximumSize = property.getMaximumSize();
+        this.ttlNanos = property.getTtl().toNanos();
+        this.refreshAfterNanos = Math.min(property.getRefreshAfter().toNanos(), ttlNanos);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.refresher = new ThreadPoolExecutor(property.getRefreshThreads(), property.getRefreshThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1024), runnable -> {
+            Thread thread = new Thread(runnable, "segment-cache-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SegmentResponse get(int userId, Loader loader) throws Exception {
+        if (!enabled) {
+            return loader.load(userId);
+        }
+
+        long now = nanoClock.getAsLong();
+        Entry entry = entries.get(userId);
+
+        if (entry != null) {
+            long age = now - entry.loadedAtNanos;
+            if (age < ttlNanos) {
+                hitCount.incrementAndGet();
+                if (age >= refreshAfterNanos) {
+                    scheduleRefresh(userId, entry, loader);
+                }
+                return entry.segment;
+            }
+        }
+
+        missCount.incrementAndGet();
+        SegmentResponse segment = loader.load(userId);
+        store(userId, segment);
+        return segment;
+    }
+
+    // Same policy as get, for loaders that do not block: misses and refreshes complete on the loader's threads
+    public CompletableFuture<SegmentResponse> getAsync(int userId, AsyncLoader loader) {
+        if (!enabled) {
+            return loader.load(userId);
+        }
+
+        long now = nanoClock.getAsLong();
+        Entry entry = entries.get(userId);
+
+        if (entry != null) {
+            long age = now - entry.loadedAtNanos;
+            if (age < ttlNanos) {
+                hitCount.incrementAndGet();
+                if (age >= refreshAfterNanos && entry.refreshing.compareAndSet(false, true)) {
+                    loader.load(userId).whenComplete((segment, failure) -> {
+                        if (failure == null && segment != null) {
+                            store(userId, segment);
+                            refreshCount.incrementAndGet();
+                        } else {
+                            entry.refreshing.set(false);
+                        }
+                    });
+                }
+                return CompletableFuture.completedFuture(entry.segment);
+            }
+        }
+
+        missCount.incrementAndGet();
+        return loader.load(userId).thenApply(segment -> {
+            store(userId, segment);
+            return segment;
+        });
+    }
+
+    private void scheduleRefresh(int userId, Entry entry, Loader loader) {
+        // Only one background reload per entry at a time
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            refresher.execute(() -> {
+                try {
+                    SegmentResponse segment = loader.load(userId);
+                    if (segment != null) {
+                        store(userId, segment);
+                        refreshCount.incrementAndGet();
+                    } else {
+                        entry.refreshing.set(false);
+                    }
+                } catch (Exception e) {
+                    logger.warn("Background refresh of segment failed for user_id={}", userId, e);
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Refresh queue is full, the entry will be retried on a later hit
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void store(int userId, SegmentResponse segment) {
+        // Failed or empty lookups are not cached so they are retried on the next request. An expired entry is left
+        // in place: it is never served again, and size-based eviction reclaims its slot like any other.
+        if (segment == null) {
+            return;
+        }
+
+        Entry previous = entries.put(userId, new Entry(segment, nanoClock.getAsLong()));
+        if (previous == null) {
+            insertionOrder.offer(userId);
+            evictIfNeeded();
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (entries.size() > maximumSize) {
+            Integer oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest) != null) {
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        insertionOrder.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,232 @@
+package com.springboot.service;
+
+import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.property.SegmentSnapshotProperty;
+import com.springboot.repository.IntTrie;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local source of batch-assigned segments: the nightly segment job's user_id -> segment file, memory-mapped,
+// with the job's delta files applied on top in the background. Consulted before the segment cache; only
+// users it does not list go to the segment service.
+@Component
+public class SegmentSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentSnapshot.class);
+
+    // Overlay value for a user a delta removed from the batch assignment
+    private static final SegmentResponse UNASSIGNED = new SegmentResponse();
+
+    // Published as a whole, so a lookup sees one snapshot with one consistent set of deltas
+    private static final class State {
+        final SegmentSnapshotFiles.MappedSegments mapped;
+        final SegmentResponse[] responses;
+        // Users the applied deltas changed; each refresh extends the previous version, copying only the paths it touches
+        final IntTrie<SegmentResponse> overlay;
+        final long appliedSequence;
+        final Object fileKey;
+
+        State(SegmentSnapshotFiles.MappedSegments mapped, SegmentResponse[] responses,
+              IntTrie<SegmentResponse> overlay, long appliedSequence, Object fileKey) {
+            this.mapped = mapped;
+            this.responses = responses;
+            this.overlay = overlay;
+            this.appliedSequence = appliedSequence;
+            this.fileKey = fileKey;
+        }
+    }
+
+    private final boolean enabled;
+    private final Path file;
+    private final Path deltaDirectory;
+    private final long refreshIntervalMillis;
+    private final OfferMetrics offerMetrics;
+    private ScheduledExecutorService refresher;
+
+    private volatile State state;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    @Autowired
+    public SegmentSnapshot(SegmentSnapshotProperty property, OfferMetrics offerMetrics) {
+        this.enabled = property.isEnabled();
+        this.file = Paths.get(property.getFile());
+        this.deltaDirectory = Paths.get(property.getDeltaDirectory());
+        this.refreshIntervalMillis = property.getRefreshInterval().toMillis();
+        this.offerMetrics = offerMetrics;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        offerMetrics.registerSegmentSnapshot(this);
+        refresh();
+
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-snapshot-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // The user's batch-assigned segment, or null when the snapshot does not know the user
+    public SegmentResponse get(int userId) {
+        State current = state;
+        if (current == null) {
+            return null;
+        }
+
+        SegmentResponse segment = current.overlay.size() == 0 ? null : current.overlay.get(userId);
+        if (segment == null) {
+            int code = current.mapped.find(userId);
+            segment = code < 0 ? null : current.responses[code];
+        }
+
+        if (segment == null || segment == UNASSIGNED) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return segment;
+    }
+
+    // Maps a new snapshot if the file changed, then applies any delta not yet applied. Runs on the refresh
+    // thread; failures keep serving what is already loaded.
+    public synchronized void refresh() {
+        try {
+            State current = state;
+            Object fileKey = fileKey();
+            if (fileKey == null) {
+                if (current == null) {
+                    logger.warn("Segment snapshot {} not found; all segments come from the segment service", file);
+                }
+                return;
+            }
+
+            if (current == null || !fileKey.equals(current.fileKey)) {
+                State loaded = load(fileKey);
+                if (loaded == null) {
+                    return;
+                }
+                current = loaded;
+            }
+
+            state = applyDeltas(current);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to refresh the segment snapshot from {}", file, e);
+        }
+    }
+
+    private Object fileKey() throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        // A new snapshot is renamed into place, so it is a different file even if size and time match
+        Object key = attributes.fileKey();
+        return key != null ? key : attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+    }
+
+    private State load(Object fileKey) throws IOException {
+        SegmentSnapshotFiles.MappedSegments mapped = SegmentSnapshotFiles.map(file);
+        if (mapped == null) {
+            return null;
+        }
+
+        String[] segments = mapped.getSegments();
+        SegmentResponse[] responses = new SegmentResponse[segments.length];
+        for (int code = 0; code < segments.length; code++) {
+            responses[code] = segmentResponse(segments[code]);
+        }
+
+        logger.info("Mapped segment snapshot {} generation {} with {} users in {} segments",
+                file, mapped.getGeneration(), mapped.size(), segments.length);
+        return new State(mapped, responses, IntTrie.empty(), -1, fileKey);
+    }
+
+    private State applyDeltas(State current) throws IOException {
+        long generation = current.mapped.getGeneration();
+        // Deltas for another generation, or already applied, are passed over by name
+        List<Path> deltas = SegmentSnapshotFiles.listDeltas(deltaDirectory, generation, current.appliedSequence);
+        IntTrie.Builder<SegmentResponse> overlay = null;
+        long appliedSequence = current.appliedSequence;
+
+        for (Path path : deltas) {
+            SegmentSnapshotFiles.Delta delta = SegmentSnapshotFiles.readDelta(path);
+            if (delta == null || delta.getGeneration() != generation || delta.getSequence() <= appliedSequence) {
+                continue;
+            }
+
+            if (overlay == null) {
+                overlay = current.overlay.toBuilder();
+            }
+            for (int i = 0; i < delta.size(); i++) {
+                String segment = delta.getSegment(i);
+                overlay.put(delta.getUserId(i), segment == null ? UNASSIGNED : segmentResponse(segment));
+            }
+            appliedSequence = delta.getSequence();
+            logger.info("Applied segment delta {} with {} changes", path.getFileName(), delta.size());
+        }
+
+        if (overlay == null) {
+            return current;
+        }
+        return new State(current.mapped, current.responses, overlay.build(), appliedSequence, current.fileKey);
+    }
+
+    private static SegmentResponse segmentResponse(String segment) {
+        SegmentResponse response = new SegmentResponse();
+        response.setSegment(segment);
+        return response;
+    }
+
+    public int size() {
+        State current = state;
+        return current == null ? 0 : current.mapped.size();
+    }
+
+    public long getGeneration() {
+        State current = state;
+        return current == null ? -1 : current.mapped.getGeneration();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.springboot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Files produced by the nightly segment job and read by SegmentSnapshot. All integers are big-endian.
+// Snapshot: [int magic][int version][long generation][int users][int segments]
+//   then segments x [short length][UTF-8 name], zero padding to a multiple of 4,
+//   then users x [int user_id] in ascending order, then users x [segment code] (1 byte, or 2 above 256 segments),
+//   then [int end magic][long crc32 of everything before the trailer].
+// Delta: [int magic][int version][long generation][long sequence][int count]
+//   then count x [int user_id][short length][UTF-8 name] (length 0: no longer assigned), then the same trailer.
+// A delta applies only to the snapshot generation it names; deltas are applied in sequence order.
+// Delta files are named <generation>-<sequence>.delta, both zero-padded, so a reader can pass over the ones it
+// has no use for without opening them.
+public final class SegmentSnapshotFiles {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentSnapshotFiles.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x53454753;
+    private static final int DELTA_MAGIC = 0x53454744;
+    private static final int END_MAGIC = 0x53454745;
+    private static final int VERSION = 1;
+    private static final int SNAPSHOT_HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+    private static final int DELTA_HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+    private static final int TRAILER_SIZE = 4 + 8;
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    public static final String DELTA_SUFFIX = ".delta";
+    private static final Pattern DELTA_FILE = Pattern.compile("(\\d{1,18})-(\\d{1,18})\\" + DELTA_SUFFIX);
+
+    // A memory-mapped snapshot. Reads use absolute offsets only, so one instance serves every thread.
+    public static final class MappedSegments {
+        private final long generation;
+        private final MappedByteBuffer buffer;
+        private final int users;
+        private final int idsOffset;
+        private final int codesOffset;
+        private final int codeWidth;
+        private final String[] segments;
+
+        private MappedSegments(long generation, MappedByteBuffer buffer, int users, int idsOffset, int codeWidth,
+                               String[] segments) {
+            this.generation = generation;
+            this.buffer = buffer;
+            this.users = users;
+            this.idsOffset = idsOffset;
+            this.codesOffset = idsOffset + users * 4;
+            this.codeWidth = codeWidth;
+            this.segments = segments;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public int size() {
+            return users;
+        }
+
+        public String[] getSegments() {
+            return segments.clone();
+        }
+
+        // Binary search over the mapped ids; returns the user's segment code, or -1 if the user is not listed
+        public int find(int userId) {
+            int low = 0;
+            int high = users - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int id = buffer.getInt(idsOffset + (mid << 2));
+                if (id < userId) {
+                    low = mid + 1;
+                } else if (id > userId) {
+                    high = mid - 1;
+                } else {
+                    return codeWidth == 1
+                            ? buffer.get(codesOffset + mid) & 0xFF
+                            : buffer.getShort(codesOffset + (mid << 1)) & 0xFFFF;
+                }
+            }
+            return -1;
+        }
+    }
+
+    public static final class Delta {
+        private final long generation;
+        private final long sequence;
+        private final int[] userIds;
+        private final String[] segments;
+
+        private Delta(long generation, long sequence, int[] userIds, String[] segments) {
+            this.generation = generation;
+            this.sequence = sequence;
+            this.userIds = userIds;
+            this.segments = segments;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public int size() {
+            return userIds.length;
+        }
+
+        public int getUserId(int index) {
+            return userIds[index];
+        }
+
+        // The user's new segment, or null when the user no longer has one in the batch assignment
+        public String getSegment(int index) {
+            return segments[index];
+        }
+    }
+
+    private SegmentSnapshotFiles() {
+    }
+
+    public static Path deltaPath(Path directory, long generation, long sequence) {
+        return directory.resolve(String.format("%016d-%016d%s", generation, sequence, DELTA_SUFFIX));
+    }
+
+    public static void writeSnapshot(Path file, long generation, Map<Integer, String> assignments) throws IOException {
+        int[] userIds = new int[assignments.size()];
+        int index = 0;
+        for (Integer userId : assignments.keySet()) {
+            userIds[index++] = userId;
+        }
+        Arrays.sort(userIds);
+
+        // Dense codes in order of first appearance
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        for (int userId : userIds) {
+            codes.computeIfAbsent(assignments.get(userId), segment -> codes.size());
+        }
+        if (codes.size() > MAX_SEGMENTS) {
+            throw new IllegalArgumentException("At most " + MAX_SEGMENTS + " segments fit in a snapshot, got "
+                    + codes.size());
+        }
+        int codeWidth = codes.size() <= 256 ? 1 : 2;
+
+        writeAtomically(file, body -> {
+            body.writeInt(SNAPSHOT_MAGIC);
+            body.writeInt(VERSION);
+            body.writeLong(generation);
+            body.writeInt(userIds.length);
+            body.writeInt(codes.size());
+            for (String segment : codes.keySet()) {
+                writeName(body, segment);
+            }
+            while (body.size() % 4 != 0) {
+                body.writeByte(0);
+            }
+            for (int userId : userIds) {
+                body.writeInt(userId);
+            }
+            for (int userId : userIds) {
+                int code = codes.get(assignments.get(userId));
+                if (codeWidth == 1) {
+                    body.writeByte(code);
+                } else {
+                    body.writeShort(code);
+                }
+            }
+        });
+    }
+
+    public static void writeDelta(Path directory, long generation, long sequence, Map<Integer, String> changes)
+            throws IOException {
+        writeAtomically(deltaPath(directory, generation, sequence), body -> {
+            body.writeInt(DELTA_MAGIC);
+            body.writeInt(VERSION);
+            body.writeLong(generation);
+            body.writeLong(sequence);
+            body.writeInt(changes.size());
+            for (Map.Entry<Integer, String> change : changes.entrySet()) {
+                body.writeInt(change.getKey());
+                writeName(body, change.getValue() == null ? "" : change.getValue());
+            }
+        });
+    }
+
+    // Maps the snapshot read-only, so every process reading the same file shares its pages through the page cache.
+    // Returns null if the file is damaged or of an unknown format.
+    public static MappedSegments map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < SNAPSHOT_HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                logger.warn("Segment snapshot {} has an invalid size {}", file, size);
+                return null;
+            }
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (!verify(file, buffer, SNAPSHOT_MAGIC)) {
+                return null;
+            }
+
+            long generation = buffer.getLong(8);
+            int users = buffer.getInt(16);
+            int segmentCount = buffer.getInt(20);
+            ByteBuffer names = buffer.duplicate();
+            names.position(SNAPSHOT_HEADER_SIZE);
+            String[] segments = new String[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = readName(names);
+            }
+            int idsOffset = (names.position() + 3) & ~3;
+            int codeWidth = segmentCount <= 256 ? 1 : 2;
+
+            if ((long) idsOffset + (long) users * (4 + codeWidth) != size - TRAILER_SIZE) {
+                logger.warn("Segment snapshot {} does not match its header", file);
+                return null;
+            }
+            return new MappedSegments(generation, buffer, users, idsOffset, codeWidth, segments);
+        }
+    }
+
+    // Returns null if the file is damaged or of an unknown format
+    public static Delta readDelta(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.capacity() < DELTA_HEADER_SIZE + TRAILER_SIZE || !verify(file, buffer, DELTA_MAGIC)) {
+            return null;
+        }
+
+        buffer.position(8);
+        long generation = buffer.getLong();
+        long sequence = buffer.getLong();
+        int count = buffer.getInt();
+        int[] userIds = new int[count];
+        String[] segments = new String[count];
+        for (int i = 0; i < count; i++) {
+            userIds[i] = buffer.getInt();
+            String segment = readName(buffer);
+            segments[i] = segment.isEmpty() ? null : segment;
+        }
+        return new Delta(generation, sequence, userIds, segments);
+    }
+
+    // Delta files in the directory for the given snapshot generation with a sequence above afterSequence, in
+    // sequence order. Decided from the names alone; the header is checked again once a file is read.
+    public static List<Path> listDeltas(Path directory, long generation, long afterSequence) throws IOException {
+        List<Path> deltas = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return deltas;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                Matcher matcher = DELTA_FILE.matcher(path.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) == generation
+                        && Long.parseLong(matcher.group(2)) > afterSequence) {
+                    deltas.add(path);
+                }
+            });
+        }
+        // Names are zero-padded, so name order is sequence order
+        Collections.sort(deltas);
+        return deltas;
+    }
+
+    private static boolean verify(Path file, ByteBuffer buffer, int magic) {
+        int end = buffer.capacity() - TRAILER_SIZE;
+        if (buffer.getInt(0) != magic || buffer.getInt(4) != VERSION) {
+            logger.warn("Segment file {} has an unknown format", file);
+            return false;
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.position(0).limit(end);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if (buffer.getInt(end) != END_MAGIC || buffer.getLong(end + 4) != crc.getValue()) {
+            logger.warn("Segment file {} failed its checksum", file);
+            return false;
+        }
+        return true;
+    }
+
+    private interface BodyWriter {
+        void write(DataOutputStream body) throws IOException;
+    }
+
+    // Written to a temporary file and renamed, so readers never map a half-written file
+    private static void writeAtomically(Path target, BodyWriter writer) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            BufferedOutputStream buffered = new BufferedOutputStream(file, 1 << 16);
+            DataOutputStream body = new DataOutputStream(new CheckedOutputStream(buffered, crc));
+            writer.write(body);
+            body.flush();
+
+            DataOutputStream trailer = new DataOutputStream(buffered);
+            trailer.writeInt(END_MAGIC);
+            trailer.writeLong(crc.getValue());
+            trailer.flush();
+            file.getFD().sync();
+        }
+
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment name too long: " + name);
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readName(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+package com.springboot.service;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+// Coalesces concurrent calls for the same key: the first caller runs the call and every
+// caller that arrives while it is in flight waits for, and shares, its result or failure.
+public class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    public interface Call<K, V> {
+        V call(K key) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface AsyncCall<K, V> {
+        CompletableFuture<V> call(K key);
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V execute(K key, Call<K, V> call) throws Exception {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            V value = call.call(key);
+            flight.complete(value);
+            return value;
+        } catch (Throwable t) {
+            flight.completeExceptionally(t);
+            throw t;
+        } finally {
+            // Later callers start a fresh call instead of reusing a completed result
+            inFlight.remove(key, flight);
+        }
+    }
+
+    // Non-blocking variant: callers that arrive while a call is in flight get the same future
+    public CompletableFuture<V> executeAsync(K key, AsyncCall<K, V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<V> started;
+        try {
+            started = call.call(key);
+        } catch (Throwable t) {
+            started = new CompletableFuture<>();
+            started.completeExceptionally(t);
+        }
+
+        started.whenComplete((value, failure) -> {
+            inFlight.remove(key, flight);
+            if (failure != null) {
+                flight.completeExceptionally(failure);
+            } else {
+                flight.complete(value);
+            }
+        });
+        return flight;
+    }
+
+    private V await(CompletableFuture<V> flight) throws Exception {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            // Only this waiter gives up; the call carries on for the others
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for an in-flight call");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
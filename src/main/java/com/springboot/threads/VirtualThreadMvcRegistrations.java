@@ -0,0 +1,138 @@
+package com.springboot.threads;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletResponse;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// Runs each controller call on a virtual thread of its own. The controllers stay blocking: Tomcat's thread
+// reads the request, hands the call over through Spring MVC async processing and is free again, and the
+// response is written once the call returns, with filters, request logging and metrics working as before.
+// A request waiting on the segment service then parks a virtual thread instead of holding one of
+// server.tomcat.max-threads. Tomcat 8.5 runs each request inside a monitor, which on Java 21 pins a virtual
+// thread to its carrier, so giving Tomcat itself a virtual-thread executor would not achieve this.
+@Component
+@ConditionalOnProperty(prefix = "offer.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadMvcRegistrations implements WebMvcRegistrations {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadMvcRegistrations.class);
+
+    // Handlers returning these already manage their own threads
+    private static final Class<?>[] ASYNC_RETURN_TYPES = {Callable.class, WebAsyncTask.class, DeferredResult.class,
+            CompletionStage.class, Future.class, ResponseBodyEmitter.class, StreamingResponseBody.class};
+
+    // No timeout, as for a request handled on Tomcat's thread
+    private static final long NO_TIMEOUT = 0;
+
+    private final ExecutorService executorService;
+    private final AsyncTaskExecutor executor;
+
+    public VirtualThreadMvcRegistrations() {
+        // Fails startup on runtimes without virtual threads rather than silently staying on platform threads
+        this.executorService = VirtualThreads.newThreadPerTaskExecutor("request-");
+        this.executor = new TaskExecutorAdapter(executorService);
+        logger.info("Controllers run on virtual threads");
+    }
+
+    @Override
+    public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+        return new RequestMappingHandlerAdapter() {
+            @Override
+            protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+                return runsOnVirtualThread(handlerMethod)
+                        ? new VirtualThreadHandlerMethod(handlerMethod)
+                        : super.createInvocableHandlerMethod(handlerMethod);
+            }
+        };
+    }
+
+    // Handlers that write the response themselves keep the container thread
+    public static boolean runsOnVirtualThread(HandlerMethod handlerMethod) {
+        Class<?> returnType = handlerMethod.getReturnType().getParameterType();
+        for (Class<?> asyncType : ASYNC_RETURN_TYPES) {
+            if (asyncType.isAssignableFrom(returnType)) {
+                return false;
+            }
+        }
+        for (MethodParameter parameter : handlerMethod.getMethodParameters()) {
+            Class<?> type = parameter.getParameterType();
+            if (ServletResponse.class.isAssignableFrom(type) || OutputStream.class.isAssignableFrom(type)
+                    || Writer.class.isAssignableFrom(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class VirtualThreadHandlerMethod extends ServletInvocableHandlerMethod {
+
+        VirtualThreadHandlerMethod(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        // Arguments are resolved on the container thread; only the controller call moves. The WebAsyncTask
+        // is picked up by Spring's async return value handling, and the result goes through the handling
+        // for the method's declared return type once the request is dispatched back.
+        @Override
+        protected Object doInvoke(Object... args) throws Exception {
+            if (!isRequestDispatch()) {
+                return super.doInvoke(args);
+            }
+
+            return new WebAsyncTask<>(NO_TIMEOUT, executor, withCallerMdc(() -> super.doInvoke(args)));
+        }
+    }
+
+    // Carries the calling thread's MDC, such as a traced request's flag, over to the thread running the call
+    public static <V> Callable<V> withCallerMdc(Callable<V> call) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return () -> {
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            try {
+                return call.call();
+            } finally {
+                MDC.clear();
+            }
+        };
+    }
+
+    // Error and async dispatches run where they are
+    private static boolean isRequestDispatch() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes
+                && ((ServletRequestAttributes) attributes).getRequest().getDispatcherType() == DispatcherType.REQUEST;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+}
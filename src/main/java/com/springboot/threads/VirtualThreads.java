@@ -0,0 +1,81 @@
+package com.springboot.threads;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// Virtual threads (Java 21) reached through reflection, so the build keeps targeting Java 8 and the same jar
+// still runs on older runtimes with virtual threads switched off.
+public final class VirtualThreads {
+
+    // Thread.ofVirtual(), Thread.Builder.name(String, long), Thread.Builder.factory() and
+    // Executors.newThreadPerTaskExecutor(ThreadFactory); null when the runtime has no virtual threads
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    // Threads are named namePrefix followed by a counter starting at 1
+    public static ThreadFactory factory(String namePrefix) {
+        requireAvailable();
+        Object builder = invoke(OF_VIRTUAL, null);
+        builder = invoke(NAME, builder, namePrefix, 1L);
+        return (ThreadFactory) invoke(FACTORY, builder);
+    }
+
+    // Starts a new virtual thread for every task; nothing is pooled or queued
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        return (ExecutorService) invoke(NEW_THREAD_PER_TASK_EXECUTOR, null, factory(namePrefix));
+    }
+
+    private static void requireAvailable() {
+        if (!isAvailable()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, but this is Java "
+                    + System.getProperty("java.version"));
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot call " + method, e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Cannot call " + method, cause);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.springboot;
+
+import com.springboot.admission.AdaptiveConcurrencyLimit;
+import com.springboot.admission.StripedTokenBuckets;
+import io.restassured.http.ContentType;
+import io.restassured.response.ValidatableResponse;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(SpringRunner.class)
+@TestPropertySource(properties = {
+        "offer.admission.enabled=true",
+        "offer.admission.restaurant-rate=0.001",
+        "offer.admission.restaurant-burst=3",
+        "offer.admission.client-rate=0.001",
+        "offer.admission.client-burst=5",
+        "offer.async.enabled=true"
+})
+public class AdmissionControlTests extends BaseOfferTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testAdmission01_BucketAllowsBurstThenRefillsAtRate() {
+        AtomicLong now = new AtomicLong();
+        StripedTokenBuckets buckets = new StripedTokenBuckets(64, 100, 5, now::get);
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(buckets.tryAcquire(42));
+        }
+        Assert.assertFalse(buckets.tryAcquire(42));
+        // Other keys have buckets of their own
+        Assert.assertTrue(buckets.tryAcquire(43));
+
+        // 100 per second is one token every 10ms, up to the burst
+        now.addAndGet(10 * MILLI);
+        Assert.assertTrue(buckets.tryAcquire(42));
+        Assert.assertFalse(buckets.tryAcquire(42));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(buckets.tryAcquire(42));
+        }
+        Assert.assertFalse(buckets.tryAcquire(42));
+    }
+
+    @Test
+    public void testAdmission02_LimitRefusesExcessAndBacksOffWhenSlow() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 100, 50 * MILLI, 0.1, 10, 0.5);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(limit.tryAcquire());
+        }
+        Assert.assertFalse(limit.tryAcquire());
+        Assert.assertEquals(10, limit.getInFlight());
+
+        // A window with most calls over the target halves the limit
+        for (int i = 0; i < 10; i++) {
+            limit.release(200 * MILLI);
+        }
+        Assert.assertEquals(5, limit.getLimit());
+        Assert.assertEquals(0, limit.getInFlight());
+
+        // Fast windows in which calls were refused raise it again
+        for (int round = 0; round < 10; round++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.release(MILLI);
+            }
+        }
+        Assert.assertTrue(limit.getLimit() > 5);
+
+        // Without demand near the limit it stays where it is
+        int reached = limit.getLimit();
+        for (int i = 0; i < 50; i++) {
+            limit.tryAcquire();
+            limit.release(MILLI);
+        }
+        Assert.assertEquals(reached, limit.getLimit());
+
+        // Never below the minimum
+        for (int window = 0; window < 20; window++) {
+            for (int i = 0; i < 10; i++) {
+                limit.tryAcquire();
+                limit.release(200 * MILLI);
+            }
+        }
+        Assert.assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    public void testAdmission03_RestaurantOverItsRateGets429() {
+        addOffer(1401, "FLATX", 10, "p1");
+        addOffer(1402, "FLATX", 10, "p1");
+
+        for (int i = 0; i < 3; i++) {
+            applyOffer("client-a", 1401).statusCode(200).body("cart_value", equalTo(190));
+        }
+        applyOffer("client-b", 1401)
+                .statusCode(429)
+                .header("Retry-After", "1")
+                .body("response_msg", equalTo("Too many requests"));
+        // Other restaurants are unaffected
+        applyOffer("client-b", 1402).statusCode(200).body("cart_value", equalTo(190));
+    }
+
+    @Test
+    public void testAdmission04_ClientOverItsRateGets429() {
+        addOffer(1403, "FLATX", 10, "p1");
+        for (int restaurantId = 1404; restaurantId < 1409; restaurantId++) {
+            applyOffer("client-c", restaurantId).statusCode(200);
+        }
+        applyOffer("client-c", 1403).statusCode(429);
+        applyOffer("client-d", 1403).statusCode(200).body("cart_value", equalTo(190));
+
+        given()
+                .when()
+                .get("/actuator/metrics/offer.admission.rejected")
+                .then()
+                .statusCode(200)
+                .body("availableTags.find { it.tag == 'reason' }.values", hasItem("client_rate"));
+    }
+
+    @Test
+    public void testAdmission05_HeavyRequestLeavesBucketInDebt() {
+        AtomicLong now = new AtomicLong();
+        StripedTokenBuckets buckets = new StripedTokenBuckets(64, 100, 5, now::get);
+
+        // Heavier than the burst, yet it goes through, and the bucket owes 3 tokens
+        Assert.assertTrue(buckets.tryAcquire(42, 8));
+        Assert.assertFalse(buckets.tryAcquire(42));
+        now.addAndGet(30 * MILLI);
+        Assert.assertFalse(buckets.tryAcquire(42));
+        now.addAndGet(10 * MILLI);
+        Assert.assertTrue(buckets.tryAcquire(42));
+        Assert.assertFalse(buckets.tryAcquire(42));
+    }
+
+    @Test
+    public void testAdmission06_BatchChargedPerCart() {
+        addOffer(1410, "FLATX", 10, "p1");
+
+        // Three carts use up the restaurant's burst of 3 and three of the client's 5 tokens
+        applyOffers("client-e", 1410, 1410, 1410).statusCode(200).body("cart_value", everyItem(equalTo(190)));
+        applyOffer("client-f", 1410).statusCode(429);
+
+        applyOffers("client-e", 1411, 1412).statusCode(200);
+        applyOffers("client-e", 1413).statusCode(429).body("response_msg", equalTo("Too many requests"));
+    }
+
+    @Test
+    public void testAdmission07_AsyncApplyAdmittedLikeBlocking() {
+        addOffer(1414, "FLATX", 10, "p1");
+
+        for (int i = 0; i < 3; i++) {
+            asyncApplyOffer("client-g", 1414).statusCode(200).body("cart_value", equalTo(190));
+        }
+        asyncApplyOffer("client-h", 1414)
+                .statusCode(429)
+                .header("Retry-After", "1")
+                .body("response_msg", equalTo("Too many requests"));
+
+        // Every admitted request gave its place back once answered
+        given()
+                .when()
+                .get("/actuator/metrics/offer.admission.in_flight")
+                .then()
+                .statusCode(200)
+                .body("measurements[0].value", equalTo(0.0f));
+    }
+
+    private static ValidatableResponse applyOffer(String client, int restaurantId) {
+        return given()
+                .contentType(ContentType.JSON)
+                .header("X-Client-Id", client)
+                .body(cart(restaurantId))
+                .when()
+                .post("/api/v1/cart/apply_offer")
+                .then();
+    }
+
+    private static ValidatableResponse applyOffers(String client, int... restaurantIds) {
+        List<Map<String, Object>> carts = new ArrayList<>();
+        for (int restaurantId : restaurantIds) {
+            carts.add(cart(restaurantId));
+        }
+
+        return given()
+                .contentType(ContentType.JSON)
+                .header("X-Client-Id", client)
+                .body(carts)
+                .when()
+                .post("/api/v1/cart/apply_offer/batch")
+                .then();
+    }
+
+    private static ValidatableResponse asyncApplyOffer(String client, int restaurantId) {
+        return given()
+                .contentType(ContentType.JSON)
+                .header("X-Client-Id", client)
+                .body(cart(restaurantId))
+                .when()
+                .post("/api/v1/cart/apply_offer/async")
+                .then();
+    }
+
+    private static Map<String, Object> cart(int restaurantId) {
+        Map<String, Object> cart = new HashMap<>();
+        cart.put("user_id", 1);
+        cart.put("restaurant_id", restaurantId);
+        cart.put("cart_value", 200);
+        return cart;
+    }
+}
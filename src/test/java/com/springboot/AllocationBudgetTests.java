@@ -0,0 +1,149 @@
+package com.springboot;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.springboot.client.SegmentClient;
+import com.springboot.controller.ApplyOfferRequest;
+import com.springboot.controller.OfferRequest;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.HotKeys;
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.property.HotKeyProperty;
+import com.springboot.property.SegmentCacheProperty;
+import com.springboot.repository.OfferRepository;
+import com.springboot.service.OfferService;
+import com.springboot.service.SegmentCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+// Bytes allocated per call on the service's hot paths, read from the JVM's per-thread allocation counter and
+// held to a budget so GC pressure cannot creep back unnoticed. The budgets are set in pom.xml and can be
+// overridden, e.g. -Dallocation.budget.apply-offer=512.
+public class AllocationBudgetTests {
+
+    private static final int RESTAURANTS = 10_000;
+    private static final int WARMUP_CALLS = 50_000;
+    private static final int MEASURED_CALLS = 20_000;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private OfferRepository offerRepository;
+    private SegmentCache segmentCache;
+    private OfferService offerService;
+    private Logger rootLogger;
+    private Level rootLogLevel;
+    private Logger serviceLogger;
+    private Level serviceLogLevel;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // In-process stand-in for the segment service
+        SegmentResponse p1 = new SegmentResponse();
+        p1.setSegment("p1");
+        SegmentClient stubClient = userId -> p1;
+
+        segmentCache = new SegmentCache(new SegmentCacheProperty());
+        offerRepository = new OfferRepository();
+        for (int restaurantId = 1; restaurantId <= RESTAURANTS; restaurantId++) {
+            offerRepository.addOffer(new OfferRequest(restaurantId, restaurantId % 2 == 0 ? "FLATX" : "FLAT%",
+                    10, Arrays.asList("p1", "p2")));
+        }
+        // Measured with hot key tracking on, so enabling it cannot push the path over budget
+        HotKeyProperty hotKeyProperty = new HotKeyProperty();
+        hotKeyProperty.setEnabled(true);
+        offerService = new OfferService(offerRepository, stubClient, segmentCache, null,
+                new OfferMetrics(new SimpleMeterRegistry(), offerRepository, segmentCache),
+                new HotKeys(hotKeyProperty));
+
+        // Levels as in production, whether or not a Spring context configured logging in this JVM. The success
+        // line of every addOffer is still built; only the appender's output is left out.
+        rootLogger = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogLevel = rootLogger.getLevel();
+        rootLogger.setLevel(Level.INFO);
+        serviceLogger = (Logger) LoggerFactory.getLogger(OfferService.class);
+        serviceLogLevel = serviceLogger.getLevel();
+        serviceLogger.setLevel(Level.WARN);
+    }
+
+    @After
+    public void tearDown() {
+        if (serviceLogger != null) {
+            serviceLogger.setLevel(serviceLogLevel);
+            rootLogger.setLevel(rootLogLevel);
+        }
+        if (segmentCache != null) {
+            segmentCache.shutdown();
+        }
+    }
+
+    @Test
+    public void testAllocation01_ApplyOfferWithMatchingOffer() throws Exception {
+        ApplyOfferRequest cart = cart(RESTAURANTS / 2);
+        long perCall = bytesPerCall(() -> offerService.applyOffer(cart));
+        assertWithinBudget("apply-offer", perCall);
+    }
+
+    @Test
+    public void testAllocation02_ApplyOfferWithoutOffer() throws Exception {
+        ApplyOfferRequest cart = cart(RESTAURANTS + 1);
+        long perCall = bytesPerCall(() -> offerService.applyOffer(cart));
+        assertWithinBudget("apply-offer", perCall);
+    }
+
+    @Test
+    public void testAllocation03_AddOffer() throws Exception {
+        // Each pass over the restaurants adds one more offer to every one of them, with a value not seen before
+        List<String> segments = Arrays.asList("p1", "p2");
+        int[] next = {0};
+        long perCall = bytesPerCall(() -> {
+            int call = next[0]++;
+            offerService.addOffer(new OfferRequest(call % RESTAURANTS + 1, "FLATX", 11 + call / RESTAURANTS,
+                    segments));
+        });
+        assertWithinBudget("add-offer", perCall);
+    }
+
+    private long bytesPerCall(Call call) throws Exception {
+        // Lets the JIT compile the path, and escape analysis drop what it can, before counting
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            call.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            call.run();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / MEASURED_CALLS;
+    }
+
+    private static void assertWithinBudget(String path, long bytesPerCall) {
+        long budget = Long.getLong("allocation.budget." + path, Long.MAX_VALUE);
+        Assert.assertTrue(path + " allocates " + bytesPerCall + " bytes per call, over its budget of " + budget,
+                bytesPerCall <= budget);
+    }
+
+    private static ApplyOfferRequest cart(int restaurantId) {
+        ApplyOfferRequest request = new ApplyOfferRequest();
+        request.setUser_id(7);
+        request.setRestaurant_id(restaurantId);
+        request.setCart_value(1_000);
+        return request;
+    }
+
+    private interface Call {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,95 @@
+package com.springboot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.restassured.http.ContentType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(SpringRunner.class)
+@TestPropertySource(properties = "offer.async.enabled=true")
+public class AsyncApplyOfferTests extends BaseOfferTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testAsync01_SameDiscountsAsBlockingPath() {
+        addOffer(501, "FLATX", 10, "p1");
+        addOffer(502, "FLAT%", 15, "p2");
+
+        asyncApplyOfferAndAssert(1, 501, 200, 190);
+        asyncApplyOfferAndAssert(2, 502, 133, 113);
+        asyncApplyOfferAndAssert(3, 501, 200, 200);
+        asyncApplyOfferAndAssert(1, 503, 0, 0);
+    }
+
+    @Test
+    public void testAsync02_InvalidRequestRejected() {
+        Map<String, Object> applyRequest = applyRequest(0, 501, 200);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(applyRequest)
+                .when()
+                .post("/api/v1/cart/apply_offer/async")
+                .then()
+                .statusCode(400)
+                .body("response_msg", equalTo("User ID must be positive"));
+    }
+
+    @Test
+    public void testAsync03_ConcurrentRequests() {
+        addOffer(504, "FLATX", 5, "p1", "p2");
+
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int userId = i % 2 == 0 ? 1 : 2;
+            requests.add(CompletableFuture.runAsync(() -> asyncApplyOfferAndAssert(userId, 504, 100, 95)));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).join();
+    }
+
+    @Test
+    public void testAsync04_ResponseWriteIsTimedOnTheAsyncDispatch() {
+        Timer write = meterRegistry.get("offer.apply.stage").tag("stage", "write").timer();
+        long before = write.count();
+
+        addOffer(505, "FLATX", 10, "p1");
+        asyncApplyOfferAndAssert(1, 505, 200, 190);
+
+        Assert.assertEquals(before + 1, write.count());
+    }
+
+    private void asyncApplyOfferAndAssert(int userId, int restaurantId, int cartValue, int expectedValue) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(applyRequest(userId, restaurantId, cartValue))
+                .when()
+                .post("/api/v1/cart/apply_offer/async")
+                .then()
+                .statusCode(200)
+                .body("cart_value", equalTo(expectedValue));
+    }
+
+    private static Map<String, Object> applyRequest(int userId, int restaurantId, int cartValue) {
+        Map<String, Object> applyRequest = new HashMap<>();
+        applyRequest.put("user_id", userId);
+        applyRequest.put("restaurant_id", restaurantId);
+        applyRequest.put("cart_value", cartValue);
+        return applyRequest;
+    }
+}
@@ -0,0 +1,121 @@
+package com.springboot;
+
+import io.restassured.http.ContentType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(SpringRunner.class)
+public class BatchApplyOfferTests extends BaseOfferTest {
+
+    @Test
+    public void testBatch01_ResponsesKeepRequestOrder() {
+        // Carts for different users and restaurants come back in the order they were sent
+        addOffer(201, "FLATX", 10, "p1");
+        addOffer(202, "FLAT%", 50, "p2");
+
+        List<Map<String, Object>> carts = Arrays.asList(
+                cart(1, 201, 200),  // p1, FlatX=10 → 190
+                cart(2, 202, 200),  // p2, 50% → 100
+                cart(3, 201, 200),  // p3, no offer → 200
+                cart(2, 201, 300)); // p2, offer is for p1 only → 300
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(carts)
+                .when()
+                .post("/api/v1/cart/apply_offer/batch")
+                .then()
+                .statusCode(200)
+                .body("cart_value", contains(190, 100, 200, 300));
+    }
+
+    @Test
+    public void testBatch02_SameUserManyCarts() {
+        // Repeated user_ids share one segment lookup but every cart is priced
+        addOffer(203, "FLATX", 25, "p1");
+
+        List<Map<String, Object>> carts = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            carts.add(cart(1, 203, i * 100));
+        }
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(carts)
+                .when()
+                .post("/api/v1/cart/apply_offer/batch")
+                .then()
+                .statusCode(200)
+                .body("size()", equalTo(20))
+                .body("[0].cart_value", equalTo(75))
+                .body("[19].cart_value", equalTo(1975));
+    }
+
+    @Test
+    public void testBatch03_InvalidCartRejectsBatch() {
+        List<Map<String, Object>> carts = Arrays.asList(cart(1, 204, 200), cart(0, 204, 200));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(carts)
+                .when()
+                .post("/api/v1/cart/apply_offer/batch")
+                .then()
+                .statusCode(400)
+                .body("response_msg", containsString("index 1"));
+    }
+
+    @Test
+    public void testBatch04_EmptyBatch() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new ArrayList<>())
+                .when()
+                .post("/api/v1/cart/apply_offer/batch")
+                .then()
+                .statusCode(200)
+                .body("size()", equalTo(0));
+    }
+
+    @Test
+    public void testBatch05_WholeBatchPricedAgainstOneCatalogVersion() {
+        addOffer(205, "FLATX", 10, "p1", "p2");
+
+        List<Map<String, Object>> carts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            carts.add(cart(1 + i % 2, 205, 100));
+        }
+
+        List<Integer> versions = given()
+                .contentType(ContentType.JSON)
+                .body(carts)
+                .when()
+                .post("/api/v1/cart/apply_offer/batch")
+                .then()
+                .statusCode(200)
+                .body("cart_value", everyItem(equalTo(90)))
+                .extract().path("catalog_version");
+
+        assertThat(versions.get(0), greaterThan(0));
+        assertThat(versions, everyItem(equalTo(versions.get(0))));
+    }
+
+    private Map<String, Object> cart(int userId, int restaurantId, int cartValue) {
+        Map<String, Object> applyRequest = new HashMap<>();
+        applyRequest.put("user_id", userId);
+        applyRequest.put("restaurant_id", restaurantId);
+        applyRequest.put("cart_value", cartValue);
+        return applyRequest;
+    }
+}
@@ -0,0 +1,128 @@
+package com.springboot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springboot.controller.ApplyOfferResponse;
+import io.restassured.response.Response;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(SpringRunner.class)
+public class BinaryContentTests extends BaseOfferTest {
+
+    private static final String SMILE = "application/x-jackson-smile";
+    private static final String CBOR = "application/cbor";
+
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+
+    @Autowired
+    private Jackson2ObjectMapperBuilder builder;
+
+    @Test
+    public void testBinary01_SmileOfferAndApply() throws Exception {
+        Response added = post("/api/v1/offer", SMILE, smile, offer(1201, 10));
+        added.then().statusCode(200).contentType(startsWith(SMILE));
+        Assert.assertEquals("success", read(smile, added).get("response_msg").asText());
+
+        Response applied = post("/api/v1/cart/apply_offer", SMILE, smile, cart(1201));
+        applied.then().statusCode(200).contentType(startsWith(SMILE));
+        Assert.assertEquals(190, read(smile, applied).get("cart_value").asInt());
+    }
+
+    @Test
+    public void testBinary02_CborOfferAndApply() throws Exception {
+        post("/api/v1/offer", CBOR, cbor, offer(1202, 20)).then().statusCode(200);
+
+        Response applied = post("/api/v1/cart/apply_offer", CBOR, cbor, cart(1202));
+        applied.then().statusCode(200).contentType(startsWith(CBOR));
+        Assert.assertEquals(180, read(cbor, applied).get("cart_value").asInt());
+    }
+
+    @Test
+    public void testBinary03_EncodingsMixAndJsonStaysTheDefault() throws Exception {
+        // Offer written as Smile, priced through JSON, and a JSON body answered in CBOR
+        post("/api/v1/offer", SMILE, smile, offer(1203, 30)).then().statusCode(200);
+        applyOfferAndAssert(1, 1203, 200, 170);
+
+        Response applied = given()
+                .contentType("application/json")
+                .accept(CBOR)
+                .body(cart(1203))
+                .when()
+                .post("/api/v1/cart/apply_offer");
+        applied.then().statusCode(200).contentType(startsWith(CBOR));
+        Assert.assertEquals(170, read(cbor, applied).get("cart_value").asInt());
+
+        // Without a binary Accept the answer is JSON, whatever the request was written in
+        given()
+                .contentType(SMILE)
+                .body(smile.writeValueAsBytes(cart(1203)))
+                .when()
+                .post("/api/v1/cart/apply_offer")
+                .then()
+                .statusCode(200)
+                .contentType(startsWith("application/json"))
+                .body("cart_value", equalTo(170));
+    }
+
+    @Test
+    public void testBinary04_ValidationErrorsComeBackInTheRequestedEncoding() throws Exception {
+        Response rejected = post("/api/v1/offer", SMILE, smile, offer(-1, 10));
+        rejected.then().statusCode(400).contentType(startsWith(SMILE));
+        Assert.assertEquals("Restaurant ID must be positive", read(smile, rejected).get("response_msg").asText());
+    }
+
+    @Test
+    public void testBinary05_SharedBuilderStillBuildsJson() throws Exception {
+        // Every mapper built after startup, such as one for a bean created late, must still write JSON
+        ObjectMapper built = builder.build();
+        Assert.assertEquals(JsonFactory.FORMAT_NAME_JSON, built.getFactory().getFormatName());
+        String json = built.writeValueAsString(new ApplyOfferResponse(190));
+        Assert.assertEquals(190, new ObjectMapper().readTree(json).get("cart_value").asInt());
+    }
+
+    private Response post(String path, String mediaType, ObjectMapper mapper, Object body) throws Exception {
+        return given()
+                .contentType(mediaType)
+                .accept(mediaType)
+                .body(mapper.writeValueAsBytes(body))
+                .when()
+                .post(path);
+    }
+
+    private static JsonNode read(ObjectMapper mapper, Response response) throws Exception {
+        return mapper.readTree(response.asByteArray());
+    }
+
+    private static Map<String, Object> offer(int restaurantId, int offerValue) {
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("restaurant_id", restaurantId);
+        offer.put("offer_type", "FLATX");
+        offer.put("offer_value", offerValue);
+        offer.put("customer_segment", Arrays.asList("p1"));
+        return offer;
+    }
+
+    private static Map<String, Object> cart(int restaurantId) {
+        Map<String, Object> cart = new HashMap<>();
+        cart.put("user_id", 1);
+        cart.put("restaurant_id", restaurantId);
+        cart.put("cart_value", 200);
+        return cart;
+    }
+}
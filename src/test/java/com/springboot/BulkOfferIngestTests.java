@@ -0,0 +1,183 @@
+package com.springboot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.controller.BulkOfferResponse;
+import com.springboot.controller.OfferRequest;
+import com.springboot.property.OfferIngestProperty;
+import com.springboot.repository.OfferRepository;
+import com.springboot.service.OfferIngestService;
+import com.springboot.service.OfferService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+public class BulkOfferIngestTests extends BaseOfferTest {
+
+    @Test
+    public void testBulk01_NdjsonAppend() {
+        String body = offer(401, "FLATX", 10, "p1") + "\n"
+                + offer(402, "FLAT%", 50, "p2") + "\n";
+
+        given()
+                .contentType("application/x-ndjson")
+                .body(bytes(body))
+                .when()
+                .post("/api/v1/offer/bulk")
+                .then()
+                .statusCode(200)
+                .body("response_msg", equalTo("success"))
+                .body("accepted", equalTo(2))
+                .body("rejected", equalTo(0));
+
+        applyOfferAndAssert(1, 401, 200, 190);
+        applyOfferAndAssert(2, 402, 200, 100);
+    }
+
+    @Test
+    public void testBulk02_JsonArrayAppend() {
+        String body = "[" + offer(403, "FLATX", 20, "p1", "p2") + "," + offer(404, "FLATP", 10, "p3") + "]";
+
+        given()
+                .contentType("application/json")
+                .body(bytes(body))
+                .when()
+                .post("/api/v1/offer/bulk")
+                .then()
+                .statusCode(200)
+                .body("accepted", equalTo(2));
+
+        applyOfferAndAssert(2, 403, 100, 80);
+        applyOfferAndAssert(3, 404, 100, 90);
+    }
+
+    @Test
+    public void testBulk03_InvalidLinesReportedOthersLoaded() {
+        String body = offer(405, "FLATX", 10, "p1") + "\n"
+                + offer(405, "BOGO", 10, "p2") + "\n"
+                + "{\"restaurant_id\": \"abc\", \"offer_type\": \"FLATX\", \"offer_value\": 5, \"customer_segment\": [\"p3\"]}\n"
+                + offer(406, "FLATX", 30, "p1") + "\n";
+
+        given()
+                .contentType("application/x-ndjson")
+                .body(bytes(body))
+                .when()
+                .post("/api/v1/offer/bulk")
+                .then()
+                .statusCode(200)
+                .body("response_msg", equalTo("completed with errors"))
+                .body("received", equalTo(4))
+                .body("accepted", equalTo(2))
+                .body("rejected", equalTo(2))
+                .body("errors.index", contains(2, 3))
+                .body("errors.line", contains(2, 3))
+                .body("errors[0].error", containsString("Unsupported offer type"));
+
+        applyOfferAndAssert(1, 405, 100, 90);
+        applyOfferAndAssert(1, 406, 100, 70);
+    }
+
+    @Test
+    public void testBulk04_MalformedJsonStopsIngestion() {
+        String body = offer(407, "FLATX", 10, "p1") + "\n"
+                + "{\"restaurant_id\": 408, \n"
+                + offer(409, "FLATX", 10, "p1") + "\n";
+
+        given()
+                .contentType("application/x-ndjson")
+                .body(bytes(body))
+                .when()
+                .post("/api/v1/offer/bulk")
+                .then()
+                .statusCode(200)
+                .body("accepted", equalTo(1))
+                .body("errors[0].index", equalTo(2))
+                .body("errors[0].error", startsWith("Malformed JSON"));
+
+        applyOfferAndAssert(1, 407, 100, 90);
+    }
+
+    @Test
+    public void testBulk05_ReplaceWithInvalidOfferKeepsCatalog() {
+        // One bad record means the whole replacement is refused and existing offers stay in place
+        addOffer(410, "FLATX", 10, "p1");
+
+        String body = offer(411, "FLATX", 10, "p1") + "\n" + offer(-1, "FLATX", 10, "p1") + "\n";
+
+        given()
+                .contentType("application/x-ndjson")
+                .body(bytes(body))
+                .when()
+                .post("/api/v1/offer/bulk?mode=replace")
+                .then()
+                .statusCode(400)
+                .body("mode", equalTo("replace"))
+                .body("response_msg", startsWith("Catalog not replaced"));
+
+        applyOfferAndAssert(1, 410, 100, 90);
+        applyOfferAndAssert(1, 411, 100, 100);
+    }
+
+    @Test
+    public void testBulk06_UnknownMode() {
+        given()
+                .contentType("application/x-ndjson")
+                .body(bytes(offer(412, "FLATX", 10, "p1")))
+                .when()
+                .post("/api/v1/offer/bulk?mode=merge")
+                .then()
+                .statusCode(400)
+                .body("response_msg", containsString("Unsupported ingest mode"));
+    }
+
+    @Test
+    public void testBulk07_ReplaceSwapsWholeCatalog() throws Exception {
+        // Replacing would wipe offers other tests rely on, so this runs against a repository of its own
+        OfferRepository repository = new OfferRepository();
+        OfferIngestService ingestService = new OfferIngestService(
+                new OfferService(repository, null, null, null), repository, new ObjectMapper(),
+                new OfferIngestProperty());
+        repository.addOffer(new OfferRequest(1, "FLATX", 10,
+                Collections.singletonList("p1")));
+
+        BulkOfferResponse response = ingestService.ingest(stream(
+                offer(2, "FLATX", 10, "p1") + "\n" + offer(3, "FLAT%", 10, "p1", "p2")), "replace");
+
+        assertEquals("success", response.getResponseMsg());
+        assertEquals(2, response.getAccepted());
+        assertFalse(repository.getOffer(1, "p1").isPresent());
+        assertTrue(repository.getOffer(2, "p1").isPresent());
+        assertTrue(repository.getOffer(3, "p2").isPresent());
+        assertEquals(3, repository.getOfferCount());
+    }
+
+    private static byte[] bytes(String body) {
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(bytes(body));
+    }
+
+    private static String offer(int restaurantId, String offerType, int offerValue, String... segments) {
+        StringBuilder json = new StringBuilder()
+                .append("{\"restaurant_id\": ").append(restaurantId)
+                .append(", \"offer_type\": \"").append(offerType)
+                .append("\", \"offer_value\": ").append(offerValue)
+                .append(", \"customer_segment\": [");
+        for (int i = 0; i < segments.length; i++) {
+            json.append(i > 0 ? ", " : "").append('"').append(segments[i]).append('"');
+        }
+        return json.append("]}").toString();
+    }
+}
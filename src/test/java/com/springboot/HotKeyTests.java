@@ -0,0 +1,140 @@
+package com.springboot;
+
+import com.springboot.metrics.HeavyHitters;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(SpringRunner.class)
+@TestPropertySource(properties = "offer.hot-keys.enabled=true")
+public class HotKeyTests extends BaseOfferTest {
+
+    @Test
+    public void testHotKeys01_FindsHeavyHittersAmongManyColdKeys() {
+        HeavyHitters hitters = new HeavyHitters(1024, 4, 10);
+        Random random = new Random(42);
+        // 100k cold keys seen about once each, interleaved with three hot ones
+        for (int i = 0; i < 100_000; i++) {
+            hitters.add(1_000 + random.nextInt(1_000_000));
+            if (i % 20 == 0) {
+                hitters.add(7);
+            }
+            if (i % 40 == 0) {
+                hitters.add(8);
+            }
+            if (i % 80 == 0) {
+                hitters.add(9);
+            }
+        }
+
+        List<HeavyHitters.Entry> top = hitters.top(3);
+        Assert.assertEquals(7, top.get(0).getKey());
+        Assert.assertEquals(8, top.get(1).getKey());
+        Assert.assertEquals(9, top.get(2).getKey());
+        // Never under the true count, and over it by little
+        Assert.assertTrue(top.get(0).getEstimate() >= 5_000);
+        Assert.assertTrue(top.get(0).getEstimate() < 5_000 + hitters.getTotal() / 1024 * 2);
+        Assert.assertTrue(hitters.top(100).size() <= 10);
+    }
+
+    @Test
+    public void testHotKeys02_DecayLetsNewHotKeysTakeOver() {
+        HeavyHitters hitters = new HeavyHitters(256, 4, 2);
+        for (int i = 0; i < 1_000; i++) {
+            hitters.add(1);
+            hitters.add(2);
+        }
+        for (int round = 0; round < 5; round++) {
+            hitters.decay();
+        }
+        Assert.assertEquals(31, hitters.estimate(1));
+
+        for (int i = 0; i < 100; i++) {
+            hitters.add(3, "gold");
+        }
+        Assert.assertEquals("gold", hitters.top(1).get(0).getKey());
+        Assert.assertEquals(100, hitters.top(1).get(0).getEstimate());
+    }
+
+    @Test
+    public void testHotKeys03_AdminEndpointReportsHotRestaurantAndUser() {
+        addOffer(1301, "FLATX", 10, "gold");
+        Map<String, Object> cart = new HashMap<>();
+        cart.put("user_id", 5);
+        cart.put("restaurant_id", 1301);
+        cart.put("cart_value", 200);
+        for (int i = 0; i < 300; i++) {
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(cart)
+                    .when()
+                    .post("/api/v1/cart/apply_offer")
+                    .then()
+                    .statusCode(200);
+        }
+
+        Response response = given().queryParam("limit", 5).when().get("/internal/hot-keys");
+        response.then()
+                .statusCode(200)
+                .body("restaurants.top[0].key", equalTo(1301))
+                .body("restaurants.top[0].estimate", greaterThanOrEqualTo(300))
+                .body("restaurants.top.size()", lessThanOrEqualTo(5))
+                .body("users.top.key", hasItem(5))
+                .body("segments.top.key", hasItem("gold"))
+                .body("decay_interval_seconds", equalTo(60));
+    }
+
+    @Test
+    public void testHotKeys04_StripesAddUpAcrossThreads() throws Exception {
+        HeavyHitters hitters = new HeavyHitters(1024, 4, 10, 8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int coldKey = 100 + t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    hitters.add(7);
+                    if (i % 10 == 0) {
+                        hitters.add(coldKey);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Few enough keys that nothing collides, so the sums are exact
+        Assert.assertEquals(80_000, hitters.estimate(7));
+        Assert.assertEquals(1_000, hitters.estimate(100));
+        Assert.assertEquals(88_000, hitters.getTotal());
+        Assert.assertEquals(7, hitters.top(1).get(0).getKey());
+        Assert.assertEquals(9, hitters.top(100).size());
+
+        hitters.decay();
+        Assert.assertEquals(40_000, hitters.estimate(7));
+    }
+}
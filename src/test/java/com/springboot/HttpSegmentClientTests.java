@@ -0,0 +1,216 @@
+package com.springboot;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.springboot.client.HttpSegmentClient;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.property.SegmentClientProperty;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Runs HttpSegmentClient against a local stub of the segment service
+public class HttpSegmentClientTests {
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws Exception;
+    }
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private volatile Handler handler;
+    // Client ports seen by the stub; one port means every call went over the same connection
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private HttpSegmentClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/api/v1/user_segment", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            try {
+                handler.handle(exchange);
+            } catch (Exception e) {
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void testSegmentClient01_CallsReuseOnePooledConnection() throws Exception {
+        client = client(property());
+        handler = exchange -> {
+            String userId = exchange.getRequestURI().getQuery().replace("user_id=", "");
+            if ("2".equals(userId)) {
+                respond(exchange, 404, "{\"error\":\"unknown user\"}");
+            } else {
+                respond(exchange, 200, "{\"segment\":\"p" + userId + "\"}");
+            }
+        };
+
+        Assert.assertEquals("p1", client.getSegment(1).getSegment());
+        // The error body is drained, so the connection goes back to the pool
+        Assert.assertNull(client.getSegment(2));
+        Assert.assertEquals("p3", client.getSegment(3).getSegment());
+
+        Assert.assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void testSegmentClient02_SlowResponseHitsReadTimeout() throws Exception {
+        SegmentClientProperty property = property();
+        property.setReadTimeout(Duration.ofMillis(200));
+        client = client(property);
+        CountDownLatch release = new CountDownLatch(1);
+        handler = exchange -> {
+            release.await(5, TimeUnit.SECONDS);
+            respond(exchange, 200, "{\"segment\":\"p1\"}");
+        };
+
+        long start = System.nanoTime();
+        try {
+            client.getSegment(1);
+            Assert.fail("Expected the read to time out");
+        } catch (SocketTimeoutException expected) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assert.assertTrue("Timed out after " + elapsedMillis + " ms", elapsedMillis < 2000);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testSegmentClient03_FullPoolHitsConnectionRequestTimeout() throws Exception {
+        SegmentClientProperty property = property();
+        property.setMaxConnections(1);
+        property.setConnectionRequestTimeout(Duration.ofMillis(100));
+        client = client(property);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        handler = exchange -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            respond(exchange, 200, "{\"segment\":\"p1\"}");
+        };
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<SegmentResponse> first = caller.submit(() -> client.getSegment(1));
+            Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            // The only connection is busy, so the second call gives up waiting for it
+            long start = System.nanoTime();
+            try {
+                client.getSegment(2);
+                Assert.fail("Expected the wait for a pooled connection to time out");
+            } catch (ConnectionPoolTimeoutException expected) {
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                Assert.assertTrue("Timed out after " + elapsedMillis + " ms", elapsedMillis < 2000);
+            }
+
+            release.countDown();
+            Assert.assertEquals("p1", first.get(5, TimeUnit.SECONDS).getSegment());
+        } finally {
+            release.countDown();
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSegmentClient04_ErrorStatusIsNoSegment() throws Exception {
+        client = client(property());
+        handler = exchange -> respond(exchange, 503, "Service Unavailable");
+
+        Assert.assertNull(client.getSegment(1));
+    }
+
+    @Test
+    public void testSegmentClient05_MalformedBodyFailsTheCall() throws Exception {
+        client = client(property());
+        handler = exchange -> respond(exchange, 200, "{\"segment\":");
+
+        // Thrown as an IOException, which the resilient client and the service count as the segment being unavailable
+        try {
+            client.getSegment(1);
+            Assert.fail("Expected the malformed body to be rejected");
+        } catch (JsonProcessingException expected) {
+            // expected
+        }
+
+        // The next call is unaffected
+        handler = exchange -> respond(exchange, 200, "{\"segment\":\"p2\"}");
+        Assert.assertEquals("p2", client.getSegment(2).getSegment());
+    }
+
+    @Test
+    public void testSegmentClient06_ParsesChunkedBodyFromTheStream() throws Exception {
+        client = client(property());
+        handler = exchange -> {
+            // No content length: the body is sent chunked, in two pieces, and parsed as it arrives
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("{\"region\":\"south\",".getBytes(StandardCharsets.UTF_8));
+                body.flush();
+                Thread.sleep(50);
+                body.write("\"segment\":\"gold\"}".getBytes(StandardCharsets.UTF_8));
+            }
+        };
+
+        Assert.assertEquals("gold", client.getSegment(5).getSegment());
+        Assert.assertEquals("gold", client.getSegment(5).getSegment());
+        Assert.assertEquals(1, clientPorts.size());
+    }
+
+    private SegmentClientProperty property() {
+        SegmentClientProperty property = new SegmentClientProperty();
+        property.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        return property;
+    }
+
+    private static HttpSegmentClient client(SegmentClientProperty property) {
+        return new HttpSegmentClient(property, Jackson2ObjectMapperBuilder.json().build());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
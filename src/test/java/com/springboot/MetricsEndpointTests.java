@@ -0,0 +1,82 @@
+package com.springboot;
+
+import com.springboot.controller.ApplyOfferRequest;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.property.SegmentCacheProperty;
+import com.springboot.repository.OfferRepository;
+import com.springboot.service.OfferService;
+import com.springboot.service.SegmentCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+
+@RunWith(SpringRunner.class)
+public class MetricsEndpointTests extends BaseOfferTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testMetrics01_StageLatenciesAreScrapeable() {
+        addOffer(301, "FLATX", 10, "p1");
+        applyOfferAndAssert(1, 301, 200, 190);
+
+        given()
+                .when()
+                .get("/actuator/prometheus")
+                .then()
+                .statusCode(200)
+                .body(containsString("offer_apply_stage_seconds_bucket{stage=\"segment\""))
+                .body(containsString("offer_apply_stage_seconds_count{stage=\"repository\""))
+                .body(containsString("offer_lookup_total{offer_type=\"FLATX\",result=\"hit\""))
+                .body(containsString("offer_repository_size"));
+    }
+
+    @Test
+    public void testMetrics02_FailedApplyIsTimed() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OfferRepository repository = new OfferRepository();
+        SegmentCache failingCache = new SegmentCache(new SegmentCacheProperty()) {
+            @Override
+            public SegmentResponse get(int userId, Loader loader) {
+                throw new IllegalStateException("Segment lookup failed");
+            }
+        };
+        OfferService service = new OfferService(repository, userId -> null, failingCache,
+                new OfferMetrics(registry, repository, failingCache));
+
+        ApplyOfferRequest cart = new ApplyOfferRequest();
+        cart.setUser_id(1);
+        cart.setRestaurant_id(301);
+        cart.setCart_value(200);
+        try {
+            service.applyOffer(cart);
+            Assert.fail("Expected the apply to fail");
+        } catch (Exception expected) {
+            Assert.assertEquals(1, registry.get("offer.apply.stage").tag("stage", "apply").timer().count());
+        } finally {
+            failingCache.shutdown();
+        }
+    }
+
+    @Test
+    public void testMetrics03_ResponseWriteIsTimedForApplyOnly() {
+        Timer write = meterRegistry.get("offer.apply.stage").tag("stage", "write").timer();
+        long before = write.count();
+
+        addOffer(302, "FLATX", 10, "p1");
+        Assert.assertEquals(before, write.count());
+
+        applyOfferAndAssert(1, 302, 200, 190);
+        Assert.assertEquals(before + 1, write.count());
+    }
+}
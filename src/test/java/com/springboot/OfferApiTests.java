@@ -119,4 +119,44 @@ public class OfferApiTests {
                 .statusCode(200)
                 .body("response_msg", equalTo("success"));
     }
+
+    @Test
+    public void testAddOfferSegmentNameTooLong() {
+        char[] name = new char[Short.MAX_VALUE + 1];
+        Arrays.fill(name, 'p');
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("restaurant_id", 6);
+        offer.put("offer_type", "FLATX");
+        offer.put("offer_value", 10);
+        offer.put("customer_segment", Arrays.asList(new String(name)));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(offer)
+                .when()
+                .post("/api/v1/offer")
+                .then()
+                .statusCode(400)
+                .body("response_msg", containsString("cannot be longer than 32767 bytes"));
+    }
+
+    @Test
+    public void testAddOfferBlankSegmentName() {
+        for (String segment : Arrays.asList(null, "", "  ")) {
+            Map<String, Object> offer = new HashMap<>();
+            offer.put("restaurant_id", 7);
+            offer.put("offer_type", "FLATX");
+            offer.put("offer_value", 10);
+            offer.put("customer_segment", Arrays.asList("p1", segment));
+
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(offer)
+                    .when()
+                    .post("/api/v1/offer")
+                    .then()
+                    .statusCode(400)
+                    .body("response_msg", containsString("Customer segment names cannot be null or empty"));
+        }
+    }
 }
@@ -0,0 +1,247 @@
+package com.springboot;
+
+import com.springboot.controller.OfferRequest;
+import com.springboot.offer.OfferTypes;
+import com.springboot.repository.OfferCatalog;
+import com.springboot.repository.OfferCursor;
+import com.springboot.repository.OfferRepository;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OfferCatalogTests {
+
+    @Test
+    public void testCatalog01_OlderVersionIsUnaffectedByWrites() {
+        OfferRepository repository = new OfferRepository();
+        repository.addOffer(new OfferRequest(1, "FLATX", 10, Arrays.asList("p1")));
+        OfferCatalog before = repository.getCatalog();
+
+        repository.addOffer(new OfferRequest(2, "FLATX", 20, Arrays.asList("p1", "p2")));
+        OfferCatalog after = repository.getCatalog();
+
+        Assert.assertEquals(before.getVersion() + 1, after.getVersion());
+        Assert.assertNull(before.findOffer(2, "p1"));
+        Assert.assertEquals(1, before.getOfferCount());
+        Assert.assertEquals(180, after.findOffer(2, "p1").apply(200, 0));
+        Assert.assertEquals(180, after.findOffer(2, "p2").apply(200, 0));
+        Assert.assertEquals(3, after.getOfferCount());
+
+        repository.clearOffers();
+
+        Assert.assertEquals(after.getVersion() + 1, repository.getCatalog().getVersion());
+        Assert.assertEquals(0, repository.getOfferCount());
+        Assert.assertEquals(190, after.findOffer(1, "p1").apply(200, 0));
+    }
+
+    @Test
+    public void testCatalog02_BatchPublishesOneVersion() {
+        OfferRepository repository = new OfferRepository();
+        long version = repository.getCatalog().getVersion();
+
+        List<OfferRequest> batch = new ArrayList<>();
+        for (int restaurantId = 1; restaurantId <= 50; restaurantId++) {
+            batch.add(new OfferRequest(restaurantId, "FLATX", restaurantId, Arrays.asList("p1", "p2")));
+        }
+        repository.addOffers(batch);
+
+        Assert.assertEquals(version + 1, repository.getCatalog().getVersion());
+        Assert.assertEquals(100, repository.getOfferCount());
+
+        // A duplicate changes nothing, so it publishes nothing
+        repository.addOffer(batch.get(0));
+        Assert.assertEquals(version + 1, repository.getCatalog().getVersion());
+    }
+
+    @Test
+    public void testCatalog03_ManyRestaurants() {
+        OfferRepository repository = new OfferRepository();
+        Map<Integer, Integer> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(7);
+
+        List<OfferRequest> batch = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            int restaurantId = i % 2 == 0 ? i + 1 : 1 + random.nextInt(Integer.MAX_VALUE);
+            int value = 1 + random.nextInt(100);
+            if (expected.putIfAbsent(restaurantId, value) == null) {
+                batch.add(new OfferRequest(restaurantId, "FLATX", value, Collections.singletonList("p1")));
+            }
+        }
+        repository.addOffers(batch.subList(0, batch.size() / 2));
+        OfferCatalog half = repository.getCatalog();
+        for (OfferRequest offer : batch.subList(batch.size() / 2, batch.size())) {
+            repository.addOffer(offer);
+        }
+
+        OfferCatalog full = repository.getCatalog();
+        for (int i = 0; i < batch.size(); i++) {
+            int restaurantId = batch.get(i).getRestaurantId();
+            Assert.assertEquals(1000 - expected.get(restaurantId), full.findOffer(restaurantId, "p1").apply(1000, 0));
+            Assert.assertEquals(i < batch.size() / 2, half.findOffer(restaurantId, "p1") != null);
+        }
+        Assert.assertEquals(batch.size(), full.getAllOffers().size());
+        Assert.assertNull(full.findOffer(-5, "p1"));
+    }
+
+    @Test
+    public void testCatalog04_ReadersNeverSeeHalfAnOffer() throws Exception {
+        OfferRepository repository = new OfferRepository();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            while (writing.get() && torn.get() == null) {
+                OfferCatalog catalog = repository.getCatalog();
+                for (int restaurantId = 1; restaurantId <= 200; restaurantId++) {
+                    boolean inP1 = catalog.findOffer(restaurantId, "p1") != null;
+                    boolean inP2 = catalog.findOffer(restaurantId, "p2") != null;
+                    if (inP1 != inP2) {
+                        torn.set("restaurant " + restaurantId + " at version " + catalog.getVersion());
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        for (int round = 0; round < 20; round++) {
+            for (int restaurantId = 1; restaurantId <= 200; restaurantId++) {
+                repository.addOffer(new OfferRequest(restaurantId, "FLATX", 10, Arrays.asList("p1", "p2")));
+            }
+            repository.clearOffers();
+        }
+        writing.set(false);
+        reader.join();
+
+        Assert.assertNull(torn.get());
+    }
+
+    @Test
+    public void testCatalog05_PagesListEveryOfferOnce() {
+        OfferRepository repository = new OfferRepository();
+        List<OfferRequest> batch = new ArrayList<>();
+        for (int restaurantId = 1; restaurantId <= 2_000; restaurantId++) {
+            batch.add(new OfferRequest(restaurantId, "FLATX", 10, Arrays.asList("p1", "p2")));
+            if (restaurantId % 3 == 0) {
+                batch.add(new OfferRequest(restaurantId, "FLAT%", 5, Arrays.asList("p2", "gold")));
+            }
+        }
+        repository.addOffers(batch);
+
+        List<OfferRequest> listed = new ArrayList<>();
+        OfferCursor cursor = null;
+        int pages = 0;
+        do {
+            // An odd page size, so pages end in the middle of restaurants
+            cursor = repository.getCatalog().scanOffers(null, null, cursor, 7, listed::add);
+            pages++;
+        } while (cursor != null);
+
+        Assert.assertEquals(batch.size(), listed.size());
+        Assert.assertEquals(new HashSet<>(batch), new HashSet<>(listed));
+        Assert.assertEquals((batch.size() + 6) / 7, pages);
+        Assert.assertEquals(new HashSet<>(batch), new HashSet<>(repository.getAllOffers()));
+    }
+
+    @Test
+    public void testCatalog06_CursorSurvivesNewVersions() {
+        OfferRepository repository = new OfferRepository();
+        for (int restaurantId = 1; restaurantId <= 500; restaurantId++) {
+            repository.addOffer(new OfferRequest(restaurantId, "FLATX", 10, Arrays.asList("p1")));
+        }
+
+        Set<Integer> listed = new HashSet<>();
+        OfferCursor cursor = repository.getCatalog().scanOffers(null, null, null, 100,
+                offer -> listed.add(offer.getRestaurantId()));
+        // Writes between pages do not make the next page repeat or lose offers that were already there
+        for (int restaurantId = 501; restaurantId <= 600; restaurantId++) {
+            repository.addOffer(new OfferRequest(restaurantId, "FLATX", 10, Arrays.asList("p1")));
+        }
+        int[] count = {100};
+        while (cursor != null) {
+            cursor = repository.getCatalog().scanOffers(null, null, cursor, 100, offer -> {
+                Assert.assertTrue("listed twice: " + offer, listed.add(offer.getRestaurantId()));
+                count[0]++;
+            });
+        }
+
+        for (int restaurantId = 1; restaurantId <= 500; restaurantId++) {
+            Assert.assertTrue("missing restaurant " + restaurantId, listed.contains(restaurantId));
+        }
+        Assert.assertEquals(listed.size(), count[0]);
+    }
+
+    @Test
+    public void testCatalog07_SegmentFilter() {
+        OfferRepository repository = new OfferRepository();
+        repository.addOffer(new OfferRequest(1, "FLATX", 10, Arrays.asList("p1", "p2")));
+        repository.addOffer(new OfferRequest(1, "FLATX", 20, Arrays.asList("p2")));
+        repository.addOffer(new OfferRequest(2, "FLATX", 30, Arrays.asList("p3")));
+
+        List<OfferRequest> p2 = new ArrayList<>();
+        Assert.assertNull(repository.getCatalog().scanOffers(null, "p2", null, 10, p2::add));
+        Assert.assertEquals(2, p2.size());
+        Assert.assertNull(repository.getCatalog().scanOffers(null, "unknown", null, 10, p2::add));
+        Assert.assertEquals(2, p2.size());
+
+        List<OfferRequest> restaurant1 = new ArrayList<>();
+        OfferCursor cursor = repository.getCatalog().scanOffers(1, null, null, 1, restaurant1::add);
+        Assert.assertEquals(new OfferCursor(1, 1).encode(), cursor.encode());
+        Assert.assertNull(repository.getCatalog().scanOffers(1, null, OfferCursor.decode(cursor.encode()), 1,
+                restaurant1::add));
+        Assert.assertEquals(repository.getOffersForRestaurant(1), restaurant1);
+    }
+
+    @Test
+    public void testCatalog08_CursorSurvivesChangesInItsRestaurant() {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        OfferRepository repository = new OfferRepository(new OfferTypes(), now::get);
+        Instant until = Instant.ofEpochMilli(now.get() + 1_000);
+        // The first offer expires while the listing is paused; it has the highest priority, so it comes first
+        // in its segments
+        OfferRequest expiring = new OfferRequest(1, "FLATX", 5, Arrays.asList("p1", "p2"), 0, 0, 0, 3, null,
+                null, until);
+        repository.addOffer(expiring);
+        List<OfferRequest> remaining = new ArrayList<>();
+        for (int value = 10; value <= 60; value += 10) {
+            OfferRequest offer = new OfferRequest(1, "FLATX", value, Arrays.asList(value % 20 == 0 ? "p1" : "p2"));
+            repository.addOffer(offer);
+            remaining.add(offer);
+        }
+        repository.addOffer(new OfferRequest(2, "FLATX", 10, Arrays.asList("p1")));
+
+        List<OfferRequest> listed = new ArrayList<>();
+        OfferCursor cursor = repository.getCatalog().scanOffers(null, null, null, 3, listed::add);
+        Assert.assertEquals(Arrays.asList(expiring, remaining.get(0), remaining.get(1)), listed);
+
+        // An offer already listed goes away and a higher-priority one arrives, both ahead of the cursor's offer
+        // in their segment's ranking
+        now.addAndGet(1_000);
+        repository.advanceClock();
+        OfferRequest arrived = new OfferRequest(1, "FLATX", 70, Arrays.asList("p1", "p2"), 0, 0, 0, 9, null,
+                null, null);
+        repository.addOffer(arrived);
+        while (cursor != null) {
+            cursor = repository.getCatalog().scanOffers(null, null, cursor, 3, listed::add);
+        }
+
+        List<OfferRequest> expected = new ArrayList<>();
+        expected.add(expiring);
+        expected.addAll(remaining);
+        expected.add(arrived);
+        expected.add(new OfferRequest(2, "FLATX", 10, Arrays.asList("p1")));
+        Assert.assertEquals(expected, listed);
+    }
+}
@@ -0,0 +1,81 @@
+package com.springboot;
+
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(SpringRunner.class)
+public class OfferListingTests extends BaseOfferTest {
+
+    @Test
+    public void testListing01_PagesThroughARestaurant() {
+        for (int value = 1; value <= 5; value++) {
+            addOffer(1101, "FLATX", value, "p1", "p2");
+        }
+
+        List<Integer> values = new ArrayList<>();
+        String cursor = null;
+        do {
+            RequestSpecification request = given()
+                    .queryParam("restaurant_id", 1101)
+                    .queryParam("limit", 2);
+            if (cursor != null) {
+                request.queryParam("cursor", cursor);
+            }
+            Response page = request.when().get("/api/v1/offers");
+            page.then().statusCode(200);
+            values.addAll(page.jsonPath().getList("offers.offer_value", Integer.class));
+            cursor = page.jsonPath().getString("next_cursor");
+        } while (cursor != null);
+
+        Assert.assertEquals(5, values.size());
+        Assert.assertTrue(values.containsAll(Arrays.asList(1, 2, 3, 4, 5)));
+    }
+
+    @Test
+    public void testListing02_FiltersBySegment() {
+        addOffer(1102, "FLATX", 10, "p1");
+        addOffer(1102, "FLAT%", 20, "p2", "p3");
+
+        given()
+                .queryParam("restaurant_id", 1102)
+                .queryParam("segment", "p3")
+                .when()
+                .get("/api/v1/offers")
+                .then()
+                .statusCode(200)
+                .body("offers.size()", equalTo(1))
+                .body("offers[0].offer_type", equalTo("FLAT%"))
+                .body("offers[0].customer_segment", contains("p2", "p3"))
+                .body("next_cursor", nullValue());
+    }
+
+    @Test
+    public void testListing03_RejectsBadRequests() {
+        given()
+                .queryParam("cursor", "not a cursor")
+                .when()
+                .get("/api/v1/offers")
+                .then()
+                .statusCode(400)
+                .body("response_msg", equalTo("Invalid cursor"));
+
+        given()
+                .queryParam("limit", 0)
+                .when()
+                .get("/api/v1/offers")
+                .then()
+                .statusCode(400)
+                .body("response_msg", equalTo("Limit must be positive"));
+    }
+}
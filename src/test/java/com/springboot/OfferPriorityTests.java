@@ -0,0 +1,99 @@
+package com.springboot;
+
+import io.restassured.http.ContentType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(SpringRunner.class)
+public class OfferPriorityTests extends BaseOfferTest {
+
+    @Test
+    public void testPriority01_HigherPriorityWins() {
+        addOffer(801, "FLATX", 10, "p1");
+        addOffer(offer(801, "FLATX", 30, 5, null, "p1"));
+        addOffer(offer(801, "FLATX", 50, 1, null, "p1"));
+
+        applyOfferAndAssert(1, 801, 200, 170);
+    }
+
+    @Test
+    public void testPriority02_StackableAppliesOnTopOfBestExclusive() {
+        addOffer(offer(802, "FLAT%", 10, 0, "EXCLUSIVE", "p1"));
+        addOffer(offer(802, "FLATX", 20, -1, "STACKABLE", "p1"));
+        // Lower priority exclusive offers never apply next to the winning one
+        addOffer(offer(802, "FLATX", 90, -2, "EXCLUSIVE", "p1"));
+
+        applyOfferAndAssert(1, 802, 200, 160); // 10% off, then 20 off
+    }
+
+    @Test
+    public void testPriority03_OffersApplyInPriorityOrder() {
+        addOffer(offer(803, "FLAT%", 10, 0, null, "p1"));
+        addOffer(offer(803, "FLATX", 20, 5, "stackable", "p1"));
+
+        applyOfferAndAssert(1, 803, 200, 162); // 20 off first, then 10% of 180
+    }
+
+    @Test
+    public void testPriority04_OnlyStackableOffers() {
+        addOffer(offer(804, "FLATX", 10, 0, "STACKABLE", "p1"));
+        addOffer(offer(804, "FLATX", 5, 0, "STACKABLE", "p1"));
+
+        applyOfferAndAssert(1, 804, 100, 85);
+    }
+
+    @Test
+    public void testPriority05_RankedPerSegment() {
+        addOffer(805, "FLATX", 10, "p1", "p2");
+        addOffer(offer(805, "FLATX", 40, 3, null, "p2"));
+
+        applyOfferAndAssert(1, 805, 200, 190);
+        applyOfferAndAssert(2, 805, 200, 160);
+        applyOfferAndAssert(3, 805, 200, 200);
+    }
+
+    @Test
+    public void testPriority06_UnknownStackingPolicyRejected() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(offer(806, "FLATX", 10, 0, "COMBINE", "p1"))
+                .when()
+                .post("/api/v1/offer")
+                .then()
+                .statusCode(400)
+                .body("response_msg", containsString("Unsupported stacking policy: COMBINE"));
+    }
+
+    private static Map<String, Object> offer(int restaurantId, String offerType, int offerValue, int priority,
+                                             String stacking, String... segments) {
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("restaurant_id", restaurantId);
+        offer.put("offer_type", offerType);
+        offer.put("offer_value", offerValue);
+        offer.put("customer_segment", Arrays.asList(segments));
+        offer.put("priority", priority);
+        if (stacking != null) {
+            offer.put("stacking", stacking);
+        }
+        return offer;
+    }
+
+    private void addOffer(Map<String, Object> offer) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(offer)
+                .when()
+                .post("/api/v1/offer")
+                .then()
+                .statusCode(200)
+                .body("response_msg", equalTo("success"));
+    }
+}
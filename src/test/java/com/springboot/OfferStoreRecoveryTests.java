@@ -0,0 +1,382 @@
+package com.springboot;
+
+import com.springboot.controller.OfferRequest;
+import com.springboot.property.OfferStoreProperty;
+import com.springboot.repository.OfferRepository;
+import com.springboot.repository.OfferStore;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+public class OfferStoreRecoveryTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private OfferStore lastStore;
+
+    @Test
+    public void testRecovery01_ReplaysLogWithoutSnapshot() throws Exception {
+        File directory = folder.newFolder();
+        OfferRepository first = openRepository(directory);
+
+        first.addOffer(new OfferRequest(1, "FLATX", 10, Arrays.asList("p1")));
+        first.addOffer(new OfferRequest(2, "FLAT%", 20, Arrays.asList("p1", "p2")));
+        first.addOffer(new OfferRequest(2, "FLATX", 99, Arrays.asList("p2", "p3"))); // ranks behind FLAT% on p2
+
+        // Simulate a crash: nothing is closed and no snapshot was taken
+        OfferRepository recovered = openRepository(directory);
+
+        Assert.assertEquals(5, recovered.getOfferCount());
+        Assert.assertEquals(10, recovered.getOffer(1, "p1").get().getOfferValue());
+        Assert.assertEquals(20, recovered.getOffer(2, "p2").get().getOfferValue());
+        Assert.assertEquals(99, recovered.getOffer(2, "p3").get().getOfferValue());
+    }
+
+    @Test
+    public void testRecovery02_SnapshotPlusLogTail() throws Exception {
+        File directory = folder.newFolder();
+        OfferRepository first = openRepository(directory);
+        OfferStore store = lastStore;
+
+        first.addOffer(new OfferRequest(1, "FLATX", 10, Arrays.asList("p1")));
+        first.addOffer(new OfferRequest(3, "FLATX", 5, Arrays.asList("p1", "p2")));
+        first.addOffer(new OfferRequest(3, "FLAT%", 50, Arrays.asList("p2", "gold"))); // ranks behind FLATX on p2
+        store.snapshot();
+        first.clearOffers();
+        first.addOffer(new OfferRequest(4, "FLATX", 40, Arrays.asList("p4")));
+        store.snapshot();
+        first.addOffer(new OfferRequest(5, "FLATP", 15, Arrays.asList("silver")));
+
+        // Older log generations are removed once a snapshot covers them
+        try (Stream<Path> files = Files.list(directory.toPath())) {
+            Assert.assertEquals(2, files.count());
+        }
+
+        OfferRepository recovered = openRepository(directory);
+
+        Assert.assertEquals(2, recovered.getOfferCount());
+        Assert.assertFalse(recovered.getOffer(1, "p1").isPresent());
+        Assert.assertEquals(40, recovered.getOffer(4, "p4").get().getOfferValue());
+        Assert.assertEquals(15, recovered.getOffer(5, "silver").get().getOfferValue());
+    }
+
+    @Test
+    public void testRecovery03_SnapshotKeepsFirstOfferWins() throws Exception {
+        File directory = folder.newFolder();
+        OfferRepository first = openRepository(directory);
+
+        first.addOffer(new OfferRequest(3, "FLATX", 5, Arrays.asList("p1", "p2")));
+        first.addOffer(new OfferRequest(3, "FLAT%", 50, Arrays.asList("p2", "gold")));
+        lastStore.shutdown();
+
+        OfferRepository recovered = openRepository(directory);
+
+        Assert.assertEquals(4, recovered.getOfferCount());
+        Assert.assertEquals(5, recovered.getOffer(3, "p2").get().getOfferValue());
+        Assert.assertEquals(50, recovered.getOffer(3, "gold").get().getOfferValue());
+    }
+
+    @Test
+    public void testRecovery04_TypeSpecificFieldsSurvive() throws Exception {
+        File directory = folder.newFolder();
+        OfferRepository first = openRepository(directory);
+
+        first.addOffer(new OfferRequest(6, "FLATP_MAX", 20, Arrays.asList("p1"), 50, 0, 0));
+        lastStore.snapshot();
+        first.addOffer(new OfferRequest(7, "BUYX_PAYY", 0, Arrays.asList("p1"), 0, 3, 2));
+
+        // One offer comes back from the snapshot, the other from the log
+        OfferRepository recovered = openRepository(directory);
+
+        Assert.assertEquals(950, recovered.findOffer(6, "p1").apply(1000, 0));
+        Assert.assertEquals(600, recovered.findOffer(7, "p1").apply(900, 9));
+    }
+
+    @Test
+    public void testRecovery05_RankingSurvives() throws Exception {
+        File directory = folder.newFolder();
+        OfferRepository first = openRepository(directory);
+
+        first.addOffer(new OfferRequest(8, "FLATX", 10, Arrays.asList("p2")));
+        first.addOffer(new OfferRequest(8, "FLATX", 30, Arrays.asList("p1", "p2")));
+        first.addOffer(new OfferRequest(8, "FLATX", 5, Arrays.asList("p1"), 0, 0, 0, 0, "STACKABLE"));
+        lastStore.snapshot();
+        first.addOffer(new OfferRequest(8, "FLAT%", 50, Arrays.asList("p1"), 0, 0, 0, 2, null));
+
+        OfferRepository recovered = openRepository(directory);
+
+        Assert.assertEquals(5, recovered.getOfferCount());
+        // Equal priorities keep the order the offers were added in, even though p1 only saw the second one
+        Assert.assertEquals(190, recovered.findOffer(8, "p2").apply(200, 0));
+        // 50% off wins on priority, then the stackable 5 off
+        Assert.assertEquals(95, recovered.findOffer(8, "p1").apply(200, 0));
+    }
+
+    @Test
+    public void testRecovery06_ReplacedCatalogIsDurableOnReturn() throws Exception {
+        File directory = folder.newFolder();
+        OfferRepository first = openRepository(directory, false);
+
+        first.addOffer(new OfferRequest(1, "FLATX", 10, Arrays.asList("p1")));
+        lastStore.snapshot();
+        first.addOffer(new OfferRequest(2, "FLATX", 20, Arrays.asList("p1")));
+        first.replaceOffers(catalog(first, new OfferRequest(3, "FLATX", 30, Arrays.asList("p1"))));
+
+        // Simulate a crash straight away; other writes are not awaited in this mode, but a replace is
+        OfferRepository recovered = openRepository(directory);
+
+        Assert.assertEquals(1, recovered.getOfferCount());
+        Assert.assertEquals(30, recovered.getOffer(3, "p1").get().getOfferValue());
+    }
+
+    @Test
+    public void testRecovery07_WritesAfterReplaceReplayOntoReplacedCatalog() throws Exception {
+        File directory = folder.newFolder();
+        OfferRepository first = openRepository(directory);
+
+        first.addOffer(new OfferRequest(1, "FLATX", 10, Arrays.asList("p1")));
+        lastStore.snapshot();
+        first.addOffer(new OfferRequest(2, "FLATX", 20, Arrays.asList("p1")));
+        first.replaceOffers(catalog(first, new OfferRequest(3, "FLATX", 30, Arrays.asList("p1"))));
+        first.addOffer(new OfferRequest(4, "FLATX", 40, Arrays.asList("p1")));
+
+        // Simulate a crash before the next scheduled snapshot
+        OfferRepository recovered = openRepository(directory);
+
+        Assert.assertEquals(2, recovered.getOfferCount());
+        Assert.assertFalse(recovered.getOffer(1, "p1").isPresent());
+        Assert.assertFalse(recovered.getOffer(2, "p1").isPresent());
+        Assert.assertEquals(30, recovered.getOffer(3, "p1").get().getOfferValue());
+        Assert.assertEquals(40, recovered.getOffer(4, "p1").get().getOfferValue());
+    }
+
+    @Test
+    public void testRecovery08_FailedWriteDoesNotHideLaterRecords() throws Exception {
+        File directory = folder.newFolder();
+        AtomicBoolean failWrites = new AtomicBoolean();
+        OfferRepository first = openRepository(directory, file -> new TearingChannel(
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                failWrites));
+
+        first.addOffer(new OfferRequest(1, "FLATX", 10, Arrays.asList("p1")));
+        failWrites.set(true);
+        try {
+            first.addOffer(new OfferRequest(2, "FLATX", 20, Arrays.asList("p1")));
+            Assert.fail("Expected the write to fail");
+        } catch (IllegalStateException expected) {
+            // Half of the record reached the file before the write failed
+        }
+        failWrites.set(false);
+        first.addOffer(new OfferRequest(3, "FLATX", 30, Arrays.asList("p1")));
+
+        // The torn record was cut off, so replay reaches the record written after it
+        OfferRepository recovered = openRepository(directory);
+
+        Assert.assertEquals(10, recovered.getOffer(1, "p1").get().getOfferValue());
+        Assert.assertFalse(recovered.getOffer(2, "p1").isPresent());
+        Assert.assertEquals(30, recovered.getOffer(3, "p1").get().getOfferValue());
+    }
+
+    @Test
+    public void testRecovery09_OffersThatFailToPersistAreWithdrawn() throws Exception {
+        File directory = folder.newFolder();
+        AtomicBoolean failWrites = new AtomicBoolean();
+        OfferRepository first = openRepository(directory, file -> new TearingChannel(
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                failWrites));
+
+        first.addOffer(new OfferRequest(1, "FLATX", 10, Arrays.asList("p1")));
+        failWrites.set(true);
+        try {
+            first.addOffer(new OfferRequest(2, "FLATX", 20, Arrays.asList("p1", "p2")));
+            Assert.fail("Expected the write to fail");
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().contains("withdrawn"));
+        }
+        try {
+            first.addOffers(Arrays.asList(new OfferRequest(3, "FLATX", 30, Arrays.asList("p1")),
+                    new OfferRequest(4, "FLATX", 40, Arrays.asList("p1"))));
+            Assert.fail("Expected the write to fail");
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().contains("withdrawn"));
+        }
+
+        // Nothing that is missing from the log is served
+        Assert.assertEquals(1, first.getOfferCount());
+        Assert.assertFalse(first.getOffer(2, "p2").isPresent());
+        Assert.assertFalse(first.getOffer(3, "p1").isPresent());
+        Assert.assertFalse(first.getOffer(4, "p1").isPresent());
+
+        // A clear is not undone, and the error says it will not survive a restart
+        try {
+            first.clearOffers();
+            Assert.fail("Expected the write to fail");
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().contains("lost on restart"));
+        }
+        Assert.assertEquals(0, first.getOfferCount());
+
+        OfferRepository recovered = openRepository(directory);
+
+        Assert.assertEquals(1, recovered.getOfferCount());
+        Assert.assertEquals(10, recovered.getOffer(1, "p1").get().getOfferValue());
+    }
+
+    private static OfferRepository.CatalogBuilder catalog(OfferRepository repository, OfferRequest... offers) {
+        OfferRepository.CatalogBuilder builder = repository.newCatalog();
+        for (OfferRequest offer : offers) {
+            builder.add(offer);
+        }
+        return builder;
+    }
+
+    private OfferRepository openRepository(File directory) throws Exception {
+        return openRepository(directory, true);
+    }
+
+    private OfferRepository openRepository(File directory, boolean syncWrites) throws Exception {
+        OfferStoreProperty property = new OfferStoreProperty();
+        property.setEnabled(true);
+        property.setDirectory(directory.getAbsolutePath());
+        property.setSyncWrites(syncWrites);
+
+        OfferRepository offerRepository = new OfferRepository();
+        lastStore = new OfferStore(offerRepository, property);
+        lastStore.recover();
+        return offerRepository;
+    }
+
+    private OfferRepository openRepository(File directory, OfferStore.LogOpener logOpener) throws Exception {
+        OfferStoreProperty property = new OfferStoreProperty();
+        property.setEnabled(true);
+        property.setDirectory(directory.getAbsolutePath());
+        property.setSyncWrites(true);
+
+        OfferRepository offerRepository = new OfferRepository();
+        lastStore = new OfferStore(offerRepository, property, logOpener);
+        lastStore.recover();
+        return offerRepository;
+    }
+
+    // Passes everything through to a real log file, except that while armed a write stores half of the
+    // buffer and then fails, like a disk filling up mid-record
+    private static final class TearingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private final AtomicBoolean failWrites;
+
+        TearingChannel(FileChannel delegate, AtomicBoolean failWrites) {
+            this.delegate = delegate;
+            this.failWrites = failWrites;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!failWrites.get()) {
+                return delegate.write(src);
+            }
+            ByteBuffer half = src.duplicate();
+            half.limit(half.position() + half.remaining() / 2);
+            delegate.write(half);
+            throw new IOException("No space left on device");
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.springboot;
+
+import io.restassured.http.ContentType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(SpringRunner.class)
+public class OfferTypeTests extends BaseOfferTest {
+
+    @Test
+    public void testType01_FlatAmountFlooredAtZero() {
+        // FLATX_FLOOR: 30 - 100 stops at 0 instead of going to -70 like FLATX
+        addOffer(offer(701, "FLATX_FLOOR", 100));
+        applyOfferAndAssert(1, 701, 30, 0);
+        applyOfferAndAssert(1, 701, 250, 150);
+    }
+
+    @Test
+    public void testType02_PercentWithMaxDiscount() {
+        // FLATP_MAX: 20% off, but never more than 50 off
+        Map<String, Object> offer = offer(702, "FLATP_MAX", 20);
+        offer.put("max_discount", 50);
+        addOffer(offer);
+
+        applyOfferAndAssert(1, 702, 200, 160); // 40 off, under the cap
+        applyOfferAndAssert(1, 702, 1000, 950); // 200 off, capped at 50
+    }
+
+    @Test
+    public void testType03_BuyXPayY() {
+        // BUYX_PAYY: buy 3 pay 2, items priced equally
+        Map<String, Object> offer = offer(703, "BUYX_PAYY", 0);
+        offer.put("buy_quantity", 3);
+        offer.put("pay_quantity", 2);
+        addOffer(offer);
+
+        applyOfferAndAssert(1, 703, 700, 7, 500); // 7 items → 2 free at 100 each
+        applyOfferAndAssert(1, 703, 200, 2, 200); // not a full group
+        applyOfferAndAssert(1, 703, 300, 0, 300); // no item count, no discount
+    }
+
+    @Test
+    public void testType04_PercentUsesIntegerMath() {
+        // 7% of 100 is exactly 7; the old floating-point path produced 92
+        addOffer(offer(704, "FLAT%", 7));
+        applyOfferAndAssert(1, 704, 100, 93);
+    }
+
+    @Test
+    public void testType05_TypeSpecificValidation() {
+        assertRejected(offer(705, "FLATP_MAX", 20), "Max discount");
+
+        Map<String, Object> buyXPayY = offer(705, "BUYX_PAYY", 0);
+        buyXPayY.put("buy_quantity", 2);
+        buyXPayY.put("pay_quantity", 2);
+        assertRejected(buyXPayY, "Pay quantity");
+
+        assertRejected(offer(705, "BOGO", 10), "Supported types: FLATX, FLAT%, FLATP, FLATX_FLOOR");
+    }
+
+    @Test
+    public void testType06_NegativeItemCountRejected() {
+        Map<String, Object> applyRequest = new HashMap<>();
+        applyRequest.put("user_id", 1);
+        applyRequest.put("restaurant_id", 703);
+        applyRequest.put("cart_value", 100);
+        applyRequest.put("item_count", -1);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(applyRequest)
+                .when()
+                .post("/api/v1/cart/apply_offer")
+                .then()
+                .statusCode(400)
+                .body("response_msg", equalTo("Item count cannot be negative"));
+    }
+
+    private static Map<String, Object> offer(int restaurantId, String offerType, int offerValue) {
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("restaurant_id", restaurantId);
+        offer.put("offer_type", offerType);
+        offer.put("offer_value", offerValue);
+        offer.put("customer_segment", Arrays.asList("p1"));
+        return offer;
+    }
+
+    private void addOffer(Map<String, Object> offer) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(offer)
+                .when()
+                .post("/api/v1/offer")
+                .then()
+                .statusCode(200)
+                .body("response_msg", equalTo("success"));
+    }
+
+    private void assertRejected(Map<String, Object> offer, String message) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(offer)
+                .when()
+                .post("/api/v1/offer")
+                .then()
+                .statusCode(400)
+                .body("response_msg", containsString(message));
+    }
+
+    private void applyOfferAndAssert(int userId, int restaurantId, int cartValue, int itemCount, int expectedValue) {
+        Map<String, Object> applyRequest = new HashMap<>();
+        applyRequest.put("user_id", userId);
+        applyRequest.put("restaurant_id", restaurantId);
+        applyRequest.put("cart_value", cartValue);
+        applyRequest.put("item_count", itemCount);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(applyRequest)
+                .when()
+                .post("/api/v1/cart/apply_offer")
+                .then()
+                .statusCode(200)
+                .body("cart_value", equalTo(expectedValue));
+    }
+}
@@ -0,0 +1,200 @@
+package com.springboot;
+
+import com.springboot.controller.OfferRequest;
+import com.springboot.property.OfferStoreProperty;
+import com.springboot.repository.OfferRepository;
+import com.springboot.repository.OfferStore;
+import com.springboot.offer.OfferTypes;
+import io.restassured.http.ContentType;
+import io.restassured.response.ValidatableResponse;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(SpringRunner.class)
+public class OfferWindowTests extends BaseOfferTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(START);
+    private OfferStore lastStore;
+
+    @Test
+    public void testWindow01_OfferAppliesOnlyInsideItsWindow() {
+        OfferRepository repository = new OfferRepository(new OfferTypes(), now::get);
+        repository.addOffer(windowed(1, 10, "p1", 1_000, 5_000));
+
+        Assert.assertFalse(repository.getOffer(1, "p1").isPresent());
+        Assert.assertEquals(1, repository.getPendingOfferCount());
+
+        advanceTo(repository, 1_000);
+        Assert.assertEquals(10, repository.getOffer(1, "p1").get().getOfferValue());
+        Assert.assertEquals(0, repository.getPendingOfferCount());
+
+        // valid_until is exclusive
+        advanceTo(repository, 4_999);
+        Assert.assertTrue(repository.getOffer(1, "p1").isPresent());
+        advanceTo(repository, 5_000);
+        Assert.assertFalse(repository.getOffer(1, "p1").isPresent());
+        Assert.assertEquals(0, repository.getOfferCount());
+    }
+
+    @Test
+    public void testWindow02_EndingOfferLeavesTheOthersInPlace() {
+        OfferRepository repository = new OfferRepository(new OfferTypes(), now::get);
+        repository.addOffer(new OfferRequest(2, "FLATX", 10, Arrays.asList("p1", "p2")));
+        repository.addOffer(new OfferRequest(2, "FLATX", 50, Arrays.asList("p1"), 0, 0, 0, 5, null,
+                null, Instant.ofEpochMilli(START + 2_000)));
+
+        Assert.assertEquals(150, repository.findOffer(2, "p1").apply(200, 0));
+
+        advanceTo(repository, 2_000);
+        Assert.assertEquals(190, repository.findOffer(2, "p1").apply(200, 0));
+        Assert.assertEquals(190, repository.findOffer(2, "p2").apply(200, 0));
+        Assert.assertEquals(2, repository.getOfferCount());
+    }
+
+    @Test
+    public void testWindow03_OffersScheduledDaysAheadStartOnTime() {
+        OfferRepository repository = new OfferRepository(new OfferTypes(), now::get);
+        long day = Duration.ofDays(1).toMillis();
+        // Spread over every level of the wheel
+        long[] starts = {300, 60_000, day, 3 * day + 12_345, 40 * day};
+        for (int i = 0; i < starts.length; i++) {
+            repository.addOffer(windowed(10 + i, 10 + i, "p1", starts[i], starts[i] + day));
+        }
+
+        for (int i = 0; i < starts.length; i++) {
+            advanceTo(repository, starts[i] - 1);
+            Assert.assertFalse("offer " + i + " started early", repository.getOffer(10 + i, "p1").isPresent());
+            // Off-tick starts take effect at the next tick
+            advanceTo(repository, starts[i] + OfferRepository.SCHEDULE_TICK_MILLIS - 1);
+            Assert.assertTrue("offer " + i + " did not start", repository.getOffer(10 + i, "p1").isPresent());
+        }
+        advanceTo(repository, 41 * day);
+        Assert.assertEquals(0, repository.getOfferCount());
+    }
+
+    @Test
+    public void testWindow04_ClearDropsScheduledOffers() {
+        OfferRepository repository = new OfferRepository(new OfferTypes(), now::get);
+        repository.addOffer(windowed(20, 10, "p1", 1_000, 5_000));
+        repository.clearOffers();
+
+        advanceTo(repository, 2_000);
+        Assert.assertFalse(repository.getOffer(20, "p1").isPresent());
+        Assert.assertEquals(0, repository.getPendingOfferCount());
+    }
+
+    @Test
+    public void testWindow05_WindowsSurviveRecovery() throws Exception {
+        File directory = folder.newFolder();
+        OfferRepository first = openRepository(directory);
+        first.addOffer(windowed(30, 10, "p1", 1_000, 10_000));
+        first.addOffer(windowed(31, 20, "p1", 0, 3_000));
+        lastStore.snapshot();
+        first.addOffer(windowed(32, 30, "p1", 5_000, 20_000));
+        lastStore.shutdown();
+
+        // Back up after the second offer ended and the first one started
+        now.set(START + 4_000);
+        OfferRepository recovered = openRepository(directory);
+
+        Assert.assertEquals(10, recovered.getOffer(30, "p1").get().getOfferValue());
+        Assert.assertFalse(recovered.getOffer(31, "p1").isPresent());
+        Assert.assertFalse(recovered.getOffer(32, "p1").isPresent());
+
+        advanceTo(recovered, 10_000);
+        Assert.assertFalse(recovered.getOffer(30, "p1").isPresent());
+        Assert.assertEquals(30, recovered.getOffer(32, "p1").get().getOfferValue());
+    }
+
+    @Test
+    public void testWindow06_FutureOfferIsAcceptedButNotYetApplied() {
+        addOffer(1001, "FLATX", 10, "p1");
+        addOffer(window(offer(1001, 50), Instant.now().plus(Duration.ofHours(1)), null))
+                .statusCode(200)
+                .body("response_msg", equalTo("success"));
+
+        applyOfferAndAssert(1, 1001, 200, 190);
+    }
+
+    @Test
+    public void testWindow07_EndedOrEmptyWindowIsRejected() {
+        addOffer(window(offer(1002, 10), null, Instant.now().minusSeconds(60)))
+                .statusCode(400)
+                .body("response_msg", containsString("Offer window has already ended"));
+
+        Instant from = Instant.now().plus(Duration.ofDays(1));
+        addOffer(window(offer(1002, 10), from, from))
+                .statusCode(400)
+                .body("response_msg", containsString("valid_until must be after valid_from"));
+    }
+
+    private OfferRepository openRepository(File directory) throws Exception {
+        OfferStoreProperty property = new OfferStoreProperty();
+        property.setEnabled(true);
+        property.setDirectory(directory.getAbsolutePath());
+
+        OfferRepository offerRepository = new OfferRepository(new OfferTypes(), now::get);
+        lastStore = new OfferStore(offerRepository, property);
+        lastStore.recover();
+        return offerRepository;
+    }
+
+    private void advanceTo(OfferRepository repository, long offsetMillis) {
+        now.set(START + offsetMillis);
+        repository.advanceClock();
+    }
+
+    private static OfferRequest windowed(int restaurantId, int offerValue, String segment, long fromOffset,
+                                         long untilOffset) {
+        return new OfferRequest(restaurantId, "FLATX", offerValue, Arrays.asList(segment), 0, 0, 0, 0, null,
+                Instant.ofEpochMilli(START + fromOffset), Instant.ofEpochMilli(START + untilOffset));
+    }
+
+    private static Map<String, Object> offer(int restaurantId, int offerValue) {
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("restaurant_id", restaurantId);
+        offer.put("offer_type", "FLATX");
+        offer.put("offer_value", offerValue);
+        offer.put("customer_segment", Arrays.asList("p1"));
+        return offer;
+    }
+
+    private static Map<String, Object> window(Map<String, Object> offer, Instant from, Instant until) {
+        if (from != null) {
+            offer.put("valid_from", from.toString());
+        }
+        if (until != null) {
+            offer.put("valid_until", until.toString());
+        }
+        return offer;
+    }
+
+    private static ValidatableResponse addOffer(Map<String, Object> offer) {
+        return given()
+                .contentType(ContentType.JSON)
+                .body(offer)
+                .when()
+                .post("/api/v1/offer")
+                .then();
+    }
+}
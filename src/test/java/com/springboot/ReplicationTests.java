@@ -0,0 +1,140 @@
+package com.springboot;
+
+import io.restassured.http.ContentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertEquals;
+
+// Runs a leader and followers as separate application instances on localhost ports
+public class ReplicationTests {
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private int leaderPort;
+
+    @Before
+    public void startLeader() {
+        leaderPort = start("replication.role=leader", "replication.log-retention=4");
+    }
+
+    @After
+    public void stopNodes() {
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            nodes.get(i).close();
+        }
+    }
+
+    @Test
+    public void testReplication01_LeaderWritesReachFollower() throws Exception {
+        int followerPort = startFollower();
+
+        addOffer(leaderPort, 901, "FLATX", 10);
+        addOffer(leaderPort, 902, "FLAT%", 10);
+
+        awaitCartValue(followerPort, 901, 200, 190);
+        awaitCartValue(followerPort, 902, 200, 180);
+    }
+
+    @Test
+    public void testReplication02_FollowerForwardsWritesAndReadsThem() {
+        int followerPort = startFollower();
+
+        addOffer(followerPort, 903, "FLATX", 25);
+
+        // Visible on the follower as soon as the write returns, and on the leader
+        assertCartValue(followerPort, 903, 200, 175);
+        assertCartValue(leaderPort, 903, 200, 175);
+    }
+
+    @Test
+    public void testReplication03_LateFollowerCatchesUpFromSnapshot() throws Exception {
+        // More changes than the leader keeps, so a new follower cannot replay them all
+        for (int restaurantId = 904; restaurantId <= 910; restaurantId++) {
+            addOffer(leaderPort, restaurantId, "FLATX", restaurantId - 900);
+        }
+
+        int followerPort = startFollower();
+        awaitCartValue(followerPort, 904, 100, 96);
+        awaitCartValue(followerPort, 910, 100, 90);
+
+        // Then it carries on from the log
+        given().post("http://localhost:" + leaderPort + "/api/v1/offer/clear").then().statusCode(200);
+        awaitCartValue(followerPort, 910, 100, 100);
+    }
+
+    private int startFollower() {
+        return start("replication.role=follower", "replication.leader-url=http://localhost:" + leaderPort,
+                "replication.poll-wait=1s", "replication.retry-delay=100ms");
+    }
+
+    private int start(String... properties) {
+        List<String> args = new ArrayList<>();
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        args.add("--server.port=0");
+        // Several instances share this JVM
+        args.add("--spring.jmx.enabled=false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(CartOfferApplication.class)
+                .run(args.toArray(new String[0]));
+        nodes.add(context);
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    private static void addOffer(int port, int restaurantId, String offerType, int offerValue) {
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("restaurant_id", restaurantId);
+        offer.put("offer_type", offerType);
+        offer.put("offer_value", offerValue);
+        offer.put("customer_segment", Arrays.asList("p1"));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(offer)
+                .when()
+                .post("http://localhost:" + port + "/api/v1/offer")
+                .then()
+                .statusCode(200)
+                .body("response_msg", equalTo("success"));
+    }
+
+    private static int cartValue(int port, int restaurantId, int cartValue) {
+        Map<String, Object> applyRequest = new HashMap<>();
+        applyRequest.put("user_id", 1);
+        applyRequest.put("restaurant_id", restaurantId);
+        applyRequest.put("cart_value", cartValue);
+
+        return given()
+                .contentType(ContentType.JSON)
+                .body(applyRequest)
+                .when()
+                .post("http://localhost:" + port + "/api/v1/cart/apply_offer")
+                .then()
+                .statusCode(200)
+                .extract().path("cart_value");
+    }
+
+    private static void assertCartValue(int port, int restaurantId, int cartValue, int expectedValue) {
+        assertEquals(expectedValue, cartValue(port, restaurantId, cartValue));
+    }
+
+    private static void awaitCartValue(int port, int restaurantId, int cartValue, int expectedValue)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (cartValue(port, restaurantId, cartValue) != expectedValue && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertCartValue(port, restaurantId, cartValue, expectedValue);
+    }
+}
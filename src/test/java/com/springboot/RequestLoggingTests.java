@@ -0,0 +1,129 @@
+package com.springboot;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.springboot.logging.RequestLogFilter;
+import com.springboot.service.OfferService;
+import io.restassured.http.ContentType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static io.restassured.RestAssured.given;
+
+@RunWith(SpringRunner.class)
+@TestPropertySource(properties = {
+        "request.log.sample-rates.[/api/v1/cart/apply_offer]=0",
+        "request.log.slow-threshold=10s"})
+public class RequestLoggingTests extends BaseOfferTest {
+
+    private final ListAppender<ILoggingEvent> requestLog = new ListAppender<>();
+    private final ListAppender<ILoggingEvent> serviceLog = new ListAppender<>();
+
+    @Before
+    public void attachAppenders() {
+        attach(RequestLogFilter.class, requestLog);
+        attach(OfferService.class, serviceLog);
+    }
+
+    @After
+    public void detachAppenders() {
+        ((Logger) LoggerFactory.getLogger(RequestLogFilter.class)).detachAppender(requestLog);
+        ((Logger) LoggerFactory.getLogger(OfferService.class)).detachAppender(serviceLog);
+    }
+
+    @Test
+    public void testLogging01_SuccessfulRequestsSampledOut() {
+        addOffer(601, "FLATX", 10, "p1");
+
+        for (int i = 0; i < 20; i++) {
+            applyOfferAndAssert(1, 601, 200, 190);
+        }
+
+        Assert.assertTrue(messages(requestLog).stream().noneMatch(line -> line.contains("path=/api/v1/cart/apply_offer ")));
+        Assert.assertTrue(messages(serviceLog).stream().noneMatch(line -> line.startsWith("Offer applied")));
+    }
+
+    @Test
+    public void testLogging02_ErrorsAlwaysLogged() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(applyRequest(0, 601, 200))
+                .when()
+                .post("/api/v1/cart/apply_offer")
+                .then()
+                .statusCode(400);
+
+        List<String> lines = awaitMessages(requestLog, "status=400").stream()
+                .filter(line -> line.contains("path=/api/v1/cart/apply_offer "))
+                .collect(Collectors.toList());
+        Assert.assertEquals(1, lines.size());
+        Assert.assertTrue(lines.get(0).contains("status=400"));
+        Assert.assertTrue(lines.get(0).contains("log_reason=error"));
+    }
+
+    @Test
+    public void testLogging03_TracedRequestLogsDetail() {
+        addOffer(602, "FLATX", 10, "p1");
+        serviceLog.list.clear();
+
+        given()
+                .contentType(ContentType.JSON)
+                .header("X-Trace-Request", "true")
+                .body(applyRequest(1, 602, 200))
+                .when()
+                .post("/api/v1/cart/apply_offer")
+                .then()
+                .statusCode(200);
+
+        Assert.assertTrue(awaitMessages(requestLog, "log_reason=traced").stream()
+                .anyMatch(line -> line.contains("log_reason=traced")));
+        Assert.assertTrue(messages(serviceLog).stream().anyMatch(line -> line.startsWith("Offer applied")));
+    }
+
+    private static void attach(Class<?> loggerClass, ListAppender<ILoggingEvent> appender) {
+        appender.start();
+        ((Logger) LoggerFactory.getLogger(loggerClass)).addAppender(appender);
+    }
+
+    // The summary line is written after the response has gone out, so it can trail the client slightly
+    private static List<String> awaitMessages(ListAppender<ILoggingEvent> appender, String expected) {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (messages(appender).stream().noneMatch(line -> line.contains(expected))
+                && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return messages(appender);
+    }
+
+    private static List<String> messages(ListAppender<ILoggingEvent> appender) {
+        // Appenders add events while holding their own lock
+        synchronized (appender) {
+            return appender.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList());
+        }
+    }
+
+    private static Map<String, Object> applyRequest(int userId, int restaurantId, int cartValue) {
+        Map<String, Object> applyRequest = new HashMap<>();
+        applyRequest.put("user_id", userId);
+        applyRequest.put("restaurant_id", restaurantId);
+        applyRequest.put("cart_value", cartValue);
+        return applyRequest;
+    }
+}
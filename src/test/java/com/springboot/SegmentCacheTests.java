@@ -0,0 +1,169 @@
+package com.springboot;
+
+import com.springboot.controller.SegmentResponse;
+import com.springboot.property.SegmentCacheProperty;
+import com.springboot.service.SegmentCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SegmentCacheTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong();
+    private SegmentCache cache;
+
+    @After
+    public void tearDown() {
+        if (cache != null) {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testSegmentCache01_ExpiredEntryIsReloaded() throws Exception {
+        cache = cache(100);
+        AtomicInteger loads = new AtomicInteger();
+        SegmentCache.Loader loader = userId -> segment("p" + loads.incrementAndGet());
+
+        Assert.assertEquals("p1", cache.get(1, loader).getSegment());
+        now.set(5 * SECOND);
+        Assert.assertEquals("p1", cache.get(1, loader).getSegment());
+        now.set(10 * SECOND);
+        Assert.assertEquals("p2", cache.get(1, loader).getSegment());
+
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testSegmentCache02_StaleEntryIsServedAndRefreshedOnce() throws Exception {
+        cache = cache(100);
+        cache.get(1, userId -> segment("p1"));
+
+        // The background reload blocks until released, while further hits keep asking for a refresh
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger refreshes = new AtomicInteger();
+        SegmentCache.Loader slowLoader = userId -> {
+            refreshes.incrementAndGet();
+            refreshStarted.countDown();
+            release.await();
+            return segment("p2");
+        };
+
+        now.set(8 * SECOND);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals("p1", cache.get(1, slowLoader).getSegment());
+        }
+        Assert.assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        awaitRefreshCount(1);
+
+        Assert.assertEquals(1, refreshes.get());
+        Assert.assertEquals("p2", cache.get(1, slowLoader).getSegment());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(21, cache.getHitCount());
+    }
+
+    @Test
+    public void testSegmentCache03_AsyncRefreshKeepsServingUntilReloaded() throws Exception {
+        cache = cache(100);
+        cache.getAsync(1, userId -> CompletableFuture.completedFuture(segment("p1"))).get();
+
+        CompletableFuture<SegmentResponse> reload = new CompletableFuture<>();
+        AtomicInteger refreshes = new AtomicInteger();
+        now.set(8 * SECOND);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("p1", cache.getAsync(1, userId -> {
+                refreshes.incrementAndGet();
+                return reload;
+            }).get().getSegment());
+        }
+        reload.complete(segment("p2"));
+
+        Assert.assertEquals(1, refreshes.get());
+        Assert.assertEquals(1, cache.getRefreshCount());
+        Assert.assertEquals("p2", cache.getAsync(1, userId -> reload).get().getSegment());
+    }
+
+    @Test
+    public void testSegmentCache04_OldestEntriesAreEvictedFirst() throws Exception {
+        cache = cache(2);
+        AtomicInteger loads = new AtomicInteger();
+        SegmentCache.Loader loader = userId -> {
+            loads.incrementAndGet();
+            return segment("p" + userId);
+        };
+
+        cache.get(1, loader);
+        cache.get(2, loader);
+        cache.get(1, loader);
+        cache.get(3, loader);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        // User 1 was inserted first, so it goes even though it was read more recently than user 2
+        cache.get(2, loader);
+        Assert.assertEquals(3, loads.get());
+        cache.get(1, loader);
+        Assert.assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testSegmentCache05_EmptyReloadIsNotCached() throws Exception {
+        cache = cache(2);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1, userId -> segment("p1"));
+        cache.get(2, userId -> segment("p2"));
+
+        now.set(10 * SECOND);
+        Assert.assertNull(cache.get(1, userId -> null));
+
+        // The expired entry is never served again; the next lookup goes back to the loader
+        Assert.assertEquals("p1", cache.get(1, userId -> {
+            loads.incrementAndGet();
+            return segment("p1");
+        }).getSegment());
+        Assert.assertEquals(1, loads.get());
+
+        // Until it is reloaded, an expired entry holds its slot and is evicted like any other
+        now.set(20 * SECOND);
+        Assert.assertNull(cache.get(1, userId -> null));
+        cache.get(3, userId -> segment("p3"));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    private SegmentCache cache(int maximumSize) {
+        SegmentCacheProperty property = new SegmentCacheProperty();
+        property.setMaximumSize(maximumSize);
+        property.setTtl(Duration.ofSeconds(10));
+        property.setRefreshAfter(Duration.ofSeconds(8));
+        return new SegmentCache(property, now::get);
+    }
+
+    private void awaitRefreshCount(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getRefreshCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expected, cache.getRefreshCount());
+    }
+
+    private static SegmentResponse segment(String name) {
+        SegmentResponse segment = new SegmentResponse();
+        segment.setSegment(name);
+        return segment;
+    }
+}
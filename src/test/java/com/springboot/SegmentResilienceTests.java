@@ -0,0 +1,283 @@
+package com.springboot;
+
+import com.springboot.client.CircuitBreaker;
+import com.springboot.client.ResilientAsyncSegmentClient;
+import com.springboot.client.ResilientSegmentClient;
+import com.springboot.client.SegmentClient;
+import com.springboot.client.SegmentUnavailableException;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.property.SegmentCacheProperty;
+import com.springboot.property.SegmentResilienceProperty;
+import com.springboot.repository.OfferRepository;
+import com.springboot.service.SegmentCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SegmentResilienceTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void testResilience01_CircuitOpensAndRecovers() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(50, 10, 4, 1000, 2, now::get, state -> { });
+
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState()); // below minimum calls
+        breaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+
+        // After the open duration two trial calls are let through, and both succeeding closes the circuit
+        now.set(1000);
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertFalse(breaker.tryAcquire());
+        breaker.onSuccess();
+        breaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testResilience02_FailingServiceFailsFast() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        SegmentResilienceProperty property = new SegmentResilienceProperty();
+        property.setMinimumCalls(5);
+        ResilientSegmentClient client = client(userId -> {
+            calls.incrementAndGet();
+            throw new IOException("Connection refused");
+        }, property);
+
+        for (int i = 0; i < 5; i++) {
+            try {
+                client.getSegment(1);
+                Assert.fail("Expected the call to fail");
+            } catch (IOException expected) {
+                Assert.assertFalse(expected instanceof SegmentUnavailableException);
+            }
+        }
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+        try {
+            client.getSegment(1);
+            Assert.fail("Expected the open circuit to reject the call");
+        } catch (SegmentUnavailableException expected) {
+            Assert.assertEquals(5, calls.get());
+        }
+        Assert.assertEquals(1.0, registry.get("segment.circuit.rejected").counter().count(), 0);
+        client.shutdown();
+    }
+
+    @Test
+    public void testResilience03_SlowCallAbandonedAfterBudget() throws Exception {
+        SegmentResilienceProperty property = new SegmentResilienceProperty();
+        property.setTimeoutBudget(Duration.ofMillis(50));
+        ResilientSegmentClient client = client(userId -> {
+            sleep(1000);
+            return segment("p1");
+        }, property);
+
+        long start = System.nanoTime();
+        try {
+            client.getSegment(1);
+            Assert.fail("Expected the budget to be exceeded");
+        } catch (InterruptedIOException expected) {
+            Assert.assertTrue(System.nanoTime() - start < 500_000_000L);
+        }
+        Assert.assertEquals(1.0, registry.get("segment.budget.exceeded").counter().count(), 0);
+        client.shutdown();
+    }
+
+    @Test
+    public void testResilience04_HedgedRequestWins() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        SegmentResilienceProperty property = new SegmentResilienceProperty();
+        property.setHedgeEnabled(true);
+        property.setTimeoutBudget(Duration.ofSeconds(2));
+        ResilientSegmentClient client = client(userId -> {
+            // The 21st call is stuck; every other call answers straight away
+            if (calls.incrementAndGet() == 21) {
+                sleep(1500);
+            }
+            return segment("p" + userId);
+        }, property);
+
+        for (int i = 0; i < 20; i++) {
+            client.getSegment(1);
+        }
+
+        long start = System.nanoTime();
+        Assert.assertEquals("p2", client.getSegment(2).getSegment());
+        Assert.assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        Assert.assertEquals(1.0, registry.get("segment.hedge.requests").tag("result", "won").counter().count(), 0);
+        client.shutdown();
+    }
+
+    @Test
+    public void testResilience05_SaturationDoesNotOpenCircuit() throws Exception {
+        SegmentResilienceProperty property = new SegmentResilienceProperty();
+        property.setMaxConcurrentCalls(1);
+        property.setMinimumCalls(5);
+        property.setTimeoutBudget(Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ResilientSegmentClient client = client(userId -> {
+            started.countDown();
+            await(release);
+            return segment("p1");
+        }, property);
+
+        // The only call thread is taken by a slow but healthy lookup
+        CompletableFuture<SegmentResponse> slow = CompletableFuture.supplyAsync(() -> {
+            try {
+                return client.getSegment(1);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                client.getSegment(2);
+                Assert.fail("Expected the lookup to be refused");
+            } catch (SegmentUnavailableException expected) {
+                Assert.assertEquals("Too many segment calls in flight", expected.getMessage());
+            }
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState());
+
+        release.countDown();
+        Assert.assertEquals("p1", slow.get(5, TimeUnit.SECONDS).getSegment());
+        Assert.assertEquals("p1", client.getSegment(3).getSegment());
+        client.shutdown();
+    }
+
+    @Test
+    public void testResilience06_SkippedTrialCallHandsBackPermit() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(50, 10, 2, 1000, 2, now::get, state -> { });
+        breaker.onFailure();
+        breaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now.set(1000);
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertFalse(breaker.tryAcquire());
+
+        // A trial call that never reached the service neither closes nor reopens the circuit
+        breaker.onSkipped();
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        breaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testResilience07_AsyncLookupAbandonedAfterBudget() throws Exception {
+        SegmentResilienceProperty property = new SegmentResilienceProperty();
+        property.setTimeoutBudget(Duration.ofMillis(50));
+        ResilientSegmentClient blockingClient = client(userId -> segment("p1"), property);
+        ResilientAsyncSegmentClient client = new ResilientAsyncSegmentClient(userId -> new CompletableFuture<>(),
+                blockingClient, property, metrics());
+
+        long start = System.nanoTime();
+        try {
+            client.getSegmentAsync(1).get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the budget to be exceeded");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof InterruptedIOException);
+            Assert.assertTrue(System.nanoTime() - start < 500_000_000L);
+        }
+        Assert.assertEquals(1.0, registry.get("segment.budget.exceeded").counter().count(), 0);
+        client.shutdown();
+        blockingClient.shutdown();
+    }
+
+    @Test
+    public void testResilience08_AsyncLookupsShareTheCircuit() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        SegmentResilienceProperty property = new SegmentResilienceProperty();
+        property.setMinimumCalls(5);
+        ResilientSegmentClient blockingClient = client(userId -> segment("p1"), property);
+        ResilientAsyncSegmentClient client = new ResilientAsyncSegmentClient(userId -> {
+            calls.incrementAndGet();
+            CompletableFuture<SegmentResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Connection refused"));
+            return failed;
+        }, blockingClient, property, metrics());
+
+        for (int i = 0; i < 5; i++) {
+            try {
+                client.getSegmentAsync(1).get(5, TimeUnit.SECONDS);
+                Assert.fail("Expected the call to fail");
+            } catch (ExecutionException expected) {
+                Assert.assertFalse(expected.getCause() instanceof SegmentUnavailableException);
+            }
+        }
+
+        // Failures seen on the async path open the circuit for the blocking path too
+        Assert.assertEquals(CircuitBreaker.State.OPEN, blockingClient.getCircuitState());
+        try {
+            client.getSegmentAsync(1).get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the open circuit to reject the call");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof SegmentUnavailableException);
+        }
+        try {
+            blockingClient.getSegment(1);
+            Assert.fail("Expected the open circuit to reject the call");
+        } catch (SegmentUnavailableException expected) {
+            Assert.assertEquals(5, calls.get());
+        }
+        client.shutdown();
+        blockingClient.shutdown();
+    }
+
+    private ResilientSegmentClient client(SegmentClient delegate, SegmentResilienceProperty property) {
+        return new ResilientSegmentClient(delegate, property, metrics());
+    }
+
+    private OfferMetrics metrics() {
+        return new OfferMetrics(registry, new OfferRepository(), new SegmentCache(new SegmentCacheProperty()));
+    }
+
+    private static SegmentResponse segment(String name) {
+        SegmentResponse segment = new SegmentResponse();
+        segment.setSegment(name);
+        return segment;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.springboot;
+
+import com.springboot.client.SegmentClient;
+import com.springboot.controller.ApplyOfferRequest;
+import com.springboot.controller.OfferRequest;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.property.SegmentCacheProperty;
+import com.springboot.property.SegmentSnapshotProperty;
+import com.springboot.repository.OfferRepository;
+import com.springboot.service.OfferService;
+import com.springboot.service.SegmentCache;
+import com.springboot.service.SegmentSnapshot;
+import com.springboot.service.SegmentSnapshotFiles;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SegmentSnapshotTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private SegmentSnapshot snapshot;
+
+    @After
+    public void tearDown() {
+        if (snapshot != null) {
+            snapshot.shutdown();
+        }
+    }
+
+    @Test
+    public void testSnapshot01_LookupsFromMappedFile() throws IOException {
+        // More than 256 segments, so codes take two bytes
+        Map<Integer, String> assignments = new HashMap<>();
+        for (int userId = 2; userId <= 20_000; userId += 2) {
+            assignments.put(userId, "s" + (userId % 300));
+        }
+        Path file = folder.getRoot().toPath().resolve("segments.snap");
+        SegmentSnapshotFiles.writeSnapshot(file, 7, assignments);
+
+        SegmentSnapshotFiles.MappedSegments mapped = SegmentSnapshotFiles.map(file);
+        Assert.assertEquals(7, mapped.getGeneration());
+        Assert.assertEquals(10_000, mapped.size());
+        for (int userId = 1; userId <= 20_001; userId++) {
+            int code = mapped.find(userId);
+            if (userId % 2 == 0) {
+                Assert.assertEquals("s" + (userId % 300), mapped.getSegments()[code]);
+            } else {
+                Assert.assertEquals(-1, code);
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshot02_DeltasApplyInOrderForTheirGeneration() throws IOException {
+        writeSnapshot(1, assignments(1, "p1", 2, "p2", 3, "p3"));
+        snapshot = start();
+
+        Assert.assertEquals("p1", snapshot.get(1).getSegment());
+        Assert.assertNull(snapshot.get(4));
+
+        Map<Integer, String> first = assignments(1, "gold", 4, "p4");
+        first.put(3, null);
+        SegmentSnapshotFiles.writeDelta(deltaDirectory(), 1, 1, first);
+        SegmentSnapshotFiles.writeDelta(deltaDirectory(), 1, 2, assignments(1, "silver"));
+        // Produced against a different snapshot, so ignored
+        SegmentSnapshotFiles.writeDelta(deltaDirectory(), 2, 3, assignments(2, "premium"));
+        snapshot.refresh();
+
+        Assert.assertEquals("silver", snapshot.get(1).getSegment());
+        Assert.assertEquals("p2", snapshot.get(2).getSegment());
+        Assert.assertNull(snapshot.get(3));
+        Assert.assertEquals("p4", snapshot.get(4).getSegment());
+    }
+
+    @Test
+    public void testSnapshot03_NewSnapshotReplacesOldOneAndItsDeltas() throws IOException {
+        writeSnapshot(1, assignments(1, "p1", 2, "p2"));
+        SegmentSnapshotFiles.writeDelta(deltaDirectory(), 1, 1, assignments(2, "gold"));
+        snapshot = start();
+        Assert.assertEquals("gold", snapshot.get(2).getSegment());
+
+        writeSnapshot(2, assignments(1, "basic", 2, "p2"));
+        SegmentSnapshotFiles.writeDelta(deltaDirectory(), 2, 2, assignments(5, "premium"));
+        snapshot.refresh();
+
+        Assert.assertEquals(2, snapshot.getGeneration());
+        Assert.assertEquals("basic", snapshot.get(1).getSegment());
+        Assert.assertEquals("p2", snapshot.get(2).getSegment());
+        Assert.assertEquals("premium", snapshot.get(5).getSegment());
+    }
+
+    @Test
+    public void testSnapshot04_DamagedSnapshotKeepsServingThePreviousOne() throws IOException {
+        Path file = writeSnapshot(1, assignments(1, "p1"));
+        snapshot = start();
+
+        // Replaced by a file whose last bytes were lost
+        Path damaged = folder.getRoot().toPath().resolve("damaged.snap");
+        SegmentSnapshotFiles.writeSnapshot(damaged, 2, assignments(1, "p2"));
+        byte[] bytes = Files.readAllBytes(damaged);
+        Files.write(damaged, Arrays.copyOf(bytes, bytes.length - 3), StandardOpenOption.TRUNCATE_EXISTING);
+        Files.move(damaged, file, StandardCopyOption.REPLACE_EXISTING);
+        snapshot.refresh();
+
+        Assert.assertEquals(1, snapshot.getGeneration());
+        Assert.assertEquals("p1", snapshot.get(1).getSegment());
+    }
+
+    @Test
+    public void testSnapshot05_OnlyUnlistedUsersReachTheSegmentService() throws Exception {
+        writeSnapshot(1, assignments(1, "p1", 2, "p2"));
+        snapshot = start();
+
+        AtomicInteger remoteCalls = new AtomicInteger();
+        SegmentClient remote = userId -> {
+            remoteCalls.incrementAndGet();
+            SegmentResponse segment = new SegmentResponse();
+            segment.setSegment("p3");
+            return segment;
+        };
+        OfferRepository repository = new OfferRepository();
+        repository.addOffer(new OfferRequest(1, "FLATX", 10, Arrays.asList("p1", "p3")));
+        SegmentCacheProperty cacheProperty = new SegmentCacheProperty();
+        cacheProperty.setEnabled(false);
+        SegmentCache cache = new SegmentCache(cacheProperty);
+        OfferService offerService = new OfferService(repository, remote, cache, snapshot,
+                new OfferMetrics(registry, repository, cache));
+
+        Assert.assertEquals(190, offerService.applyOffer(cart(1)).getCart_value());
+        Assert.assertEquals(200, offerService.applyOffer(cart(2)).getCart_value());
+        Assert.assertEquals(0, remoteCalls.get());
+
+        Assert.assertEquals(190, offerService.applyOffer(cart(3)).getCart_value());
+        Assert.assertEquals(1, remoteCalls.get());
+        Assert.assertEquals(2.0, registry.get("segment.snapshot.requests").tag("result", "hit")
+                .functionCounter().count(), 0);
+        cache.shutdown();
+    }
+
+    @Test
+    public void testSnapshot06_DeltasAreChosenByName() throws IOException {
+        Path directory = deltaDirectory();
+        SegmentSnapshotFiles.writeDelta(directory, 1, 1, assignments(1, "gold"));
+        SegmentSnapshotFiles.writeDelta(directory, 1, 2, assignments(1, "silver"));
+        SegmentSnapshotFiles.writeDelta(directory, 2, 3, assignments(1, "premium"));
+        Files.write(directory.resolve("README"), new byte[]{1});
+
+        Assert.assertEquals(Arrays.asList(SegmentSnapshotFiles.deltaPath(directory, 1, 2)),
+                SegmentSnapshotFiles.listDeltas(directory, 1, 1));
+        Assert.assertEquals(Arrays.asList(SegmentSnapshotFiles.deltaPath(directory, 2, 3)),
+                SegmentSnapshotFiles.listDeltas(directory, 2, -1));
+        Assert.assertTrue(SegmentSnapshotFiles.listDeltas(directory, 3, -1).isEmpty());
+    }
+
+    @Test
+    public void testSnapshot07_LaterDeltasExtendEarlierOnes() throws IOException {
+        writeSnapshot(1, assignments(1, "p1", 2, "p2"));
+        SegmentSnapshotFiles.writeDelta(deltaDirectory(), 1, 1, assignments(3, "gold", 4, "gold"));
+        snapshot = start();
+
+        // Once applied, an earlier delta is not read again; the overlay keeps what it set
+        Files.write(SegmentSnapshotFiles.deltaPath(deltaDirectory(), 1, 1), new byte[]{1},
+                StandardOpenOption.TRUNCATE_EXISTING);
+        Map<Integer, String> second = assignments(4, "silver");
+        second.put(1, null);
+        SegmentSnapshotFiles.writeDelta(deltaDirectory(), 1, 2, second);
+        snapshot.refresh();
+
+        Assert.assertNull(snapshot.get(1));
+        Assert.assertEquals("p2", snapshot.get(2).getSegment());
+        Assert.assertEquals("gold", snapshot.get(3).getSegment());
+        Assert.assertEquals("silver", snapshot.get(4).getSegment());
+    }
+
+    private SegmentSnapshot start() {
+        SegmentSnapshotProperty property = new SegmentSnapshotProperty();
+        property.setEnabled(true);
+        property.setFile(folder.getRoot().toPath().resolve("segments.snap").toString());
+        property.setDeltaDirectory(deltaDirectory().toString());
+        SegmentSnapshot segmentSnapshot = new SegmentSnapshot(property,
+                new OfferMetrics(registry, new OfferRepository(), new SegmentCache(new SegmentCacheProperty())));
+        segmentSnapshot.start();
+        return segmentSnapshot;
+    }
+
+    private Path writeSnapshot(long generation, Map<Integer, String> assignments) throws IOException {
+        Path file = folder.getRoot().toPath().resolve("segments.snap");
+        SegmentSnapshotFiles.writeSnapshot(file, generation, assignments);
+        return file;
+    }
+
+    private Path deltaDirectory() {
+        Path directory = folder.getRoot().toPath().resolve("deltas");
+        directory.toFile().mkdirs();
+        return directory;
+    }
+
+    private static Map<Integer, String> assignments(Object... userIdsAndSegments) {
+        Map<Integer, String> assignments = new HashMap<>();
+        for (int i = 0; i < userIdsAndSegments.length; i += 2) {
+            assignments.put((Integer) userIdsAndSegments[i], (String) userIdsAndSegments[i + 1]);
+        }
+        return assignments;
+    }
+
+    private static ApplyOfferRequest cart(int userId) {
+        ApplyOfferRequest request = new ApplyOfferRequest();
+        request.setUser_id(userId);
+        request.setRestaurant_id(1);
+        request.setCart_value(200);
+        return request;
+    }
+}
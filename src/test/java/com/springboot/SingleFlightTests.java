@@ -0,0 +1,278 @@
+package com.springboot;
+
+import com.springboot.client.SegmentClient;
+import com.springboot.controller.ApplyOfferRequest;
+import com.springboot.controller.SegmentResponse;
+import com.springboot.metrics.OfferMetrics;
+import com.springboot.property.SegmentCacheProperty;
+import com.springboot.repository.OfferRepository;
+import com.springboot.service.OfferService;
+import com.springboot.service.SegmentCache;
+import com.springboot.service.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SingleFlightTests {
+
+    private static final int WAITERS = 8;
+
+    @Test
+    public void testSingleFlight01_WaitersShareOneCallAndItsResult() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        String result = "p1";
+
+        List<Caller> callers = startCallers(() -> singleFlight.execute(7, key -> {
+            calls.incrementAndGet();
+            release.await();
+            return result;
+        }));
+        awaitAllWaiting(callers);
+        release.countDown();
+
+        for (Caller caller : callers) {
+            caller.join();
+            Assert.assertSame(result, caller.result.get());
+            Assert.assertNull(caller.failure.get());
+        }
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testSingleFlight02_FailureReachesEveryWaiter() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        IOException failure = new IOException("Connection reset");
+
+        List<Caller> callers = startCallers(() -> singleFlight.execute(7, key -> {
+            calls.incrementAndGet();
+            release.await();
+            throw failure;
+        }));
+        awaitAllWaiting(callers);
+        release.countDown();
+
+        for (Caller caller : callers) {
+            caller.join();
+            Assert.assertNull(caller.result.get());
+            Assert.assertSame(failure, caller.failure.get());
+        }
+        Assert.assertEquals(1, calls.get());
+
+        // The failed call is not reused
+        Assert.assertEquals("p2", singleFlight.execute(7, key -> "p2"));
+    }
+
+    @Test
+    public void testSingleFlight03_AsyncCallersShareOneCallAndItsFailure() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> remote = new CompletableFuture<>();
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i <= WAITERS; i++) {
+            results.add(singleFlight.executeAsync(7, key -> {
+                calls.incrementAndGet();
+                return remote;
+            }));
+        }
+        IOException failure = new IOException("Connection reset");
+        remote.completeExceptionally(failure);
+
+        Assert.assertEquals(1, calls.get());
+        for (CompletableFuture<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                Assert.fail("Expected the shared call to fail");
+            } catch (ExecutionException expected) {
+                Assert.assertSame(failure, expected.getCause());
+            }
+        }
+
+        CompletableFuture<String> next = singleFlight.executeAsync(7, key -> CompletableFuture.completedFuture("p2"));
+        Assert.assertEquals("p2", next.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testSingleFlight04_AsyncCallersShareOneResult() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> remote = new CompletableFuture<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i <= WAITERS; i++) {
+            CompletableFuture<String> result = new CompletableFuture<>();
+            results.add(result);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    singleFlight.executeAsync(7, key -> {
+                        calls.incrementAndGet();
+                        return remote;
+                    }).whenComplete((value, failure) -> result.complete(value));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        remote.complete("p1");
+
+        for (CompletableFuture<String> result : results) {
+            Assert.assertEquals("p1", result.get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testSingleFlight05_InterruptedWaiterKeepsItsInterrupt() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Callable call = () -> singleFlight.execute(7, key -> {
+            release.await();
+            return "p1";
+        });
+
+        List<Caller> leader = startCallers(call, 1);
+        awaitAllWaiting(leader);
+        List<Caller> waiter = startCallers(call, 1);
+        awaitAllWaiting(waiter);
+
+        // Only the waiter gives up; the call itself completes as normal for its leader
+        waiter.get(0).interrupt();
+        waiter.get(0).join(5000);
+        release.countDown();
+        leader.get(0).join(5000);
+
+        Assert.assertTrue(waiter.get(0).failure.get() instanceof InterruptedIOException);
+        Assert.assertTrue(waiter.get(0).interruptedAfterFailure);
+        Assert.assertEquals("p1", leader.get(0).result.get());
+    }
+
+    @Test
+    public void testSingleFlight06_InterruptedWaiterIsCountedAsCancelled() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SegmentClient segmentClient = userId -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            SegmentResponse segment = new SegmentResponse();
+            segment.setSegment("p1");
+            return segment;
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OfferRepository repository = new OfferRepository();
+        SegmentCacheProperty cacheProperty = new SegmentCacheProperty();
+        cacheProperty.setEnabled(false);
+        SegmentCache cache = new SegmentCache(cacheProperty);
+        OfferService offerService = new OfferService(repository, segmentClient, cache,
+                new OfferMetrics(registry, repository, cache));
+        AtomicBoolean interruptKept = new AtomicBoolean();
+
+        List<Caller> leader = startCallers(() -> String.valueOf(offerService.applyOffer(cart(7)).getCart_value()), 1);
+        awaitAllWaiting(leader);
+        List<Caller> waiter = startCallers(() -> {
+            String cartValue = String.valueOf(offerService.applyOffer(cart(7)).getCart_value());
+            interruptKept.set(Thread.currentThread().isInterrupted());
+            return cartValue;
+        }, 1);
+        awaitAllWaiting(waiter);
+
+        // The waiter prices its cart without a segment and keeps its interrupt; the service was not slow
+        waiter.get(0).interrupt();
+        waiter.get(0).join(5000);
+        release.countDown();
+        leader.get(0).join(5000);
+
+        Assert.assertEquals("200", waiter.get(0).result.get());
+        Assert.assertTrue(interruptKept.get());
+        Assert.assertEquals(1.0, registry.get("segment.lookup.failures").tag("reason", "cancelled").counter().count(), 0);
+        Assert.assertEquals(0.0, registry.get("segment.lookup.failures").tag("reason", "timeout").counter().count(), 0);
+        cache.shutdown();
+    }
+
+    private static ApplyOfferRequest cart(int userId) {
+        ApplyOfferRequest request = new ApplyOfferRequest();
+        request.setUser_id(userId);
+        request.setRestaurant_id(1);
+        request.setCart_value(200);
+        return request;
+    }
+
+    private static List<Caller> startCallers(Callable call) {
+        return startCallers(call, WAITERS + 1);
+    }
+
+    private static List<Caller> startCallers(Callable call, int count) {
+        List<Caller> callers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Caller caller = new Caller(call);
+            caller.start();
+            callers.add(caller);
+        }
+        return callers;
+    }
+
+    // The leader parks in the call and every other caller parks waiting on its result
+    private static void awaitAllWaiting(List<Caller> callers) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        for (Caller caller : callers) {
+            while (caller.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals(Thread.State.WAITING, caller.getState());
+        }
+    }
+
+    private interface Callable {
+        String call() throws Exception;
+    }
+
+    private static final class Caller extends Thread {
+        final Callable call;
+        final AtomicReference<String> result = new AtomicReference<>();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        volatile boolean interruptedAfterFailure;
+
+        Caller(Callable call) {
+            this.call = call;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                result.set(call.call());
+            } catch (Exception e) {
+                interruptedAfterFailure = Thread.currentThread().isInterrupted();
+                failure.set(e);
+            }
+        }
+    }
+}
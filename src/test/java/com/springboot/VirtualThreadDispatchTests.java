@@ -0,0 +1,119 @@
+package com.springboot;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.springboot.service.OfferService;
+import com.springboot.threads.VirtualThreads;
+import io.restassured.http.ContentType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+// Only runs on Java 21 or later, where Spring 5.0 also needs java.lang opened up:
+// JAVA_HOME=/path/to/jdk-21 ./mvnw test -Dtest=VirtualThreadDispatchTests
+//     -DargLine="--add-opens java.base/java.lang=ALL-UNNAMED"
+@RunWith(SpringRunner.class)
+// The segment stub on a cold JVM can miss the default budget under concurrent load, which is not what is tested here
+@TestPropertySource(properties = {
+        "offer.virtual-threads.enabled=true",
+        "segment.resilience.timeout-budget=5s"})
+public class VirtualThreadDispatchTests extends BaseOfferTest {
+
+    private final ListAppender<ILoggingEvent> serviceLog = new ListAppender<>();
+
+    @BeforeClass
+    public static void requireVirtualThreads() {
+        // Checked before the application context, which fails to start without virtual threads
+        Assume.assumeTrue(VirtualThreads.isAvailable());
+    }
+
+    @Before
+    public void attachAppender() {
+        serviceLog.start();
+        ((Logger) LoggerFactory.getLogger(OfferService.class)).addAppender(serviceLog);
+    }
+
+    @After
+    public void detachAppender() {
+        ((Logger) LoggerFactory.getLogger(OfferService.class)).detachAppender(serviceLog);
+    }
+
+    @Test
+    public void testDispatch01_RequestCompletesOnVirtualThread() {
+        addOffer(701, "FLATX", 10, "p1");
+
+        // Traced, so the service only logs if the request's MDC reached the virtual thread
+        given()
+                .contentType(ContentType.JSON)
+                .header("X-Trace-Request", "true")
+                .body(applyRequest(1, 701, 200))
+                .when()
+                .post("/api/v1/cart/apply_offer")
+                .then()
+                .statusCode(200)
+                .body("cart_value", equalTo(190));
+
+        List<ILoggingEvent> applied = events().stream()
+                .filter(event -> event.getFormattedMessage().startsWith("Offer applied"))
+                .collect(Collectors.toList());
+        Assert.assertEquals(1, applied.size());
+        Assert.assertTrue(applied.get(0).getThreadName(), applied.get(0).getThreadName().startsWith("request-"));
+    }
+
+    @Test
+    public void testDispatch02_ErrorsStillMapToResponses() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(applyRequest(0, 701, 200))
+                .when()
+                .post("/api/v1/cart/apply_offer")
+                .then()
+                .statusCode(400)
+                .body("response_msg", equalTo("User ID must be positive"));
+    }
+
+    @Test
+    public void testDispatch03_ConcurrentRequests() {
+        addOffer(702, "FLATX", 5, "p1", "p2");
+
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int userId = i % 2 == 0 ? 1 : 2;
+            requests.add(CompletableFuture.runAsync(() -> applyOfferAndAssert(userId, 702, 100, 95)));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).join();
+    }
+
+    private List<ILoggingEvent> events() {
+        // Appenders add events while holding their own lock
+        synchronized (serviceLog) {
+            return new ArrayList<>(serviceLog.list);
+        }
+    }
+
+    private static Map<String, Object> applyRequest(int userId, int restaurantId, int cartValue) {
+        Map<String, Object> applyRequest = new HashMap<>();
+        applyRequest.put("user_id", userId);
+        applyRequest.put("restaurant_id", restaurantId);
+        applyRequest.put("cart_value", cartValue);
+        return applyRequest;
+    }
+}
@@ -0,0 +1,167 @@
+package com.springboot;
+
+import com.springboot.controller.ApplyOfferRequest;
+import com.springboot.threads.VirtualThreadMvcRegistrations;
+import com.springboot.threads.VirtualThreads;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class VirtualThreadTests {
+
+    @Test
+    public void testVirtualThreads01_FailsFastBeforeJava21() {
+        Assume.assumeFalse(VirtualThreads.isAvailable());
+
+        try {
+            new VirtualThreadMvcRegistrations();
+            Assert.fail("Expected startup to fail without virtual threads");
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage(), expected.getMessage().contains("Java 21"));
+        }
+        try {
+            VirtualThreads.factory("segment-call-");
+            Assert.fail("Expected no virtual thread factory without virtual threads");
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage(), expected.getMessage().contains("Java 21"));
+        }
+    }
+
+    @Test
+    public void testVirtualThreads02_BlockingHandlersMoveToVirtualThreads() throws Exception {
+        Assert.assertTrue(runsOnVirtualThread("applyOffer", ApplyOfferRequest.class));
+        Assert.assertTrue(runsOnVirtualThread("listOffers", Integer.class));
+        Assert.assertTrue(runsOnVirtualThread("clearOffers"));
+    }
+
+    @Test
+    public void testVirtualThreads03_AsyncHandlersKeepTheirThreads() throws Exception {
+        Assert.assertFalse(runsOnVirtualThread("callable"));
+        Assert.assertFalse(runsOnVirtualThread("webAsyncTask"));
+        Assert.assertFalse(runsOnVirtualThread("deferredResult"));
+        Assert.assertFalse(runsOnVirtualThread("completableFuture"));
+        Assert.assertFalse(runsOnVirtualThread("completionStage"));
+        Assert.assertFalse(runsOnVirtualThread("future"));
+        Assert.assertFalse(runsOnVirtualThread("sseEmitter"));
+        Assert.assertFalse(runsOnVirtualThread("streamingResponseBody"));
+    }
+
+    @Test
+    public void testVirtualThreads04_HandlersWritingTheResponseKeepTheContainerThread() throws Exception {
+        Assert.assertFalse(runsOnVirtualThread("writesServletResponse", ServletResponse.class));
+        Assert.assertFalse(runsOnVirtualThread("writesHttpResponse", Integer.class, HttpServletResponse.class));
+        Assert.assertFalse(runsOnVirtualThread("writesOutputStream", OutputStream.class));
+        Assert.assertFalse(runsOnVirtualThread("writesWriter", Writer.class));
+    }
+
+    @Test
+    public void testVirtualThreads05_CallSeesTheCallersMdc() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Left over from an earlier call on the same thread
+            executor.submit(() -> MDC.put("stale", "yes")).get(5, TimeUnit.SECONDS);
+
+            MDC.put("trace", "on");
+            Callable<Map<String, String>> call;
+            try {
+                call = VirtualThreadMvcRegistrations.withCallerMdc(MDC::getCopyOfContextMap);
+            } finally {
+                MDC.clear();
+            }
+            Map<String, String> seen = executor.submit(call).get(5, TimeUnit.SECONDS);
+
+            Assert.assertEquals("on", seen.get("trace"));
+            Assert.assertNull(seen.get("stale"));
+            // Nothing is left behind for the thread's next call
+            Map<String, String> after = executor.submit(MDC::getCopyOfContextMap).get(5, TimeUnit.SECONDS);
+            Assert.assertTrue(after == null || after.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean runsOnVirtualThread(String methodName, Class<?>... parameterTypes) throws Exception {
+        return VirtualThreadMvcRegistrations.runsOnVirtualThread(
+                new HandlerMethod(new Handlers(), methodName, parameterTypes));
+    }
+
+    // Handler shapes as controllers declare them; only the signatures matter
+    @SuppressWarnings("unused")
+    private static final class Handlers {
+
+        public ResponseEntity<String> applyOffer(ApplyOfferRequest request) {
+            return null;
+        }
+
+        public String listOffers(Integer restaurantId) {
+            return null;
+        }
+
+        public void clearOffers() {
+        }
+
+        public Callable<String> callable() {
+            return null;
+        }
+
+        public WebAsyncTask<String> webAsyncTask() {
+            return null;
+        }
+
+        public DeferredResult<String> deferredResult() {
+            return null;
+        }
+
+        public CompletableFuture<String> completableFuture() {
+            return null;
+        }
+
+        public CompletionStage<String> completionStage() {
+            return null;
+        }
+
+        public Future<String> future() {
+            return null;
+        }
+
+        public SseEmitter sseEmitter() {
+            return null;
+        }
+
+        public StreamingResponseBody streamingResponseBody() {
+            return null;
+        }
+
+        public void writesServletResponse(ServletResponse response) {
+        }
+
+        public void writesHttpResponse(Integer restaurantId, HttpServletResponse response) {
+        }
+
+        public void writesOutputStream(OutputStream out) {
+        }
+
+        public void writesWriter(Writer writer) {
+        }
+    }
+}